@@ -0,0 +1,36 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8;
+
+import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.ThreadUtils;
+import com.android.tools.r8.utils.Timing;
+import java.util.function.Consumer;
+
+/** Helper for running compilations from the benchmark runners with access to their timings. */
+public class BenchmarkHelper {
+
+  public static void run(R8Command command, int threadCount, Consumer<Timing> timingConsumer)
+      throws CompilationFailedException {
+    InternalOptions options = command.getInternalOptions();
+    setBenchmarkOptions(options, threadCount, timingConsumer);
+    R8.runForTesting(command.getInputApp(), options);
+  }
+
+  public static void run(D8Command command, int threadCount, Consumer<Timing> timingConsumer)
+      throws CompilationFailedException {
+    InternalOptions options = command.getInternalOptions();
+    setBenchmarkOptions(options, threadCount, timingConsumer);
+    D8.runForTesting(command.getInputApp(), options);
+  }
+
+  private static void setBenchmarkOptions(
+      InternalOptions options, int threadCount, Consumer<Timing> timingConsumer) {
+    if (threadCount != ThreadUtils.NOT_SPECIFIED) {
+      options.threadCount = threadCount;
+    }
+    options.timingConsumer = timingConsumer;
+  }
+}
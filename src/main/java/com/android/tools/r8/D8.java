@@ -54,6 +54,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
@@ -181,7 +182,7 @@ public final class D8 {
 
   private static void run(AndroidApp inputApp, InternalOptions options, ExecutorService executor)
       throws IOException {
-    Timing timing = Timing.create("D8", options);
+    Timing timing = Timing.createWithMemoryReport("D8", options);
     try {
       // Disable global optimizations.
       options.disableGlobalOptimizations();
@@ -190,6 +191,7 @@ public final class D8 {
       assert forTesting(options, () -> !options.testing.testEnableTestAssertions);
 
       AppView<AppInfo> appView = readApp(inputApp, options, executor, timing);
+      timing.setMemoryReportComponents(appView::getComponentsForMemoryReport);
       SyntheticItems.collectSyntheticInputs(appView);
 
       final CfgPrinter printer = options.printCfg ? new CfgPrinter() : null;
@@ -326,6 +328,12 @@ public final class D8 {
       if (options.printTimes) {
         timing.report();
       }
+      if (options.memoryReportFile != null) {
+        timing.writeMemoryReport(Paths.get(options.memoryReportFile));
+      }
+      if (options.timingConsumer != null) {
+        options.timingConsumer.accept(timing);
+      }
     }
   }
 
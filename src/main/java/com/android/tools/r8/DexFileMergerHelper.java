@@ -17,6 +17,7 @@ import com.android.tools.r8.graph.GraphLens;
 import com.android.tools.r8.graph.InitClassLens;
 import com.android.tools.r8.naming.NamingLens;
 import com.android.tools.r8.utils.AndroidApp;
+import com.android.tools.r8.utils.ConsumerUtils;
 import com.android.tools.r8.utils.ExceptionUtils;
 import com.android.tools.r8.utils.InternalOptions;
 import com.android.tools.r8.utils.InternalOptions.DesugarState;
@@ -27,6 +28,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
 
 public class DexFileMergerHelper {
 
@@ -62,7 +64,17 @@ public class DexFileMergerHelper {
   public static void run(
       D8Command command, Boolean minimalMainDex, Map<String, Integer> inputOrdering)
       throws CompilationFailedException {
+    runForTesting(command, minimalMainDex, inputOrdering, ConsumerUtils.emptyConsumer());
+  }
+
+  public static void runForTesting(
+      D8Command command,
+      Boolean minimalMainDex,
+      Map<String, Integer> inputOrdering,
+      Consumer<InternalOptions> optionsModifier)
+      throws CompilationFailedException {
     InternalOptions options = command.getInternalOptions();
+    optionsModifier.accept(options);
     ExceptionUtils.withD8CompilationHandler(
         options.reporter,
         () -> runInternal(command.getInputApp(), options, minimalMainDex, inputOrdering));
@@ -80,6 +92,11 @@ public class DexFileMergerHelper {
     assert !options.isMinifying();
     options.enableInlining = false;
     options.outline.enabled = false;
+    // Merging passes DEX code through without building IR. Read the code lazily, such that code
+    // that only refers to strings, types, fields and methods is copied with the indices remapped,
+    // without decoding the instructions.
+    options.enableLazyDexCode = true;
+    options.enableEncodedDexCodeWriting = true;
 
     ExecutorService executor = ThreadUtils.getExecutorService(ThreadUtils.NOT_SPECIFIED);
     try {
@@ -111,6 +128,16 @@ public class DexFileMergerHelper {
                 null);
         writer.write(executor);
         options.printWarnings();
+        if (options.testing.encodedDexCodeWritesConsumer != null) {
+          options.testing.encodedDexCodeWritesConsumer.accept(
+              writer.getNumberOfEncodedDexCodeWrites());
+        }
+        if (options.printTimes) {
+          timing.report();
+          System.out.println(
+              "Methods written with remapped indices: "
+                  + writer.getNumberOfEncodedDexCodeWrites());
+        }
       } catch (ExecutionException e) {
         throw unwrapExecutionException(e);
       } finally {
@@ -125,6 +125,7 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.PrintStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
@@ -174,7 +175,7 @@ public class R8 {
     if (options.printMemory) {
       System.gc();
     }
-    timing = Timing.create("R8", options);
+    timing = Timing.createWithMemoryReport("R8", options);
   }
 
   /**
@@ -293,6 +294,7 @@ public class R8 {
         inputApp.closeInternalArchiveProviders();
 
         appView = AppView.createForR8(application, mainDexInfo);
+        timing.setMemoryReportComponents(appView::getComponentsForMemoryReport);
         appView.setAppServices(AppServices.builder(appView).build());
         SyntheticItems.collectSyntheticInputs(appView);
       }
@@ -852,6 +854,12 @@ public class R8 {
       if (options.printTimes) {
         timing.report();
       }
+      if (options.memoryReportFile != null) {
+        timing.writeMemoryReport(Paths.get(options.memoryReportFile));
+      }
+      if (options.timingConsumer != null) {
+        options.timingConsumer.accept(timing);
+      }
     }
   }
 
@@ -17,18 +17,20 @@ import com.android.tools.r8.utils.AndroidApiLevel;
 import com.android.tools.r8.utils.structural.DefaultHashingVisitor;
 import com.android.tools.r8.utils.structural.HasherWrapper;
 import com.android.tools.r8.utils.structural.StructuralItem;
-import it.unimi.dsi.fastutil.ints.Int2ReferenceMap;
-import it.unimi.dsi.fastutil.ints.Int2ReferenceOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.ObjectInputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 public class AndroidApiLevelHashingDatabaseImpl implements AndroidApiLevelDatabase {
@@ -37,52 +39,68 @@ public class AndroidApiLevelHashingDatabaseImpl implements AndroidApiLevelDataba
     return HasherWrapper.murmur3128Hasher();
   }
 
-  private final Int2ReferenceMap<AndroidApiLevel> lookupNonAmbiguousCache =
-      new Int2ReferenceOpenHashMap<AndroidApiLevel>();
-  private final Map<String, AndroidApiLevel> ambiguousHashesWithApiLevel = new HashMap<>();
-  private final Map<DexReference, AndroidApiLevel> ambiguousCache = new IdentityHashMap<>();
+  /**
+   * The api database loaded from the resources. The database is immutable and is therefore shared
+   * by all compilations in the same JVM.
+   */
+  private static volatile ApiDatabase sharedDatabase;
+
+  private final ApiDatabase database;
+  private final IntSet predefinedHashes = new IntOpenHashSet();
+  private final Map<DexReference, AndroidApiLevel> ambiguousCache = new ConcurrentHashMap<>();
   private final DexItemFactory factory;
 
   public AndroidApiLevelHashingDatabaseImpl(
       DexItemFactory factory, List<AndroidApiForHashingClass> predefinedApiTypeLookup) {
     this.factory = factory;
-    loadData();
+    this.database = getSharedDatabase();
     predefinedApiTypeLookup.forEach(
         apiClass -> {
           DexType type = apiClass.getType();
-          lookupNonAmbiguousCache.put(type.hashCode(), NOT_SET);
+          predefinedHashes.add(type.hashCode());
           ambiguousCache.put(type, apiClass.getApiLevel());
           apiClass.visitMethodsWithApiLevels(
               (method, apiLevel) -> {
-                lookupNonAmbiguousCache.put(method.hashCode(), NOT_SET);
+                predefinedHashes.add(method.hashCode());
                 ambiguousCache.put(method, apiLevel);
               });
           apiClass.visitFieldsWithApiLevels(
               (field, apiLevel) -> {
-                lookupNonAmbiguousCache.put(field.hashCode(), NOT_SET);
+                predefinedHashes.add(field.hashCode());
                 ambiguousCache.put(field, apiLevel);
               });
         });
   }
 
-  private void loadData() {
+  private static ApiDatabase getSharedDatabase() {
+    ApiDatabase result = sharedDatabase;
+    if (result == null) {
+      synchronized (AndroidApiLevelHashingDatabaseImpl.class) {
+        result = sharedDatabase;
+        if (result == null) {
+          result = loadData();
+          sharedDatabase = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  private static ApiDatabase loadData() {
     int[] hashIndices;
     byte[] apiLevels;
     List<String> ambiguous;
+    ClassLoader classLoader = AndroidApiLevelHashingDatabaseImpl.class.getClassLoader();
     try (InputStream indicesInputStream =
-            getClass()
-                .getClassLoader()
-                .getResourceAsStream("api_database/api_database_hash_lookup.ser");
-        ObjectInputStream indicesObjectStream = new ObjectInputStream(indicesInputStream);
+            classLoader.getResourceAsStream("api_database/api_database_hash_lookup.ser");
+        ObjectInputStream indicesObjectStream =
+            new ObjectInputStream(new BufferedInputStream(indicesInputStream));
         InputStream apiInputStream =
-            getClass()
-                .getClassLoader()
-                .getResourceAsStream("api_database/api_database_api_level.ser");
-        ObjectInputStream apiObjectStream = new ObjectInputStream(apiInputStream);
+            classLoader.getResourceAsStream("api_database/api_database_api_level.ser");
+        ObjectInputStream apiObjectStream =
+            new ObjectInputStream(new BufferedInputStream(apiInputStream));
         InputStream ambiguousInputStream =
-            getClass()
-                .getClassLoader()
-                .getResourceAsStream("api_database/api_database_ambiguous.txt")) {
+            classLoader.getResourceAsStream("api_database/api_database_ambiguous.txt")) {
       hashIndices = (int[]) indicesObjectStream.readObject();
       apiLevels = (byte[]) apiObjectStream.readObject();
       ambiguous =
@@ -93,19 +111,17 @@ public class AndroidApiLevelHashingDatabaseImpl implements AndroidApiLevelDataba
       throw new RuntimeException("Could not build api database");
     }
     assert hashIndices.length == apiLevels.length;
-    for (int i = 0; i < hashIndices.length; i++) {
-      byte apiLevel = apiLevels[i];
-      lookupNonAmbiguousCache.put(
-          hashIndices[i], apiLevel == -1 ? NOT_SET : AndroidApiLevel.getAndroidApiLevel(apiLevel));
-    }
-    ambiguous.forEach(this::parseAmbiguous);
+    Map<String, AndroidApiLevel> ambiguousHashesWithApiLevel = new HashMap<>();
+    ambiguous.forEach(line -> parseAmbiguous(line, ambiguousHashesWithApiLevel));
+    return new ApiDatabase(hashIndices, apiLevels, ambiguousHashesWithApiLevel);
   }
 
   /**
    * All elements in the ambiguous map are on the form <key>:<api-level>. The reason for this
    * additional map is that the keys collide for the items using the ordinary hashing function.
    */
-  private void parseAmbiguous(String ambiguous) {
+  private static void parseAmbiguous(
+      String ambiguous, Map<String, AndroidApiLevel> ambiguousHashesWithApiLevel) {
     String[] split = ambiguous.split(":");
     if (split.length != 2) {
       throw new CompilationError("Expected two entries in ambiguous map");
@@ -130,9 +146,12 @@ public class AndroidApiLevelHashingDatabaseImpl implements AndroidApiLevelDataba
   }
 
   private AndroidApiLevel lookupApiLevel(DexReference reference) {
-    AndroidApiLevel result = lookupNonAmbiguousCache.getOrDefault(reference.hashCode(), UNKNOWN);
-    if (result != NOT_SET) {
-      return result;
+    int hash = reference.hashCode();
+    if (!predefinedHashes.contains(hash)) {
+      AndroidApiLevel result = database.lookupNonAmbiguous(hash);
+      if (result != NOT_SET) {
+        return result;
+      }
     }
     return ambiguousCache.computeIfAbsent(
         reference,
@@ -145,7 +164,7 @@ public class AndroidApiLevelHashingDatabaseImpl implements AndroidApiLevelDataba
               method ->
                   DefaultHashingVisitor.run(method, defaultHasher, StructuralItem::acceptHashing));
           String existingHash = defaultHasher.hash().toString();
-          AndroidApiLevel androidApiLevel = ambiguousHashesWithApiLevel.get(existingHash);
+          AndroidApiLevel androidApiLevel = database.lookupAmbiguous(existingHash);
           if (androidApiLevel == null) {
             throw new CompilationError(
                 "Failed to find api level for reference: "
@@ -156,4 +175,48 @@ public class AndroidApiLevelHashingDatabaseImpl implements AndroidApiLevelDataba
           return androidApiLevel;
         });
   }
+
+  /**
+   * The hashes of the api database sorted in ascending order, with the api level of each hash
+   * stored at the same index. Lookups are done by binary search directly on the arrays, which
+   * avoids boxing and the overhead of a hash map for the entire database.
+   */
+  private static class ApiDatabase {
+
+    private final int[] sortedHashes;
+    private final byte[] apiLevels;
+    private final Map<String, AndroidApiLevel> ambiguousHashesWithApiLevel;
+
+    private ApiDatabase(
+        int[] hashIndices,
+        byte[] apiLevels,
+        Map<String, AndroidApiLevel> ambiguousHashesWithApiLevel) {
+      // Pack each hash with its api level such that sorting the packed values sorts the hashes.
+      long[] packed = new long[hashIndices.length];
+      for (int i = 0; i < hashIndices.length; i++) {
+        packed[i] = ((long) hashIndices[i] << 32) | (apiLevels[i] & 0xFF);
+      }
+      Arrays.sort(packed);
+      this.sortedHashes = new int[packed.length];
+      this.apiLevels = new byte[packed.length];
+      for (int i = 0; i < packed.length; i++) {
+        sortedHashes[i] = (int) (packed[i] >> 32);
+        this.apiLevels[i] = (byte) packed[i];
+      }
+      this.ambiguousHashesWithApiLevel = ambiguousHashesWithApiLevel;
+    }
+
+    AndroidApiLevel lookupNonAmbiguous(int hash) {
+      int index = Arrays.binarySearch(sortedHashes, hash);
+      if (index < 0) {
+        return UNKNOWN;
+      }
+      byte apiLevel = apiLevels[index];
+      return apiLevel == -1 ? NOT_SET : AndroidApiLevel.getAndroidApiLevel(apiLevel);
+    }
+
+    AndroidApiLevel lookupAmbiguous(String hash) {
+      return ambiguousHashesWithApiLevel.get(hash);
+    }
+  }
 }
@@ -12,12 +12,16 @@ import com.android.tools.r8.ir.desugar.desugaredlibrary.DesugaredLibraryConfigur
 import com.android.tools.r8.utils.AndroidApiLevel;
 import com.google.common.collect.ImmutableList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class AndroidApiReferenceLevelCache {
 
   private final DesugaredLibraryConfiguration desugaredLibraryConfiguration;
   private final AndroidApiLevelDatabase androidApiLevelDatabase;
   private final AppView<?> appView;
+  // Memoized results of looking up library references in the api database.
+  private final Map<DexReference, AndroidApiLevel> apiLevelCache = new ConcurrentHashMap<>();
 
   private AndroidApiReferenceLevelCache(AppView<?> appView) {
     this(appView, ImmutableList.of());
@@ -88,10 +92,16 @@ public class AndroidApiReferenceLevelCache {
       // of the program.
       return appView.options().minApiLevel;
     }
-    return reference.apply(
-        androidApiLevelDatabase::getTypeApiLevel,
-        androidApiLevelDatabase::getFieldApiLevel,
-        androidApiLevelDatabase::getMethodApiLevel);
+    AndroidApiLevel apiLevel = apiLevelCache.get(reference);
+    if (apiLevel == null) {
+      apiLevel =
+          reference.apply(
+              androidApiLevelDatabase::getTypeApiLevel,
+              androidApiLevelDatabase::getFieldApiLevel,
+              androidApiLevelDatabase::getMethodApiLevel);
+      apiLevelCache.put(reference, apiLevel);
+    }
+    return apiLevel;
   }
 
   private boolean isReferenceToJavaLangObject(DexReference reference) {
@@ -0,0 +1,567 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.benchmarks;
+
+import com.android.tools.r8.BaseCompilerCommand;
+import com.android.tools.r8.BenchmarkHelper;
+import com.android.tools.r8.ByteDataView;
+import com.android.tools.r8.CompatProguardCommandBuilder;
+import com.android.tools.r8.CompilationFailedException;
+import com.android.tools.r8.CompilationMode;
+import com.android.tools.r8.D8Command;
+import com.android.tools.r8.DexIndexedConsumer;
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.R8Command;
+import com.android.tools.r8.utils.ArchiveResourceProvider;
+import com.android.tools.r8.utils.ThreadUtils;
+import com.android.tools.r8.utils.Timing;
+import com.android.tools.r8.utils.ZipUtils;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Replays compilation dumps, as produced by {@code -Dcom.android.tools.r8.dumpinputtofile} or
+ * {@code -Dcom.android.tools.r8.dumpinputtodirectory}, as a performance benchmark.
+ *
+ * <p>Each dump is compiled a number of times in the same JVM. The first compilation is reported as
+ * cold and the median of the remaining compilations as warm. For each compilation the duration of
+ * the top-level phases, the peak heap usage and the size of the output are recorded.
+ *
+ * <p>The results can be written as JSON and used as the baseline of a later run. When a baseline is
+ * given, the warm results (or the cold results if there is only one iteration) are compared to the
+ * baseline, and the benchmark exits with a non-zero exit code if any of them regressed by more than
+ * the threshold.
+ *
+ * <p>System properties recorded in the dump are not applied, since they would leak into the
+ * compilation of the other dumps.
+ */
+public class DumpReplayBenchmark {
+
+  private static final String USAGE =
+      String.join(
+          "\n",
+          "Usage: DumpReplayBenchmark [options] <dump.zip | directory of dumps>+",
+          " where options are:",
+          "  --iterations <n>      # Number of compilations of each dump (default 5).",
+          "  --threads <n>         # Number of threads used by each compilation.",
+          "  --output <file>       # Write the results as JSON to <file>.",
+          "  --baseline <file>     # Compare the results against the JSON results in <file>.",
+          "  --threshold <percent> # Allowed regression compared to the baseline (default 10).",
+          "  --min-duration <ms>   # Do not compare phases that took less than <ms> in the",
+          "                        # baseline (default 100).");
+
+  private static final String BUILD_PROPERTIES_FILE_NAME = "build.properties";
+  private static final String DESUGARED_LIBRARY_FILE_NAME = "desugared-library.json";
+  private static final String MAIN_DEX_LIST_FILE_NAME = "main-dex-list.txt";
+  private static final String MAIN_DEX_RULES_FILE_NAME = "main-dex-rules.txt";
+  private static final String PROGRAM_FILE_NAME = "program.jar";
+  private static final String CLASSPATH_FILE_NAME = "classpath.jar";
+  private static final String LIBRARY_FILE_NAME = "library.jar";
+  private static final String CONFIG_FILE_NAME = "proguard.config";
+  private static final String FEATURE_FILE_NAME_PREFIX = "feature-";
+
+  private static final String COLD_KEY = "cold";
+  private static final String WARM_KEY = "warm";
+
+  private int iterations = 5;
+  private int threadCount = ThreadUtils.NOT_SPECIFIED;
+  private Path output = null;
+  private Path baseline = null;
+  private int thresholdPercent = 10;
+  private long minDurationMs = 100;
+  private final List<Path> dumps = new ArrayList<>();
+
+  public static void main(String[] args) throws Exception {
+    DumpReplayBenchmark benchmark;
+    try {
+      benchmark = parse(args);
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.exit(1);
+      return;
+    }
+    if (!benchmark.run()) {
+      System.exit(1);
+    }
+  }
+
+  static DumpReplayBenchmark parse(String... args) throws IOException {
+    DumpReplayBenchmark benchmark = new DumpReplayBenchmark();
+    benchmark.parseArguments(args);
+    return benchmark;
+  }
+
+  private void parseArguments(String[] args) throws IOException {
+    for (int i = 0; i < args.length; i++) {
+      String option = args[i];
+      switch (option) {
+        case "--iterations":
+          iterations = parseInt(option, getValue(args, ++i, option), 1);
+          break;
+        case "--threads":
+          threadCount = parseInt(option, getValue(args, ++i, option), 1);
+          break;
+        case "--output":
+          output = Paths.get(getValue(args, ++i, option));
+          break;
+        case "--baseline":
+          baseline = Paths.get(getValue(args, ++i, option));
+          break;
+        case "--threshold":
+          thresholdPercent = parseInt(option, getValue(args, ++i, option), 0);
+          break;
+        case "--min-duration":
+          minDurationMs = parseInt(option, getValue(args, ++i, option), 0);
+          break;
+        default:
+          if (option.startsWith("--")) {
+            throw usageError("Unknown option: " + option);
+          }
+          addDumps(Paths.get(option));
+      }
+    }
+    if (dumps.isEmpty()) {
+      throw usageError("Expected at least one dump.");
+    }
+  }
+
+  private static String getValue(String[] args, int index, String option) {
+    if (index >= args.length) {
+      throw usageError("Missing value for option " + option);
+    }
+    return args[index];
+  }
+
+  private static int parseInt(String option, String value, int minimum) {
+    int result;
+    try {
+      result = Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      throw usageError("Invalid value for option " + option + ": " + value);
+    }
+    if (result < minimum) {
+      throw usageError("Expected a value of at least " + minimum + " for option " + option);
+    }
+    return result;
+  }
+
+  private static IllegalArgumentException usageError(String message) {
+    return new IllegalArgumentException(message + "\n" + USAGE);
+  }
+
+  private void addDumps(Path path) throws IOException {
+    if (!Files.isDirectory(path)) {
+      dumps.add(path);
+      return;
+    }
+    try (Stream<Path> paths = Files.list(path)) {
+      paths
+          .filter(file -> file.getFileName().toString().endsWith(".zip"))
+          .sorted()
+          .forEach(dumps::add);
+    }
+  }
+
+  /** Runs the benchmark and returns false if a regression compared to the baseline was found. */
+  boolean run() throws CompilationFailedException, IOException {
+    JsonObject results = new JsonObject();
+    for (Path dump : dumps) {
+      String name = dump.getFileName().toString();
+      System.out.println("Replaying " + name);
+      JsonObject result = replay(dump);
+      printResult(name, result);
+      results.add(name, result);
+    }
+    if (output != null) {
+      try (Writer writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+        new GsonBuilder().setPrettyPrinting().create().toJson(results, writer);
+      }
+    }
+    if (baseline == null) {
+      return true;
+    }
+    JsonObject baselineResults;
+    try (Reader reader = Files.newBufferedReader(baseline, StandardCharsets.UTF_8)) {
+      baselineResults = new JsonParser().parse(reader).getAsJsonObject();
+    }
+    List<String> regressions = new ArrayList<>();
+    for (Entry<String, JsonElement> entry : baselineResults.entrySet()) {
+      String name = entry.getKey();
+      if (!results.has(name)) {
+        System.out.println("Warning: no result for baseline dump " + name);
+        continue;
+      }
+      compare(
+          name,
+          getComparedMeasurement(entry.getValue().getAsJsonObject()),
+          getComparedMeasurement(results.getAsJsonObject(name)),
+          regressions);
+    }
+    if (regressions.isEmpty()) {
+      System.out.println("No regressions above " + thresholdPercent + "%");
+      return true;
+    }
+    System.out.println("Regressions above " + thresholdPercent + "%:");
+    regressions.forEach(regression -> System.out.println("  " + regression));
+    return false;
+  }
+
+  private JsonObject replay(Path dump) throws CompilationFailedException, IOException {
+    Path directory = Files.createTempDirectory("dump");
+    try {
+      ZipUtils.unzip(dump, directory);
+      Properties properties = new Properties();
+      try (Reader reader =
+          Files.newBufferedReader(
+              directory.resolve(BUILD_PROPERTIES_FILE_NAME), StandardCharsets.UTF_8)) {
+        properties.load(reader);
+      }
+      List<Measurement> measurements = new ArrayList<>(iterations);
+      for (int i = 0; i < iterations; i++) {
+        measurements.add(compile(directory, properties));
+      }
+      JsonObject result = new JsonObject();
+      result.add(COLD_KEY, measurements.get(0).toJson());
+      if (iterations > 1) {
+        result.add(WARM_KEY, Measurement.median(measurements.subList(1, iterations)).toJson());
+      }
+      return result;
+    } finally {
+      deleteDirectory(directory);
+    }
+  }
+
+  private Measurement compile(Path directory, Properties properties)
+      throws CompilationFailedException, IOException {
+    AtomicLong outputSize = new AtomicLong();
+    Map<String, Long> phaseDurations = new LinkedHashMap<>();
+    Consumer<Timing> timingConsumer =
+        timing -> timing.getTopLevelPhaseDurations().forEach(phaseDurations::put);
+    String tool = properties.getProperty("tool");
+    BaseCompilerCommand command;
+    if ("R8".equals(tool)) {
+      command = buildR8Command(directory, properties, outputSize);
+    } else if ("D8".equals(tool)) {
+      command = buildD8Command(directory, properties, outputSize);
+    } else {
+      throw new IllegalArgumentException("Unsupported tool in dump: " + tool);
+    }
+    List<MemoryPoolMXBean> heapPools = getHeapMemoryPools();
+    System.gc();
+    heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+    long start = System.nanoTime();
+    if (command instanceof R8Command) {
+      BenchmarkHelper.run((R8Command) command, threadCount, timingConsumer);
+    } else {
+      BenchmarkHelper.run((D8Command) command, threadCount, timingConsumer);
+    }
+    long duration = System.nanoTime() - start;
+    // The pools may peak at different times, so the sum is an upper bound of the peak heap usage.
+    long peakHeapUsage = 0;
+    for (MemoryPoolMXBean pool : heapPools) {
+      peakHeapUsage += pool.getPeakUsage().getUsed();
+    }
+    return new Measurement(
+        toMilliseconds(duration),
+        peakHeapUsage,
+        outputSize.get(),
+        phaseDurations.entrySet().stream()
+            .collect(
+                Collectors.toMap(
+                    Entry::getKey,
+                    entry -> toMilliseconds(entry.getValue()),
+                    (x, y) -> x,
+                    LinkedHashMap::new)));
+  }
+
+  private static R8Command buildR8Command(
+      Path directory, Properties properties, AtomicLong outputSize)
+      throws CompilationFailedException, IOException {
+    R8Command.Builder builder =
+        new CompatProguardCommandBuilder(
+            Boolean.parseBoolean(properties.getProperty("force-proguard-compatibility")));
+    addCommonInputs(builder, directory, properties, outputSize);
+    Path config = directory.resolve(CONFIG_FILE_NAME);
+    if (Files.exists(config)) {
+      builder.addProguardConfigurationFiles(config);
+    }
+    Path mainDexRules = directory.resolve(MAIN_DEX_RULES_FILE_NAME);
+    if (Files.exists(mainDexRules)) {
+      builder.addMainDexRulesFiles(mainDexRules);
+    }
+    if (properties.containsKey("tree-shaking")) {
+      builder.setDisableTreeShaking(!Boolean.parseBoolean(properties.getProperty("tree-shaking")));
+    }
+    if (properties.containsKey("minification")) {
+      builder.setDisableMinification(
+          !Boolean.parseBoolean(properties.getProperty("minification")));
+    }
+    for (int i = 1; ; i++) {
+      Path feature = directory.resolve(FEATURE_FILE_NAME_PREFIX + i + ".jar");
+      if (!Files.exists(feature)) {
+        break;
+      }
+      builder.addFeatureSplit(
+          featureBuilder ->
+              featureBuilder
+                  .addProgramResourceProvider(ArchiveResourceProvider.fromArchive(feature, true))
+                  .setProgramConsumer(new SizeCountingConsumer(outputSize))
+                  .build());
+    }
+    return builder.build();
+  }
+
+  private static D8Command buildD8Command(
+      Path directory, Properties properties, AtomicLong outputSize)
+      throws CompilationFailedException, IOException {
+    D8Command.Builder builder = D8Command.builder();
+    addCommonInputs(builder, directory, properties, outputSize);
+    Path mainDexRules = directory.resolve(MAIN_DEX_RULES_FILE_NAME);
+    if (Files.exists(mainDexRules)) {
+      builder.addMainDexRulesFiles(mainDexRules);
+    }
+    if (properties.containsKey("intermediate")) {
+      builder.setIntermediate(Boolean.parseBoolean(properties.getProperty("intermediate")));
+    }
+    return builder.build();
+  }
+
+  private static void addCommonInputs(
+      BaseCompilerCommand.Builder<?, ?> builder,
+      Path directory,
+      Properties properties,
+      AtomicLong outputSize)
+      throws IOException {
+    builder
+        .addProgramFiles(directory.resolve(PROGRAM_FILE_NAME))
+        .setProgramConsumer(new SizeCountingConsumer(outputSize))
+        .setMode(
+            "debug".equals(properties.getProperty("mode"))
+                ? CompilationMode.DEBUG
+                : CompilationMode.RELEASE);
+    Path library = directory.resolve(LIBRARY_FILE_NAME);
+    if (Files.exists(library)) {
+      builder.addLibraryFiles(library);
+    }
+    Path classpath = directory.resolve(CLASSPATH_FILE_NAME);
+    if (Files.exists(classpath)) {
+      builder.addClasspathFiles(classpath);
+    }
+    Path mainDexList = directory.resolve(MAIN_DEX_LIST_FILE_NAME);
+    if (Files.exists(mainDexList)) {
+      builder.addMainDexListFiles(mainDexList);
+    }
+    Path desugaredLibrary = directory.resolve(DESUGARED_LIBRARY_FILE_NAME);
+    if (Files.exists(desugaredLibrary)) {
+      builder.addDesugaredLibraryConfiguration(
+          new String(Files.readAllBytes(desugaredLibrary), StandardCharsets.UTF_8));
+    }
+    if (properties.containsKey("min-api")) {
+      builder.setMinApiLevel(Integer.parseInt(properties.getProperty("min-api")));
+    }
+  }
+
+  private JsonObject getComparedMeasurement(JsonObject result) {
+    return result.has(WARM_KEY)
+        ? result.getAsJsonObject(WARM_KEY)
+        : result.getAsJsonObject(COLD_KEY);
+  }
+
+  private void compare(
+      String name, JsonObject baselineJson, JsonObject currentJson, List<String> regressions) {
+    Measurement baselineMeasurement = Measurement.fromJson(baselineJson);
+    Measurement currentMeasurement = Measurement.fromJson(currentJson);
+    compareDuration(
+        name + " total",
+        baselineMeasurement.durationMs,
+        currentMeasurement.durationMs,
+        regressions);
+    baselineMeasurement.phaseDurationsMs.forEach(
+        (phase, baselineDuration) -> {
+          Long currentDuration = currentMeasurement.phaseDurationsMs.get(phase);
+          if (currentDuration != null) {
+            compareDuration(name + " " + phase, baselineDuration, currentDuration, regressions);
+          }
+        });
+    compareValue(
+        name + " peak heap",
+        baselineMeasurement.peakHeapBytes,
+        currentMeasurement.peakHeapBytes,
+        "bytes",
+        regressions);
+    compareValue(
+        name + " output size",
+        baselineMeasurement.outputBytes,
+        currentMeasurement.outputBytes,
+        "bytes",
+        regressions);
+  }
+
+  private void compareDuration(
+      String title, long baselineValue, long currentValue, List<String> regressions) {
+    if (baselineValue >= minDurationMs) {
+      compareValue(title, baselineValue, currentValue, "ms", regressions);
+    }
+  }
+
+  private void compareValue(
+      String title, long baselineValue, long currentValue, String unit, List<String> regressions) {
+    if (currentValue * 100 > baselineValue * (100 + thresholdPercent)) {
+      regressions.add(
+          title + ": " + baselineValue + " " + unit + " -> " + currentValue + " " + unit);
+    }
+  }
+
+  private static void printResult(String name, JsonObject result) {
+    for (String key : new String[] {COLD_KEY, WARM_KEY}) {
+      if (!result.has(key)) {
+        continue;
+      }
+      Measurement measurement = Measurement.fromJson(result.getAsJsonObject(key));
+      BenchmarkUtils.printRuntimeMilliseconds(name + "-" + key, measurement.durationMs);
+      measurement.phaseDurationsMs.forEach(
+          (phase, duration) -> System.out.println("  " + phase + ": " + duration + " ms"));
+      System.out.println("  Peak heap: " + measurement.peakHeapBytes + " bytes");
+      System.out.println("  Output size: " + measurement.outputBytes + " bytes");
+    }
+  }
+
+  // Returns the median of the values, which is the mean of the two middle values for an even count.
+  static long median(long... values) {
+    assert values.length > 0;
+    long[] sorted = values.clone();
+    Arrays.sort(sorted);
+    int middle = sorted.length / 2;
+    return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+  }
+
+  private static List<MemoryPoolMXBean> getHeapMemoryPools() {
+    List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+        heapPools.add(pool);
+      }
+    }
+    return heapPools;
+  }
+
+  private static long toMilliseconds(long nanoseconds) {
+    return nanoseconds / 1000000;
+  }
+
+  private static void deleteDirectory(Path directory) throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  private static class SizeCountingConsumer extends DexIndexedConsumer.ForwardingConsumer {
+
+    private final AtomicLong size;
+
+    SizeCountingConsumer(AtomicLong size) {
+      super(null);
+      this.size = size;
+    }
+
+    @Override
+    public void accept(
+        int fileIndex, ByteDataView data, Set<String> descriptors, DiagnosticsHandler handler) {
+      size.addAndGet(data.getLength());
+    }
+  }
+
+  private static class Measurement {
+
+    private static final String DURATION_KEY = "durationMs";
+    private static final String PEAK_HEAP_KEY = "peakHeapBytes";
+    private static final String OUTPUT_SIZE_KEY = "outputBytes";
+    private static final String PHASES_KEY = "phasesMs";
+
+    private final long durationMs;
+    private final long peakHeapBytes;
+    private final long outputBytes;
+    private final Map<String, Long> phaseDurationsMs;
+
+    Measurement(
+        long durationMs, long peakHeapBytes, long outputBytes, Map<String, Long> phaseDurationsMs) {
+      this.durationMs = durationMs;
+      this.peakHeapBytes = peakHeapBytes;
+      this.outputBytes = outputBytes;
+      this.phaseDurationsMs = phaseDurationsMs;
+    }
+
+    // Returns the median of each of the values of the given measurements.
+    static Measurement median(List<Measurement> measurements) {
+      Map<String, Long> phaseDurationsMs = new LinkedHashMap<>();
+      for (String phase : measurements.get(0).phaseDurationsMs.keySet()) {
+        phaseDurationsMs.put(
+            phase,
+            median(
+                measurements,
+                measurement -> measurement.phaseDurationsMs.getOrDefault(phase, 0L)));
+      }
+      return new Measurement(
+          median(measurements, measurement -> measurement.durationMs),
+          median(measurements, measurement -> measurement.peakHeapBytes),
+          median(measurements, measurement -> measurement.outputBytes),
+          phaseDurationsMs);
+    }
+
+    private static long median(List<Measurement> measurements, ToLongFunction<Measurement> fn) {
+      return DumpReplayBenchmark.median(measurements.stream().mapToLong(fn).toArray());
+    }
+
+    static Measurement fromJson(JsonObject json) {
+      Map<String, Long> phaseDurationsMs = new LinkedHashMap<>();
+      json.getAsJsonObject(PHASES_KEY)
+          .entrySet()
+          .forEach(entry -> phaseDurationsMs.put(entry.getKey(), entry.getValue().getAsLong()));
+      return new Measurement(
+          json.get(DURATION_KEY).getAsLong(),
+          json.get(PEAK_HEAP_KEY).getAsLong(),
+          json.get(OUTPUT_SIZE_KEY).getAsLong(),
+          phaseDurationsMs);
+    }
+
+    JsonObject toJson() {
+      JsonObject json = new JsonObject();
+      json.addProperty(DURATION_KEY, durationMs);
+      json.addProperty(PEAK_HEAP_KEY, peakHeapBytes);
+      json.addProperty(OUTPUT_SIZE_KEY, outputBytes);
+      JsonObject phases = new JsonObject();
+      phaseDurationsMs.forEach(phases::addProperty);
+      json.add(PHASES_KEY, phases);
+      return json;
+    }
+  }
+}
@@ -0,0 +1,223 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.code;
+
+import com.android.tools.r8.errors.CompilationError;
+
+/**
+ * A flyweight cursor over the encoded code units of a method.
+ *
+ * <p>The cursor decodes the opcode, size and constant pool indices of each instruction directly
+ * from the code units, without creating {@link Instruction} objects. This allows passes that only
+ * need to read or rewrite the indices of the instructions, such as dex merging, to process the code
+ * without materializing it.
+ */
+public class EncodedInstructionCursor {
+
+  public enum IndexKind {
+    NONE,
+    STRING,
+    TYPE,
+    FIELD,
+    METHOD,
+    PROTO,
+    CALL_SITE,
+    METHOD_HANDLE
+  }
+
+  private static final int PACKED_SWITCH_PAYLOAD = 0x0100;
+  private static final int SPARSE_SWITCH_PAYLOAD = 0x0200;
+  private static final int FILL_ARRAY_DATA_PAYLOAD = 0x0300;
+
+  // The size in code units and the kind of the constant pool index for each opcode. An opcode with
+  // size zero is unused.
+  private static final byte[] SIZES = new byte[256];
+  private static final IndexKind[] INDEX_KINDS = new IndexKind[256];
+
+  static {
+    define(0x00, 0x00, 1, IndexKind.NONE); // nop (payloads are handled separately)
+    define(0x01, 0x01, 1, IndexKind.NONE); // move
+    define(0x02, 0x02, 2, IndexKind.NONE); // move/from16
+    define(0x03, 0x03, 3, IndexKind.NONE); // move/16
+    define(0x04, 0x04, 1, IndexKind.NONE); // move-wide
+    define(0x05, 0x05, 2, IndexKind.NONE); // move-wide/from16
+    define(0x06, 0x06, 3, IndexKind.NONE); // move-wide/16
+    define(0x07, 0x07, 1, IndexKind.NONE); // move-object
+    define(0x08, 0x08, 2, IndexKind.NONE); // move-object/from16
+    define(0x09, 0x09, 3, IndexKind.NONE); // move-object/16
+    define(0x0a, 0x12, 1, IndexKind.NONE); // move-result .. const/4
+    define(0x13, 0x13, 2, IndexKind.NONE); // const/16
+    define(0x14, 0x14, 3, IndexKind.NONE); // const
+    define(0x15, 0x16, 2, IndexKind.NONE); // const/high16, const-wide/16
+    define(0x17, 0x17, 3, IndexKind.NONE); // const-wide/32
+    define(0x18, 0x18, 5, IndexKind.NONE); // const-wide
+    define(0x19, 0x19, 2, IndexKind.NONE); // const-wide/high16
+    define(0x1a, 0x1a, 2, IndexKind.STRING); // const-string
+    define(0x1b, 0x1b, 3, IndexKind.STRING); // const-string/jumbo
+    define(0x1c, 0x1c, 2, IndexKind.TYPE); // const-class
+    define(0x1d, 0x1e, 1, IndexKind.NONE); // monitor-enter, monitor-exit
+    define(0x1f, 0x20, 2, IndexKind.TYPE); // check-cast, instance-of
+    define(0x21, 0x21, 1, IndexKind.NONE); // array-length
+    define(0x22, 0x23, 2, IndexKind.TYPE); // new-instance, new-array
+    define(0x24, 0x25, 3, IndexKind.TYPE); // filled-new-array, filled-new-array/range
+    define(0x26, 0x26, 3, IndexKind.NONE); // fill-array-data
+    define(0x27, 0x28, 1, IndexKind.NONE); // throw, goto
+    define(0x29, 0x29, 2, IndexKind.NONE); // goto/16
+    define(0x2a, 0x2c, 3, IndexKind.NONE); // goto/32, packed-switch, sparse-switch
+    define(0x2d, 0x3d, 2, IndexKind.NONE); // cmp*, if-*
+    define(0x44, 0x51, 2, IndexKind.NONE); // aget*, aput*
+    define(0x52, 0x5f, 2, IndexKind.FIELD); // iget*, iput*
+    define(0x60, 0x6d, 2, IndexKind.FIELD); // sget*, sput*
+    define(0x6e, 0x72, 3, IndexKind.METHOD); // invoke-*
+    define(0x74, 0x78, 3, IndexKind.METHOD); // invoke-*/range
+    define(0x7b, 0x8f, 1, IndexKind.NONE); // unop
+    define(0x90, 0xaf, 2, IndexKind.NONE); // binop
+    define(0xb0, 0xcf, 1, IndexKind.NONE); // binop/2addr
+    define(0xd0, 0xe2, 2, IndexKind.NONE); // binop/lit16, binop/lit8
+    define(0xfa, 0xfb, 4, IndexKind.METHOD); // invoke-polymorphic, invoke-polymorphic/range
+    define(0xfc, 0xfd, 3, IndexKind.CALL_SITE); // invoke-custom, invoke-custom/range
+    define(0xfe, 0xfe, 2, IndexKind.METHOD_HANDLE); // const-method-handle
+    define(0xff, 0xff, 2, IndexKind.PROTO); // const-method-type
+  }
+
+  private static void define(int first, int last, int size, IndexKind indexKind) {
+    for (int opcode = first; opcode <= last; opcode++) {
+      assert SIZES[opcode] == 0;
+      SIZES[opcode] = (byte) size;
+      INDEX_KINDS[opcode] = indexKind;
+    }
+  }
+
+  private final short[] codeUnits;
+
+  private int offset = -1;
+  private int size = 0;
+
+  public EncodedInstructionCursor(short[] codeUnits) {
+    this.codeUnits = codeUnits;
+  }
+
+  /** Moves the cursor to the next instruction. Returns false if there are no more instructions. */
+  public boolean advance() {
+    offset = offset < 0 ? 0 : offset + size;
+    if (offset >= codeUnits.length) {
+      size = 0;
+      return false;
+    }
+    size = computeSize();
+    if (offset + size > codeUnits.length) {
+      throw new CompilationError(
+          "Instruction at offset " + offset + " exceeds the code size " + codeUnits.length);
+    }
+    return true;
+  }
+
+  private int computeSize() {
+    int first = codeUnits[offset] & 0xffff;
+    switch (first) {
+      case PACKED_SWITCH_PAYLOAD:
+        return 4 + getUnit(1) * 2;
+      case SPARSE_SWITCH_PAYLOAD:
+        return 2 + getUnit(1) * 4;
+      case FILL_ARRAY_DATA_PAYLOAD:
+        {
+          long elementWidth = getUnit(1);
+          long numberOfElements = getUnit(2) | ((long) getUnit(3) << 16);
+          return (int) (4 + (elementWidth * numberOfElements + 1) / 2);
+        }
+      default:
+        int instructionSize = SIZES[first & 0xff];
+        if (instructionSize == 0) {
+          throw new CompilationError(
+              "Unsupported opcode 0x" + Integer.toHexString(first & 0xff) + " at offset " + offset);
+        }
+        return instructionSize;
+    }
+  }
+
+  private int getUnit(int index) {
+    if (offset + index >= codeUnits.length) {
+      throw new CompilationError("Truncated payload at offset " + offset);
+    }
+    return codeUnits[offset + index] & 0xffff;
+  }
+
+  /** Returns the offset of the current instruction in code units. */
+  public int getOffset() {
+    return offset;
+  }
+
+  /** Returns the size of the current instruction in code units. */
+  public int getSize() {
+    return size;
+  }
+
+  public int getOpcode() {
+    return codeUnits[offset] & 0xff;
+  }
+
+  public boolean isPayload() {
+    int first = codeUnits[offset] & 0xffff;
+    return first == PACKED_SWITCH_PAYLOAD
+        || first == SPARSE_SWITCH_PAYLOAD
+        || first == FILL_ARRAY_DATA_PAYLOAD;
+  }
+
+  public IndexKind getIndexKind() {
+    return isPayload() ? IndexKind.NONE : INDEX_KINDS[getOpcode()];
+  }
+
+  public boolean hasIndex() {
+    return getIndexKind() != IndexKind.NONE;
+  }
+
+  /** Returns the constant pool index of the current instruction. */
+  public int getIndex() {
+    assert hasIndex();
+    if (getOpcode() == ConstStringJumbo.OPCODE) {
+      return (codeUnits[offset + 1] & 0xffff) | ((codeUnits[offset + 2] & 0xffff) << 16);
+    }
+    return codeUnits[offset + 1] & 0xffff;
+  }
+
+  /**
+   * Rewrites the constant pool index of the current instruction. Returns false if the new index
+   * does not fit in the encoding of the instruction, e.g., when a const-string instruction refers
+   * to a string index above 0xffff, in which case the code is left unchanged.
+   */
+  public boolean setIndex(int index) {
+    assert hasIndex();
+    if (getOpcode() == ConstStringJumbo.OPCODE) {
+      codeUnits[offset + 1] = (short) index;
+      codeUnits[offset + 2] = (short) (index >>> 16);
+      return true;
+    }
+    if ((index & ~0xffff) != 0) {
+      return false;
+    }
+    codeUnits[offset + 1] = (short) index;
+    return true;
+  }
+
+  /** Returns true if the current instruction has a second index into the proto pool. */
+  public boolean hasProtoIndex() {
+    return !isPayload()
+        && (getOpcode() == InvokePolymorphic.OPCODE
+            || getOpcode() == InvokePolymorphicRange.OPCODE);
+  }
+
+  public int getProtoIndex() {
+    assert hasProtoIndex();
+    return codeUnits[offset + 3] & 0xffff;
+  }
+
+  public boolean setProtoIndex(int index) {
+    assert hasProtoIndex();
+    if ((index & ~0xffff) != 0) {
+      return false;
+    }
+    codeUnits[offset + 3] = (short) index;
+    return true;
+  }
+}
@@ -14,18 +14,16 @@ import com.android.tools.r8.DexFilePerClassFileConsumer;
 import com.android.tools.r8.DexIndexedConsumer;
 import com.android.tools.r8.ProgramConsumer;
 import com.android.tools.r8.ResourceException;
-import com.android.tools.r8.code.Instruction;
 import com.android.tools.r8.dex.FileWriter.ByteBufferResult;
 import com.android.tools.r8.errors.CompilationError;
 import com.android.tools.r8.features.FeatureSplitConfiguration.DataResourceProvidersAndConsumer;
 import com.android.tools.r8.graph.AppServices;
 import com.android.tools.r8.graph.AppView;
+import com.android.tools.r8.graph.Code;
 import com.android.tools.r8.graph.DexAnnotation;
 import com.android.tools.r8.graph.DexAnnotationDirectory;
 import com.android.tools.r8.graph.DexAnnotationSet;
 import com.android.tools.r8.graph.DexApplication;
-import com.android.tools.r8.graph.DexCallSite;
-import com.android.tools.r8.graph.DexCode;
 import com.android.tools.r8.graph.DexDebugInfo;
 import com.android.tools.r8.graph.DexEncodedArray;
 import com.android.tools.r8.graph.DexEncodedField;
@@ -35,12 +33,14 @@ import com.android.tools.r8.graph.DexString;
 import com.android.tools.r8.graph.DexType;
 import com.android.tools.r8.graph.DexTypeList;
 import com.android.tools.r8.graph.DexValue;
+import com.android.tools.r8.graph.DexWritableCode;
 import com.android.tools.r8.graph.EnclosingMethodAttribute;
 import com.android.tools.r8.graph.GraphLens;
 import com.android.tools.r8.graph.InitClassLens;
 import com.android.tools.r8.graph.InnerClassAttribute;
 import com.android.tools.r8.graph.ObjectToOffsetMapping;
 import com.android.tools.r8.graph.ParameterAnnotationsList;
+import com.android.tools.r8.logging.Log;
 import com.android.tools.r8.naming.NamingLens;
 import com.android.tools.r8.naming.ProguardMapSupplier;
 import com.android.tools.r8.naming.ProguardMapSupplier.ProguardMapId;
@@ -54,6 +54,7 @@ import com.android.tools.r8.utils.PredicateUtils;
 import com.android.tools.r8.utils.StringDiagnostic;
 import com.android.tools.r8.utils.StringUtils;
 import com.android.tools.r8.utils.ThreadUtils;
+import com.android.tools.r8.utils.ThreadUtils.BatchStatistics;
 import com.android.tools.r8.utils.Timing;
 import com.android.tools.r8.utils.Timing.TimingMerger;
 import com.google.common.collect.ImmutableList;
@@ -71,6 +72,7 @@ import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -83,6 +85,7 @@ public class ApplicationWriter {
   public final InternalOptions options;
   private final CodeToKeep desugaredLibraryCodeToKeep;
   private final Predicate<DexType> isTypeMissing;
+  private final AtomicInteger numberOfEncodedDexCodeWrites = new AtomicInteger();
   public List<Marker> markers;
   public List<DexString> markerStrings;
 
@@ -126,7 +129,7 @@ public class ApplicationWriter {
     }
 
     @Override
-    public boolean add(DexCode dexCode) {
+    public boolean add(DexWritableCode dexCode) {
       return true;
     }
 
@@ -201,7 +204,7 @@ public class ApplicationWriter {
         && options.mainDexKeepRules.isEmpty()
         && appView.appInfo().getMainDexInfo().isEmpty()
         && options.enableMainDexListCheck) {
-      distributor = new VirtualFile.MonoDexDistributor(this, options);
+      distributor = new VirtualFile.MonoDexDistributor(this, options, executorService);
     } else {
       distributor = new VirtualFile.FillFilesDistributor(this, options, executorService);
     }
@@ -546,7 +549,7 @@ public class ApplicationWriter {
     if (clazz.getClassSignature().hasSignature()) {
       annotations.add(
           DexAnnotation.createSignatureAnnotation(
-              clazz.getClassSignature().toRenamedString(namingLens, isTypeMissing),
+              clazz.getClassSignatureString(namingLens, isTypeMissing),
               options.itemFactory));
     }
 
@@ -576,7 +579,7 @@ public class ApplicationWriter {
             ArrayUtils.appendSingleElement(
                 field.annotations().annotations,
                 DexAnnotation.createSignatureAnnotation(
-                    field.getGenericSignature().toRenamedString(namingLens, isTypeMissing),
+                    field.getGenericSignatureString(namingLens, isTypeMissing),
                     options.itemFactory))));
     field.clearGenericSignature();
   }
@@ -591,29 +594,48 @@ public class ApplicationWriter {
             ArrayUtils.appendSingleElement(
                 method.annotations().annotations,
                 DexAnnotation.createSignatureAnnotation(
-                    method.getGenericSignature().toRenamedString(namingLens, isTypeMissing),
+                    method.getGenericSignatureString(namingLens, isTypeMissing),
                     options.itemFactory))));
     method.clearGenericSignature();
   }
 
   private void setCallSiteContexts(ExecutorService executorService) throws ExecutionException {
-    ThreadUtils.processItems(
-        appView.appInfo().classes(), this::setCallSiteContexts, executorService);
+    // Code that has not been decoded can only be written as is if nothing is renamed or rewritten.
+    boolean writeEncodedDexCode =
+        options.enableEncodedDexCodeWriting
+            && graphLens.isIdentityLens()
+            && namingLens.isIdentityLens();
+    BatchStatistics statistics =
+        ThreadUtils.processItemsInBatches(
+            appView.appInfo().classes(),
+            clazz -> clazz.getMethodCollection().size(),
+            clazz -> setCallSiteContexts(clazz, writeEncodedDexCode),
+            executorService);
+    if (Log.ENABLED) {
+      Log.info(getClass(), "Set call-site contexts using %s.", statistics);
+    }
   }
 
-  private void setCallSiteContexts(DexProgramClass clazz) {
-    for (DexEncodedMethod method : clazz.methods()) {
-      if (method.hasCode()) {
-        DexCode code = method.getCode().asDexCode();
-        assert code != null;
-        for (Instruction instruction : code.instructions) {
-          DexCallSite callSite = instruction.getCallSite();
-          if (callSite != null) {
-            callSite.setContext(method.getReference(), instruction.getOffset());
+  private void setCallSiteContexts(DexProgramClass clazz, boolean writeEncodedDexCode) {
+    clazz.forEachProgramMethodMatching(
+        DexEncodedMethod::hasCode,
+        method -> {
+          Code code = method.getDefinition().getCode();
+          if (code.isLazyDexCode() && code.asLazyDexCode().isEncoded()) {
+            if (writeEncodedDexCode && code.asLazyDexCode().canWriteEncoded()) {
+              numberOfEncodedDexCodeWrites.incrementAndGet();
+              return;
+            }
+            // Decode the instructions such that the code is written using the decoded instructions.
+            code.asDexCode();
           }
-        }
-      }
-    }
+          code.asDexWritableCode().setCallSiteContexts(method);
+        });
+  }
+
+  /** Returns the number of methods whose code was written without decoding the instructions. */
+  public int getNumberOfEncodedDexCodeWrites() {
+    return numberOfEncodedDexCodeWrites.get();
   }
 
   /**
@@ -643,11 +665,11 @@ public class ApplicationWriter {
     // for all code objects and write the processed results into that map.
     // TODO(b/181636450): Reconsider the code mapping setup now that synthetics are never duplicated
     //  in outputs.
-    Map<DexEncodedMethod, DexCode> codeMapping = new IdentityHashMap<>();
+    Map<DexEncodedMethod, DexWritableCode> codeMapping = new IdentityHashMap<>();
     for (DexProgramClass clazz : classes) {
       clazz.forEachMethod(
           method -> {
-            DexCode code =
+            DexWritableCode code =
                 method.rewriteCodeWithJumboStrings(
                     mapping,
                     application.dexItemFactory,
@@ -7,25 +7,62 @@ package com.android.tools.r8.dex;
 import com.android.tools.r8.ProgramResource;
 import com.android.tools.r8.ResourceException;
 import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.origin.PathOrigin;
 import com.android.tools.r8.utils.LebUtils;
 import com.android.tools.r8.utils.StreamUtils;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 /**
  * Base class for reading binary content.
  */
 public abstract class BinaryReader {
+
+  // Set the system property com.android.tools.r8.mappedinput to map file based inputs into memory
+  // instead of reading them into the heap. A mapping is only released when the buffer is garbage
+  // collected, and on some platforms, such as Windows, the input files stay locked until then.
+  static final boolean MAP_FILE_RESOURCES =
+      System.getProperty("com.android.tools.r8.mappedinput") != null;
+
   protected final Origin origin;
   protected final CompatByteBuffer buffer;
 
   protected BinaryReader(ProgramResource resource) throws ResourceException, IOException {
-    this(resource.getOrigin(), StreamUtils.StreamToByteArrayClose(resource.getByteStream()));
+    this(resource.getOrigin(), createBuffer(resource, MAP_FILE_RESOURCES));
   }
 
   protected BinaryReader(Origin origin, byte[] bytes) {
+    this(origin, CompatByteBuffer.wrap(bytes));
+  }
+
+  private BinaryReader(Origin origin, CompatByteBuffer buffer) {
     assert origin != null;
     this.origin = origin;
-    buffer = CompatByteBuffer.wrap(bytes);
+    this.buffer = buffer;
+  }
+
+  static CompatByteBuffer createBuffer(ProgramResource resource, boolean mapFileResources)
+      throws ResourceException, IOException {
+    // If enabled, the content of file resources is mapped read-only into memory instead of being
+    // copied into a byte array on the heap. The readers only access the content through the
+    // buffer, so the mapping is transparent to them.
+    if (mapFileResources
+        && resource instanceof ProgramResource.FileResource
+        && resource.getOrigin() instanceof PathOrigin) {
+      Path file = ((PathOrigin) resource.getOrigin()).getPath();
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+        long size = channel.size();
+        if (size <= Integer.MAX_VALUE) {
+          return new CompatByteBuffer(channel.map(MapMode.READ_ONLY, 0, size));
+        }
+      } catch (IOException e) {
+        throw new ResourceException(resource.getOrigin(), e);
+      }
+    }
+    return CompatByteBuffer.wrap(StreamUtils.StreamToByteArrayClose(resource.getByteStream()));
   }
 
   public Origin getOrigin() {
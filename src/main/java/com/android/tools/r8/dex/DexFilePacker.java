@@ -0,0 +1,405 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.dex;
+
+import com.android.tools.r8.errors.InternalCompilerError;
+import com.android.tools.r8.graph.AppView;
+import com.android.tools.r8.graph.DexCallSite;
+import com.android.tools.r8.graph.DexField;
+import com.android.tools.r8.graph.DexMethod;
+import com.android.tools.r8.graph.DexMethodHandle;
+import com.android.tools.r8.graph.DexProgramClass;
+import com.android.tools.r8.graph.DexProto;
+import com.android.tools.r8.graph.DexString;
+import com.android.tools.r8.graph.DexType;
+import com.android.tools.r8.graph.GraphLens;
+import com.android.tools.r8.graph.InitClassLens;
+import com.android.tools.r8.ir.conversion.LensCodeRewriterUtils;
+import com.android.tools.r8.logging.Log;
+import com.android.tools.r8.naming.NamingLens;
+import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.ThreadUtils;
+import com.google.common.collect.Sets;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Distributes classes over as few dex files as possible.
+ *
+ * <p>The methods and fields referenced by each class are collected up front in parallel, and are
+ * represented as arrays of ids. Each file records the ids of the methods and fields it contains in
+ * a bit set, such that the number of methods and fields that a class adds to a file can be computed
+ * without an {@link VirtualFile.IndexedItemTransaction}.
+ *
+ * <p>The classes are placed in the given order. A class is added to the file that received the
+ * previous class if it fits. Otherwise it is added to the file with room for it to which it adds
+ * the fewest methods and fields, and a new file is only created if there is no such file. The cost
+ * of adding the classes to the existing files is computed in parallel for chunks of classes. Since
+ * files only grow, these costs are upper bounds when the classes of the chunk are placed.
+ */
+class DexFilePacker {
+
+  private static final int CHUNK_SIZE = 1024;
+
+  private final List<VirtualFile> files;
+  private final Collection<DexProgramClass> classes;
+  private final int fileIndexOffset;
+  private final GraphLens graphLens;
+  private final InitClassLens initClassLens;
+  private final NamingLens namingLens;
+  private final AppView<?> appView;
+  private final InternalOptions options;
+  private final ExecutorService executorService;
+
+  private final Reference2IntMap<DexMethod> methodIds = new Reference2IntOpenHashMap<>();
+  private final Reference2IntMap<DexField> fieldIds = new Reference2IntOpenHashMap<>();
+
+  private final List<PackedFile> packedFiles = new ArrayList<>();
+
+  DexFilePacker(
+      List<VirtualFile> files,
+      Collection<DexProgramClass> classes,
+      int fileIndexOffset,
+      GraphLens graphLens,
+      InitClassLens initClassLens,
+      NamingLens namingLens,
+      AppView<?> appView,
+      ExecutorService executorService) {
+    this.files = files;
+    this.classes = classes;
+    this.fileIndexOffset = fileIndexOffset;
+    this.graphLens = graphLens;
+    this.initClassLens = initClassLens;
+    this.namingLens = namingLens;
+    this.appView = appView;
+    this.options = appView.options();
+    this.executorService = executorService;
+    methodIds.defaultReturnValue(-1);
+    fieldIds.defaultReturnValue(-1);
+  }
+
+  void run() throws ExecutionException {
+    List<ClassReferences> references = collectReferences();
+    for (VirtualFile file : files) {
+      packedFiles.add(new PackedFile(file));
+    }
+    PackedFile current = packedFiles.isEmpty() ? addFile() : packedFiles.get(0);
+    for (int start = 0; start < references.size(); start += CHUNK_SIZE) {
+      List<ClassReferences> chunk =
+          references.subList(start, Math.min(start + CHUNK_SIZE, references.size()));
+      int numberOfFiles = packedFiles.size();
+      ThreadUtils.processItemsInBatches(
+          chunk,
+          classReferences -> classReferences.methodIds.length + classReferences.fieldIds.length,
+          classReferences -> classReferences.computeCosts(packedFiles, numberOfFiles),
+          executorService);
+      for (ClassReferences classReferences : chunk) {
+        current = place(classReferences, current);
+        classReferences.costs = null;
+      }
+    }
+    for (PackedFile packedFile : packedFiles) {
+      packedFile.commit();
+    }
+    if (Log.ENABLED) {
+      Log.info(
+          DexFilePacker.class,
+          "Packed " + references.size() + " classes into " + packedFiles.size() + " dex files");
+    }
+  }
+
+  // Places the class and returns the file that should receive the next class.
+  private PackedFile place(ClassReferences classReferences, PackedFile current) {
+    if (fits(classReferences, current)) {
+      current.add(classReferences);
+      return current;
+    }
+    PackedFile best = null;
+    int bestCost = Integer.MAX_VALUE;
+    for (PackedFile candidate : packedFiles) {
+      int cost = classReferences.getCost(candidate);
+      if (candidate != current && cost < bestCost && fits(classReferences, candidate)) {
+        best = candidate;
+        bestCost = cost;
+      }
+    }
+    if (best != null) {
+      // Fill up an existing file without moving the package that is currently being placed.
+      best.add(classReferences);
+      return current;
+    }
+    PackedFile newFile = addFile();
+    if (!fits(classReferences, newFile)) {
+      throw new InternalCompilerError(
+          "Class " + classReferences.clazz.toString() + " does not fit into a single dex file.");
+    }
+    newFile.add(classReferences);
+    return newFile;
+  }
+
+  private boolean fits(ClassReferences classReferences, PackedFile file) {
+    if (options.testing.limitNumberOfClassesPerDex > 0
+        && file.numberOfClasses >= options.testing.limitNumberOfClassesPerDex) {
+      return false;
+    }
+    if (classReferences.hasCosts(file)
+        && file.numberOfMethods + classReferences.getMethodCost(file) <= VirtualFile.MAX_ENTRIES
+        && file.numberOfFields + classReferences.getFieldCost(file) <= VirtualFile.MAX_ENTRIES) {
+      return true;
+    }
+    return file.numberOfMethods + countMissing(classReferences.methodIds, file.methods)
+            <= VirtualFile.MAX_ENTRIES
+        && file.numberOfFields + countMissing(classReferences.fieldIds, file.fields)
+            <= VirtualFile.MAX_ENTRIES;
+  }
+
+  private PackedFile addFile() {
+    VirtualFile file =
+        new VirtualFile(
+            files.size() + fileIndexOffset, appView, graphLens, initClassLens, namingLens);
+    files.add(file);
+    PackedFile packedFile = new PackedFile(file);
+    packedFiles.add(packedFile);
+    return packedFile;
+  }
+
+  private List<ClassReferences> collectReferences() throws ExecutionException {
+    List<ClassReferences> references = new ArrayList<>(classes.size());
+    for (DexProgramClass clazz : classes) {
+      references.add(new ClassReferences(clazz));
+    }
+    LensCodeRewriterUtils rewriter = new LensCodeRewriterUtils(appView, true);
+    ThreadUtils.processItemsInBatches(
+        references,
+        classReferences -> classReferences.clazz.getMethodCollection().size(),
+        classReferences -> {
+          ReferenceCollector collector = new ReferenceCollector();
+          classReferences.clazz.collectIndexedItems(collector, graphLens, rewriter);
+          classReferences.collector = collector;
+        },
+        executorService);
+    // Assign the ids sequentially in class order, such that they are deterministic.
+    for (ClassReferences classReferences : references) {
+      classReferences.methodIds = assignIds(classReferences.collector.methods, methodIds);
+      classReferences.fieldIds = assignIds(classReferences.collector.fields, fieldIds);
+      classReferences.collector = null;
+    }
+    return references;
+  }
+
+  private static <T> int[] assignIds(Set<T> items, Reference2IntMap<T> ids) {
+    int[] result = new int[items.size()];
+    int i = 0;
+    for (T item : items) {
+      int id = ids.getInt(item);
+      if (id < 0) {
+        id = ids.size();
+        ids.put(item, id);
+      }
+      result[i++] = id;
+    }
+    return result;
+  }
+
+  private static int countMissing(int[] ids, BitSet set) {
+    int count = 0;
+    for (int id : ids) {
+      if (!set.get(id)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static int addMissing(int[] ids, BitSet set) {
+    int count = 0;
+    for (int id : ids) {
+      if (!set.get(id)) {
+        set.set(id);
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private class PackedFile {
+
+    private final VirtualFile file;
+    private final int index;
+    private final BitSet methods = new BitSet();
+    private final BitSet fields = new BitSet();
+    private final List<DexProgramClass> classes = new ArrayList<>();
+
+    private int numberOfMethods;
+    private int numberOfFields;
+    private int numberOfClasses;
+
+    PackedFile(VirtualFile file) {
+      this.file = file;
+      this.index = packedFiles.size();
+      this.numberOfMethods = file.getNumberOfMethods();
+      this.numberOfFields = file.getNumberOfFields();
+      this.numberOfClasses = file.getNumberOfClasses();
+      // Items that are not referenced by any of the classes to place do not need an id.
+      file.forEachMethod(
+          method -> {
+            int id = methodIds.getInt(method);
+            if (id >= 0) {
+              methods.set(id);
+            }
+          });
+      file.forEachField(
+          field -> {
+            int id = fieldIds.getInt(field);
+            if (id >= 0) {
+              fields.set(id);
+            }
+          });
+    }
+
+    void add(ClassReferences classReferences) {
+      classes.add(classReferences.clazz);
+      numberOfMethods += addMissing(classReferences.methodIds, methods);
+      numberOfFields += addMissing(classReferences.fieldIds, fields);
+      numberOfClasses++;
+    }
+
+    void commit() {
+      for (DexProgramClass clazz : classes) {
+        file.addClass(clazz);
+      }
+      file.commitTransaction();
+      assert file.getNumberOfMethods() == numberOfMethods;
+      assert file.getNumberOfFields() == numberOfFields;
+      assert !file.isFull();
+    }
+  }
+
+  private static class ClassReferences {
+
+    private final DexProgramClass clazz;
+    private ReferenceCollector collector;
+    private int[] methodIds;
+    private int[] fieldIds;
+
+    // The number of methods and fields that the class adds to each of the files that existed when
+    // the chunk of the class was processed, stored as pairs.
+    private int[] costs;
+
+    ClassReferences(DexProgramClass clazz) {
+      this.clazz = clazz;
+    }
+
+    void computeCosts(List<PackedFile> files, int numberOfFiles) {
+      costs = new int[2 * numberOfFiles];
+      for (int i = 0; i < numberOfFiles; i++) {
+        PackedFile file = files.get(i);
+        costs[2 * i] = countMissing(methodIds, file.methods);
+        costs[2 * i + 1] = countMissing(fieldIds, file.fields);
+      }
+    }
+
+    // Returns true if upper bounds on the number of methods and fields that the class adds to the
+    // file are available, i.e., the file existed when the costs were computed.
+    boolean hasCosts(PackedFile file) {
+      return costs != null && 2 * file.index < costs.length;
+    }
+
+    int getMethodCost(PackedFile file) {
+      assert hasCosts(file);
+      return costs[2 * file.index];
+    }
+
+    int getFieldCost(PackedFile file) {
+      assert hasCosts(file);
+      return costs[2 * file.index + 1];
+    }
+
+    int getCost(PackedFile file) {
+      if (hasCosts(file)) {
+        return getMethodCost(file) + getFieldCost(file);
+      }
+      return methodIds.length + fieldIds.length;
+    }
+  }
+
+  // Records the methods and fields referenced by a class.
+  private class ReferenceCollector implements IndexedItemCollection {
+
+    private final Set<DexMethod> methods = Sets.newIdentityHashSet();
+    private final Set<DexField> fields = Sets.newIdentityHashSet();
+
+    @Override
+    public boolean addClass(DexProgramClass dexProgramClass) {
+      return true;
+    }
+
+    @Override
+    public boolean addField(DexField field) {
+      return fields.add(field);
+    }
+
+    @Override
+    public boolean addMethod(DexMethod method) {
+      return methods.add(method);
+    }
+
+    @Override
+    public boolean addString(DexString string) {
+      return true;
+    }
+
+    @Override
+    public boolean addProto(DexProto proto) {
+      return true;
+    }
+
+    @Override
+    public boolean addType(DexType type) {
+      return true;
+    }
+
+    @Override
+    public boolean addCallSite(DexCallSite callSite) {
+      return true;
+    }
+
+    @Override
+    public boolean addMethodHandle(DexMethodHandle methodHandle) {
+      return true;
+    }
+
+    @Override
+    public GraphLens getGraphLens() {
+      return graphLens;
+    }
+
+    @Override
+    public InitClassLens getInitClassLens() {
+      return initClassLens;
+    }
+
+    @Override
+    public DexString getRenamedDescriptor(DexType type) {
+      return namingLens.lookupDescriptor(type);
+    }
+
+    @Override
+    public DexString getRenamedName(DexMethod method) {
+      return namingLens.lookupName(method);
+    }
+
+    @Override
+    public DexString getRenamedName(DexField field) {
+      return namingLens.lookupName(field);
+    }
+  }
+}
@@ -15,6 +15,7 @@ import com.android.tools.r8.errors.CompilationError;
 import com.android.tools.r8.graph.ApplicationReaderMap;
 import com.android.tools.r8.graph.ClassAccessFlags;
 import com.android.tools.r8.graph.ClassKind;
+import com.android.tools.r8.graph.Code;
 import com.android.tools.r8.graph.DexAnnotation;
 import com.android.tools.r8.graph.DexAnnotationElement;
 import com.android.tools.r8.graph.DexAnnotationSet;
@@ -57,6 +58,7 @@ import com.android.tools.r8.graph.GenericSignature.ClassSignature;
 import com.android.tools.r8.graph.GenericSignature.FieldTypeSignature;
 import com.android.tools.r8.graph.GenericSignature.MethodTypeSignature;
 import com.android.tools.r8.graph.InnerClassAttribute;
+import com.android.tools.r8.graph.LazyDexCode;
 import com.android.tools.r8.graph.MethodAccessFlags;
 import com.android.tools.r8.graph.OffsetToObjectMapping;
 import com.android.tools.r8.graph.ParameterAnnotationsList;
@@ -121,7 +123,7 @@ public class DexParser<T extends DexClass> {
   private OffsetToObjectMapping indexedItems = new OffsetToObjectMapping();
 
   // Mapping from offset to code item;
-  private Int2ReferenceMap<DexCode> codes = new Int2ReferenceOpenHashMap<>();
+  private Int2ReferenceMap<Code> codes = new Int2ReferenceOpenHashMap<>();
 
   // Mapping from offset to dex item;
   private Int2ReferenceMap<Object> offsetMap = new Int2ReferenceOpenHashMap<>();
@@ -163,7 +165,7 @@ public class DexParser<T extends DexClass> {
       int currentPos = dexReader.position();
       dexReader.position(offset);
       dexReader.align(4);
-      DexCode code = parseCodeItem();
+      Code code = parseCodeItem();
       codes.put(offset, code);  // Update the file local offset to code mapping.
       dexReader.position(currentPos);
     }
@@ -679,7 +681,7 @@ public class DexParser<T extends DexClass> {
       methodIndex += dexReader.getUleb128();
       MethodAccessFlags accessFlags = MethodAccessFlags.fromDexAccessFlags(dexReader.getUleb128());
       int codeOff = dexReader.getUleb128();
-      DexCode code = null;
+      Code code = null;
       if (!skipCodes) {
         ensureCodesInited(codeOff);
         assert codeOff == 0 || codes.get(codeOff) != null;
@@ -898,7 +900,7 @@ public class DexParser<T extends DexClass> {
     return result;
   }
 
-  private DexCode parseCodeItem() {
+  private Code parseCodeItem() {
     int registerSize = dexReader.getUshort();
     int insSize = dexReader.getUshort();
     int outsSize = dexReader.getUshort();
@@ -961,6 +963,11 @@ public class DexParser<T extends DexClass> {
     int saved = dexReader.position();
     DexDebugInfo debugInfo = debugInfoAt(debugInfoOff);
     dexReader.position(saved);
+    if (options.enableLazyDexCode && insnsSize != 0) {
+      // The instructions are decoded when the code is first used.
+      return new LazyDexCode(
+          registerSize, insSize, outsSize, code, tries, handlers, debugInfo, indexedItems, origin);
+    }
     InstructionFactory factory = new InstructionFactory();
     Instruction[] instructions =
         factory.readSequenceFrom(ShortBuffer.wrap(code), 0, code.length, indexedItems);
@@ -34,13 +34,16 @@ import com.android.tools.r8.utils.FileUtils;
 import com.android.tools.r8.utils.InternalOptions;
 import com.android.tools.r8.utils.Reporter;
 import com.android.tools.r8.utils.SetUtils;
+import com.android.tools.r8.utils.ThreadUtils;
 import com.android.tools.r8.utils.Timing;
+import com.android.tools.r8.utils.Timing.TimingMerger;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Sets;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
@@ -54,6 +57,8 @@ import java.util.TreeSet;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
@@ -279,6 +284,14 @@ public class VirtualFile {
     transaction.commit();
   }
 
+  void forEachMethod(Consumer<DexMethod> consumer) {
+    indexedItems.methods.forEach(consumer);
+  }
+
+  void forEachField(Consumer<DexField> consumer) {
+    indexedItems.fields.forEach(consumer);
+  }
+
   public boolean containsString(DexString string) {
     return indexedItems.strings.contains(string);
   }
@@ -479,48 +492,112 @@ public class VirtualFile {
       return featureSplitClasses;
     }
 
-    protected void addFeatureSplitFiles(Map<FeatureSplit, Set<DexProgramClass>> featureSplitClasses)
+    /**
+     * Starts distributing the classes of each feature split into files of their own. The feature
+     * splits are independent outputs, so they are distributed concurrently with each other and with
+     * the base. The result must be passed to {@link #addFeatureSplitFiles} once the base has been
+     * distributed.
+     */
+    protected List<Future<FeatureSplitFiles>> distributeFeatureSplitFiles(
+        Map<FeatureSplit, Set<DexProgramClass>> featureSplitClasses,
+        FillStrategy fillStrategy,
+        ExecutorService executorService) {
+      if (featureSplitClasses.isEmpty()) {
+        return Collections.emptyList();
+      }
+      assert options.featureSplitConfiguration != null;
+      List<Future<FeatureSplitFiles>> futures = new ArrayList<>(featureSplitClasses.size());
+      // Add the feature splits in the order of the configuration to ensure a deterministic output.
+      List<FeatureSplit> featureSplits = options.featureSplitConfiguration.getFeatureSplits();
+      for (int i = 0; i < featureSplits.size(); i++) {
+        FeatureSplit featureSplit = featureSplits.get(i);
+        Set<DexProgramClass> featureClasses = featureSplitClasses.get(featureSplit);
+        if (featureClasses != null) {
+          String title = "Feature split " + (i + 1);
+          futures.add(
+              ThreadUtils.processAsynchronously(
+                  () -> distributeFeatureSplit(featureSplit, featureClasses, fillStrategy, title),
+                  executorService));
+        }
+      }
+      assert futures.size() == featureSplitClasses.size();
+      return futures;
+    }
+
+    private FeatureSplitFiles distributeFeatureSplit(
+        FeatureSplit featureSplit,
+        Set<DexProgramClass> featureClasses,
+        FillStrategy fillStrategy,
+        String title)
         throws IOException {
-      addFeatureSplitFiles(featureSplitClasses, FillStrategy.FILL_MAX);
+      Timing timing = Timing.create("Distribute feature split", options);
+      timing.begin(title);
+      // Add a new virtual file, start from index 0 again
+      VirtualFile featureFile =
+          new VirtualFile(
+              0,
+              writer.appView,
+              writer.graphLens,
+              writer.initClassLens,
+              writer.namingLens,
+              featureSplit);
+      List<VirtualFile> featureFiles = new ArrayList<>();
+      featureFiles.add(featureFile);
+      addMarkers(featureFile);
+      new PackageSplitPopulator(
+              featureFiles,
+              appView,
+              sortClassesByPackage(featureClasses, originalNames),
+              originalNames,
+              fillStrategy,
+              0,
+              writer.graphLens,
+              writer.initClassLens,
+              writer.namingLens,
+              options)
+          .call();
+      timing.end();
+      timing.end();
+      return new FeatureSplitFiles(featureFiles, timing);
     }
 
+    /**
+     * Waits for the distribution of the feature splits and adds their files after the files of the
+     * base.
+     */
     protected void addFeatureSplitFiles(
-        Map<FeatureSplit, Set<DexProgramClass>> featureSplitClasses, FillStrategy fillStrategy)
-        throws IOException {
-      if (featureSplitClasses.isEmpty()) {
+        List<Future<FeatureSplitFiles>> futures, ExecutorService executorService)
+        throws ExecutionException {
+      if (futures.isEmpty()) {
         return;
       }
-      List<VirtualFile> filesForDistribution;
-      for (Map.Entry<FeatureSplit, Set<DexProgramClass>> featureSplitSetEntry :
-          featureSplitClasses.entrySet()) {
-        // Add a new virtual file, start from index 0 again
-        VirtualFile featureFile =
-            new VirtualFile(
-                0,
-                writer.appView,
-                writer.graphLens,
-                writer.initClassLens,
-                writer.namingLens,
-                featureSplitSetEntry.getKey());
-        virtualFiles.add(featureFile);
-        addMarkers(featureFile);
-        Set<DexProgramClass> featureClasses =
-            sortClassesByPackage(featureSplitSetEntry.getValue(), originalNames);
-        filesForDistribution = virtualFiles.subList(virtualFiles.size() - 1, virtualFiles.size());
-
-        new PackageSplitPopulator(
-                filesForDistribution,
-                appView,
-                featureClasses,
-                originalNames,
-                fillStrategy,
-                0,
-                writer.graphLens,
-                writer.initClassLens,
-                writer.namingLens,
-                options)
-            .call();
+      Collection<FeatureSplitFiles> featureSplitFiles =
+          ThreadUtils.awaitFuturesWithResults(futures);
+      List<Timing> timings = new ArrayList<>(featureSplitFiles.size());
+      for (FeatureSplitFiles files : featureSplitFiles) {
+        virtualFiles.addAll(files.files);
+        timings.add(files.timing);
       }
+      TimingMerger merger =
+          appView
+              .appInfo()
+              .app()
+              .timing
+              .beginMerger(
+                  "Distribute feature splits", ThreadUtils.getNumberOfThreads(executorService));
+      merger.add(timings);
+      merger.end();
+    }
+  }
+
+  private static class FeatureSplitFiles {
+
+    private final List<VirtualFile> files;
+    private final Timing timing;
+
+    private FeatureSplitFiles(List<VirtualFile> files, Timing timing) {
+      this.files = files;
+      this.timing = timing;
     }
   }
 
@@ -536,7 +613,7 @@ public class VirtualFile {
     }
 
     @Override
-    public List<VirtualFile> run() throws IOException {
+    public List<VirtualFile> run() throws ExecutionException, IOException {
       int totalClassNumber = classes.size();
       // First fill required classes into the main dex file.
       fillForMainDexList(classes);
@@ -561,7 +638,28 @@ public class VirtualFile {
 
       Map<FeatureSplit, Set<DexProgramClass>> featureSplitClasses =
           removeFeatureSplitClassesGetMapping();
+      List<Future<FeatureSplitFiles>> featureSplitFiles =
+          distributeFeatureSplitFiles(featureSplitClasses, fillStrategy, executorService);
+      try {
+        distributeBase(filesForDistribution, fileIndexOffset, multidexLegacy);
+      } catch (Throwable e) {
+        // Wait for the feature splits to finish without masking the failure of the base.
+        try {
+          ThreadUtils.awaitFutures(featureSplitFiles);
+        } catch (Throwable suppressed) {
+          e.addSuppressed(suppressed);
+        }
+        throw e;
+      }
+      addFeatureSplitFiles(featureSplitFiles, executorService);
+
+      assert totalClassNumber == virtualFiles.stream().mapToInt(dex -> dex.classes().size()).sum();
+      return virtualFiles;
+    }
 
+    private void distributeBase(
+        List<VirtualFile> filesForDistribution, int fileIndexOffset, boolean multidexLegacy)
+        throws ExecutionException, IOException {
       if (multidexLegacy && options.enableInheritanceClassInDexDistributor) {
         new InheritanceClassInDexDistributor(
                 mainDexFile,
@@ -574,6 +672,20 @@ public class VirtualFile {
                 writer.appView,
                 executorService)
             .distribute();
+      } else if (options.enableDexFilePacking) {
+        // Pack the remaining classes in package order, such that classes from the same package are
+        // placed together when they fit.
+        classes = sortClassesByPackage(classes, originalNames);
+        new DexFilePacker(
+                filesForDistribution,
+                classes,
+                fileIndexOffset,
+                writer.graphLens,
+                writer.initClassLens,
+                writer.namingLens,
+                writer.appView,
+                executorService)
+            .run();
       } else {
         // Sort the remaining classes based on the original names.
         // This with make classes from the same package be adjacent.
@@ -591,34 +703,42 @@ public class VirtualFile {
                 options)
             .call();
       }
-      addFeatureSplitFiles(featureSplitClasses, fillStrategy);
-
-      assert totalClassNumber == virtualFiles.stream().mapToInt(dex -> dex.classes().size()).sum();
-      return virtualFiles;
     }
   }
 
   public static class MonoDexDistributor extends DistributorBase {
-    MonoDexDistributor(ApplicationWriter writer, InternalOptions options) {
+    private final ExecutorService executorService;
+
+    MonoDexDistributor(
+        ApplicationWriter writer, InternalOptions options, ExecutorService executorService) {
       super(writer, options);
+      this.executorService = executorService;
     }
 
     @Override
     public List<VirtualFile> run() throws ExecutionException, IOException {
       Map<FeatureSplit, Set<DexProgramClass>> featureSplitClasses =
           removeFeatureSplitClassesGetMapping();
-      // Add all classes to the main dex file.
-      for (DexProgramClass programClass : classes) {
-        mainDexFile.addClass(programClass);
-      }
-      mainDexFile.commitTransaction();
-      mainDexFile.throwIfFull(false, options.reporter);
-      if (options.featureSplitConfiguration != null) {
-        if (!featureSplitClasses.isEmpty()) {
-          // TODO(141334414): Figure out if we allow multidex in features even when mono-dexing
-          addFeatureSplitFiles(featureSplitClasses);
+      // TODO(141334414): Figure out if we allow multidex in features even when mono-dexing
+      List<Future<FeatureSplitFiles>> featureSplitFiles =
+          distributeFeatureSplitFiles(featureSplitClasses, FillStrategy.FILL_MAX, executorService);
+      try {
+        // Add all classes to the main dex file.
+        for (DexProgramClass programClass : classes) {
+          mainDexFile.addClass(programClass);
+        }
+        mainDexFile.commitTransaction();
+        mainDexFile.throwIfFull(false, options.reporter);
+      } catch (Throwable e) {
+        // Wait for the feature splits to finish without masking the failure of the base.
+        try {
+          ThreadUtils.awaitFutures(featureSplitFiles);
+        } catch (Throwable suppressed) {
+          e.addSuppressed(suppressed);
         }
+        throw e;
       }
+      addFeatureSplitFiles(featureSplitFiles, executorService);
       return virtualFiles;
     }
   }
@@ -22,6 +22,7 @@ import com.android.tools.r8.ir.analysis.proto.GeneratedMessageLiteBuilderShrinke
 import com.android.tools.r8.ir.analysis.proto.GeneratedMessageLiteShrinker;
 import com.android.tools.r8.ir.analysis.proto.ProtoShrinker;
 import com.android.tools.r8.ir.analysis.value.AbstractValueFactory;
+import com.android.tools.r8.ir.conversion.IRBuilderStatePool;
 import com.android.tools.r8.ir.desugar.PrefixRewritingMapper;
 import com.android.tools.r8.ir.optimize.CallSiteOptimizationInfoPropagator;
 import com.android.tools.r8.ir.optimize.enums.EnumDataMap;
@@ -45,7 +46,10 @@ import com.android.tools.r8.utils.Reporter;
 import com.android.tools.r8.utils.ThrowingConsumer;
 import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableSet;
+import java.util.ArrayList;
 import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Function;
@@ -78,6 +82,7 @@ public class AppView<T extends AppInfo> implements DexDefinitionSupplier, Librar
       new InstanceFieldInitializationInfoFactory();
   private final SimpleInliningConstraintFactory simpleInliningConstraintFactory =
       new SimpleInliningConstraintFactory();
+  private final IRBuilderStatePool irBuilderStatePool = new IRBuilderStatePool();
 
   // Desugaring.
   public final PrefixRewritingMapper rewritePrefix;
@@ -204,6 +209,10 @@ public class AppView<T extends AppInfo> implements DexDefinitionSupplier, Librar
     return simpleInliningConstraintFactory;
   }
 
+  public IRBuilderStatePool irBuilderStatePool() {
+    return irBuilderStatePool;
+  }
+
   public T appInfo() {
     assert !appInfo.hasClassHierarchy() || enableWholeProgramOptimizations();
     return appInfo;
@@ -236,6 +245,11 @@ public class AppView<T extends AppInfo> implements DexDefinitionSupplier, Librar
     unsetAppInfoForDesugaring();
     if (appInfo != previous) {
       previous.markObsolete();
+      // The memoized method lookups of the graph lens may depend on the definitions in the
+      // previous app, for example, when the invoke type is mapped using the holder of the target.
+      if (graphLens.isNonIdentityLens()) {
+        graphLens.asNonIdentityLens().clearLookupCaches();
+      }
     }
     if (appInfo.hasLiveness()) {
       keepInfo = appInfo.withLiveness().getKeepInfo();
@@ -432,6 +446,11 @@ public class AppView<T extends AppInfo> implements DexDefinitionSupplier, Librar
   /** @return true if the graph lens changed, otherwise false. */
   public boolean setGraphLens(GraphLens graphLens) {
     if (graphLens != this.graphLens) {
+      // The lookups on the new lens are memoized by the new lens itself, so the memoized lookups of
+      // the previous lens are no longer needed.
+      if (this.graphLens.isNonIdentityLens()) {
+        this.graphLens.asNonIdentityLens().clearLookupCaches();
+      }
       this.graphLens = graphLens;
       return true;
     }
@@ -513,6 +532,26 @@ public class AppView<T extends AppInfo> implements DexDefinitionSupplier, Librar
     return getKeepInfo().getMethodInfo(method);
   }
 
+  /**
+   * Returns the main components of this view by name, for estimating their retained sizes. Objects
+   * reachable from several components are attributed to the first, so the canonicalized dex items
+   * are attributed to the item factory.
+   */
+  public Map<String, Object> getComponentsForMemoryReport() {
+    List<Object> optimizationInfos = new ArrayList<>();
+    for (DexProgramClass clazz : appInfo().classes()) {
+      clazz.forEachField(field -> optimizationInfos.add(field.getOptimizationInfo()));
+      clazz.forEachMethod(method -> optimizationInfos.add(method.getOptimizationInfo()));
+    }
+    Map<String, Object> components = new LinkedHashMap<>();
+    components.put("DexItemFactory", dexItemFactory());
+    components.put("GraphLens", graphLens());
+    components.put("KeepInfo", keepInfo);
+    components.put("OptimizationInfo", optimizationInfos);
+    components.put("AppInfo", appInfo());
+    return components;
+  }
+
   public boolean hasProguardCompatibilityActions() {
     return proguardCompatibilityActions != null;
   }
@@ -748,6 +787,9 @@ public class AppView<T extends AppInfo> implements DexDefinitionSupplier, Librar
       newMemberRebindingLens = GraphLens.getIdentityLens();
     }
 
+    // The memoized lookups of the lens are not valid while the parent of the first unapplied lens
+    // is replaced.
+    lens.clearLookupCaches();
     firstUnappliedLens.withAlternativeParentLens(
         newMemberRebindingLens,
         () -> {
@@ -768,6 +810,7 @@ public class AppView<T extends AppInfo> implements DexDefinitionSupplier, Librar
             appView.setMainDexRootSet(appView.getMainDexRootSet().rewrittenWithLens(lens));
           }
         });
+    lens.clearLookupCaches();
   }
 
   public void setAlreadyLibraryDesugared(Set<DexType> alreadyLibraryDesugared) {
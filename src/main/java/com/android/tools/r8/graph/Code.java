@@ -56,6 +56,10 @@ public abstract class Code extends CachedHashValueDexItem {
     return false;
   }
 
+  public boolean isLazyDexCode() {
+    return false;
+  }
+
   public boolean isHorizontalClassMergingCode() {
     return false;
   }
@@ -89,6 +93,14 @@ public abstract class Code extends CachedHashValueDexItem {
     throw new Unreachable(getClass().getCanonicalName() + ".asDexCode()");
   }
 
+  public LazyDexCode asLazyDexCode() {
+    throw new Unreachable(getClass().getCanonicalName() + ".asLazyDexCode()");
+  }
+
+  public DexWritableCode asDexWritableCode() {
+    throw new Unreachable(getClass().getCanonicalName() + ".asDexWritableCode()");
+  }
+
   public OutlineCode asOutlineCode() {
     throw new Unreachable(getClass().getCanonicalName() + ".asOutlineCode()");
   }
@@ -14,6 +14,7 @@ import com.android.tools.r8.graph.GenericSignature.ClassTypeSignature;
 import com.android.tools.r8.graph.GenericSignature.FieldTypeSignature;
 import com.android.tools.r8.graph.GenericSignature.FormalTypeParameter;
 import com.android.tools.r8.kotlin.KotlinClassLevelInfo;
+import com.android.tools.r8.naming.NamingLens;
 import com.android.tools.r8.origin.Origin;
 import com.android.tools.r8.references.ClassReference;
 import com.android.tools.r8.references.Reference;
@@ -81,6 +82,9 @@ public abstract class DexClass extends DexDefinition implements ClassDefinition
   /** Generic signature information if the attribute is present in the input */
   protected ClassSignature classSignature;
 
+  /** Generic signature attribute that {@link #classSignature} was parsed from, if unchanged. */
+  private OriginalGenericSignature<ClassSignature> originalClassSignature;
+
   public DexClass(
       DexString sourceFile,
       DexTypeList interfaces,
@@ -898,7 +902,7 @@ public abstract class DexClass extends DexDefinition implements ClassDefinition
 
   public void forEachImmediateSupertype(BiConsumer<DexType, ClassTypeSignature> consumer) {
     if (superType != null) {
-      consumer.accept(superType, classSignature.superClassSignature);
+      consumer.accept(superType, getClassSignature().superClassSignature);
     }
     forEachImmediateInterface(consumer);
   }
@@ -1032,6 +1036,7 @@ public abstract class DexClass extends DexDefinition implements ClassDefinition
 
   public void clearClassSignature() {
     classSignature = ClassSignature.noSignature();
+    originalClassSignature = null;
   }
 
   public void removeInnerClasses(Predicate<InnerClassAttribute> predicate) {
@@ -1063,10 +1068,34 @@ public abstract class DexClass extends DexDefinition implements ClassDefinition
     return classSignature;
   }
 
+  /**
+   * Returns the class signature as it should be written to the output, or null if there is no
+   * signature.
+   */
+  public String getClassSignatureString(NamingLens namingLens, Predicate<DexType> isTypeMissing) {
+    if (originalClassSignature != null) {
+      String originalString =
+          originalClassSignature.getOriginalStringIfUnchanged(classSignature, namingLens);
+      if (originalString != null) {
+        return originalString;
+      }
+    }
+    return classSignature.toRenamedString(namingLens, isTypeMissing);
+  }
+
   public void setClassSignature(ClassSignature classSignature) {
+    if (originalClassSignature != null && !originalClassSignature.isParsedAs(classSignature)) {
+      originalClassSignature = null;
+    }
     this.classSignature = classSignature;
   }
 
+  void setOriginalClassSignature(OriginalGenericSignature<ClassSignature> originalClassSignature) {
+    this.classSignature = originalClassSignature.get();
+    this.originalClassSignature =
+        originalClassSignature.get().hasSignature() ? originalClassSignature : null;
+  }
+
   public boolean isLocalClass() {
     InnerClassAttribute innerClass = getInnerClassAttributeForThisClass();
     // The corresponding enclosing-method attribute might be not available, e.g., CF version 50.
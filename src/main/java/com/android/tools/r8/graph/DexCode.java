@@ -6,6 +6,7 @@ package com.android.tools.r8.graph;
 import com.android.tools.r8.code.Instruction;
 import com.android.tools.r8.code.ReturnVoid;
 import com.android.tools.r8.code.SwitchPayload;
+import com.android.tools.r8.dex.CodeToKeep;
 import com.android.tools.r8.dex.IndexedItemCollection;
 import com.android.tools.r8.dex.MixedSectionCollection;
 import com.android.tools.r8.errors.Unreachable;
@@ -28,6 +29,7 @@ import com.android.tools.r8.utils.structural.StructuralMapping;
 import com.android.tools.r8.utils.structural.StructuralSpecification;
 import com.google.common.base.Strings;
 import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import java.nio.ShortBuffer;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -37,7 +39,7 @@ import java.util.Map;
 import java.util.Set;
 
 // DexCode corresponds to code item in dalvik/dex-format.html
-public class DexCode extends Code implements StructuralItem<DexCode> {
+public class DexCode extends Code implements DexWritableCode, StructuralItem<DexCode> {
 
   public static final String FAKE_THIS_PREFIX = "_";
   public static final String FAKE_THIS_SUFFIX = "this";
@@ -131,6 +133,41 @@ public class DexCode extends Code implements StructuralItem<DexCode> {
     return this;
   }
 
+  @Override
+  public DexWritableCode asDexWritableCode() {
+    return this;
+  }
+
+  @Override
+  public int getRegisterSize() {
+    return registerSize;
+  }
+
+  @Override
+  public int getIncomingRegisterSize() {
+    return incomingRegisterSize;
+  }
+
+  @Override
+  public int getOutgoingRegisterSize() {
+    return outgoingRegisterSize;
+  }
+
+  @Override
+  public Try[] getTries() {
+    return tries;
+  }
+
+  @Override
+  public TryHandler[] getHandlers() {
+    return handlers;
+  }
+
+  @Override
+  public DexString getHighestSortingString() {
+    return highestSortingString;
+  }
+
   public DexDebugInfo getDebugInfo() {
     return debugInfo;
   }
@@ -450,6 +487,17 @@ public class DexCode extends Code implements StructuralItem<DexCode> {
     return builder.toString();
   }
 
+  @Override
+  public void setCallSiteContexts(ProgramMethod method) {
+    for (Instruction instruction : instructions) {
+      DexCallSite callSite = instruction.getCallSite();
+      if (callSite != null) {
+        callSite.setContext(method.getReference(), instruction.getOffset());
+      }
+    }
+  }
+
+  @Override
   public void collectIndexedItems(
       IndexedItemCollection indexedItems,
       ProgramMethod context,
@@ -473,6 +521,7 @@ public class DexCode extends Code implements StructuralItem<DexCode> {
       }
   }
 
+  @Override
   public DexDebugInfoForWriting getDebugInfoForWriting() {
     if (debugInfo == null) {
       return null;
@@ -496,7 +545,7 @@ public class DexCode extends Code implements StructuralItem<DexCode> {
   }
 
   @Override
-  void collectMixedSectionItems(MixedSectionCollection mixedItems) {
+  public void collectMixedSectionItems(MixedSectionCollection mixedItems) {
     if (mixedItems.add(this)) {
       if (debugInfo != null) {
         getDebugInfoForWriting().collectMixedSectionItems(mixedItems);
@@ -504,11 +553,37 @@ public class DexCode extends Code implements StructuralItem<DexCode> {
     }
   }
 
+  @Override
   public int codeSizeInBytes() {
     Instruction last = instructions[instructions.length - 1];
     return last.getOffset() + last.getSize();
   }
 
+  @Override
+  public void writeInstructions(
+      ShortBuffer dest,
+      ProgramMethod context,
+      ObjectToOffsetMapping mapping,
+      CodeToKeep desugaredLibraryCodeToKeep) {
+    for (Instruction insn : instructions) {
+      DexMethod method = insn.getMethod();
+      DexField field = insn.getField();
+      if (field != null) {
+        assert method == null;
+        desugaredLibraryCodeToKeep.recordField(field);
+      } else if (method != null) {
+        desugaredLibraryCodeToKeep.recordMethod(method);
+      } else if (insn.isConstClass()) {
+        desugaredLibraryCodeToKeep.recordClass(insn.asConstClass().getType());
+      } else if (insn.isInstanceOf()) {
+        desugaredLibraryCodeToKeep.recordClass(insn.asInstanceOf().getType());
+      } else if (insn.isCheckCast()) {
+        desugaredLibraryCodeToKeep.recordClass(insn.asCheckCast().getType());
+      }
+      insn.write(dest, context, mapping.getGraphLens(), mapping, mapping.getLensCodeRewriter());
+    }
+  }
+
   public static class Try extends DexItem implements StructuralItem<Try> {
 
     public static final int NO_INDEX = -1;
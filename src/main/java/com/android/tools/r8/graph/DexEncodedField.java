@@ -20,6 +20,7 @@ import com.android.tools.r8.ir.optimize.info.FieldOptimizationInfo;
 import com.android.tools.r8.ir.optimize.info.MutableFieldOptimizationInfo;
 import com.android.tools.r8.ir.optimize.info.OptimizationFeedbackSimple;
 import com.android.tools.r8.kotlin.KotlinFieldLevelInfo;
+import com.android.tools.r8.naming.NamingLens;
 import com.android.tools.r8.shaking.AppInfoWithLiveness;
 import com.android.tools.r8.utils.AndroidApiLevel;
 import com.android.tools.r8.utils.ConsumerUtils;
@@ -28,6 +29,7 @@ import com.android.tools.r8.utils.structural.StructuralMapping;
 import com.android.tools.r8.utils.structural.StructuralSpecification;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Predicate;
 
 public class DexEncodedField extends DexEncodedMember<DexEncodedField, DexField>
     implements StructuralItem<DexEncodedField> {
@@ -39,6 +41,8 @@ public class DexEncodedField extends DexEncodedMember<DexEncodedField, DexField>
   private final boolean deprecated;
   /** Generic signature information if the attribute is present in the input */
   private FieldTypeSignature genericSignature;
+  /** Generic signature attribute that {@link #genericSignature} was parsed from, if unchanged. */
+  private OriginalGenericSignature<FieldTypeSignature> originalGenericSignature;
 
   private FieldOptimizationInfo optimizationInfo = DefaultFieldOptimizationInfo.getInstance();
   private KotlinFieldLevelInfo kotlinMemberInfo = getNoKotlinInfo();
@@ -330,14 +334,35 @@ public class DexEncodedField extends DexEncodedMember<DexEncodedField, DexField>
     return genericSignature;
   }
 
+  /**
+   * Returns the generic signature as it should be written to the output, or null if there is no
+   * signature.
+   */
+  public String getGenericSignatureString(
+      NamingLens namingLens, Predicate<DexType> isTypeMissing) {
+    if (originalGenericSignature != null) {
+      String originalString =
+          originalGenericSignature.getOriginalStringIfUnchanged(genericSignature, namingLens);
+      if (originalString != null) {
+        return originalString;
+      }
+    }
+    return genericSignature.toRenamedString(namingLens, isTypeMissing);
+  }
+
   public void setGenericSignature(FieldTypeSignature genericSignature) {
     assert genericSignature != null;
+    if (originalGenericSignature != null
+        && !originalGenericSignature.isParsedAs(genericSignature)) {
+      originalGenericSignature = null;
+    }
     this.genericSignature = genericSignature;
   }
 
   @Override
   public void clearGenericSignature() {
     this.genericSignature = FieldTypeSignature.noSignature();
+    this.originalGenericSignature = null;
   }
 
   public static Builder builder() {
@@ -358,6 +383,7 @@ public class DexEncodedField extends DexEncodedMember<DexEncodedField, DexField>
     private DexAnnotationSet annotations = DexAnnotationSet.empty();
     private FieldAccessFlags accessFlags;
     private FieldTypeSignature genericSignature = FieldTypeSignature.noSignature();
+    private OriginalGenericSignature<FieldTypeSignature> originalGenericSignature;
     private DexValue staticValue = null;
     private AndroidApiLevel apiLevel = AndroidApiLevel.UNKNOWN;
     private FieldOptimizationInfo optimizationInfo = DefaultFieldOptimizationInfo.getInstance();
@@ -378,7 +404,8 @@ public class DexEncodedField extends DexEncodedMember<DexEncodedField, DexField>
       field = from.getReference();
       accessFlags = from.accessFlags.copy();
       // TODO(b/169923358): Consider removing the fieldSignature here.
-      genericSignature = from.getGenericSignature();
+      genericSignature = from.genericSignature;
+      originalGenericSignature = from.originalGenericSignature;
       annotations = from.annotations();
       staticValue = from.staticValue;
       apiLevel = from.getApiLevel();
@@ -439,6 +466,16 @@ public class DexEncodedField extends DexEncodedMember<DexEncodedField, DexField>
 
     public Builder setGenericSignature(FieldTypeSignature genericSignature) {
       this.genericSignature = genericSignature;
+      this.originalGenericSignature = null;
+      return this;
+    }
+
+    Builder setOriginalGenericSignature(OriginalGenericSignature<FieldTypeSignature> signature) {
+      if (signature == null) {
+        return setGenericSignature(FieldTypeSignature.noSignature());
+      }
+      this.genericSignature = signature.get();
+      this.originalGenericSignature = signature.get().hasSignature() ? signature : null;
       return this;
     }
 
@@ -473,6 +510,7 @@ public class DexEncodedField extends DexEncodedMember<DexEncodedField, DexField>
               apiLevel,
               deprecated,
               d8R8Synthesized);
+      dexEncodedField.originalGenericSignature = originalGenericSignature;
       dexEncodedField.optimizationInfo = optimizationInfo;
       buildConsumer.accept(dexEncodedField);
       return dexEncodedField;
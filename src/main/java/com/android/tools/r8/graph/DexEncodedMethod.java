@@ -98,6 +98,7 @@ import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.IntPredicate;
+import java.util.function.Predicate;
 import org.objectweb.asm.Opcodes;
 
 public class DexEncodedMethod extends DexEncodedMember<DexEncodedMethod, DexMethod>
@@ -176,6 +177,8 @@ public class DexEncodedMethod extends DexEncodedMember<DexEncodedMethod, DexMeth
   private KotlinMethodLevelInfo kotlinMemberInfo = getNoKotlinInfo();
   /** Generic signature information if the attribute is present in the input */
   private MethodTypeSignature genericSignature;
+  /** Generic signature attribute that {@link #genericSignature} was parsed from, if unchanged. */
+  private OriginalGenericSignature<MethodTypeSignature> originalGenericSignature;
 
   private OptionalBool isLibraryMethodOverride = OptionalBool.unknown();
 
@@ -766,7 +769,7 @@ public class DexEncodedMethod extends DexEncodedMember<DexEncodedMethod, DexMeth
 
   public void collectMixedSectionItemsWithCodeMapping(
       MixedSectionCollection mixedItems, MethodToCodeObjectMapping mapping) {
-    DexCode code = mapping.getCode(this);
+    DexWritableCode code = mapping.getCode(this);
     if (code != null) {
       code.collectMixedSectionItems(mixedItems);
     }
@@ -1306,24 +1309,27 @@ public class DexEncodedMethod extends DexEncodedMember<DexEncodedMethod, DexMeth
     return method;
   }
 
-  /** Rewrites the code in this method to have JumboString bytecode if required by mapping. */
-  public DexCode rewriteCodeWithJumboStrings(
+  /**
+   * Rewrites the code in this method to have JumboString bytecode if required by mapping.
+   *
+   * <p>Code that has not been decoded is only decoded if it needs to be rewritten.
+   */
+  public DexWritableCode rewriteCodeWithJumboStrings(
       ObjectToOffsetMapping mapping, DexItemFactory factory, boolean force) {
     checkIfObsolete();
     assert code == null || code.isDexCode();
     if (code == null) {
       return null;
     }
-    DexCode code = this.code.asDexCode();
+    DexWritableCode writableCode = this.code.asDexWritableCode();
     DexString firstJumboString = null;
     if (force) {
       firstJumboString = mapping.getFirstString();
     } else {
-      assert code.highestSortingString != null
-          || Arrays.stream(code.instructions).noneMatch(Instruction::isConstString);
-      assert Arrays.stream(code.instructions).noneMatch(Instruction::isDexItemBasedConstString);
-      if (code.highestSortingString != null
-          && mapping.getOffsetFor(code.highestSortingString) > Constants.MAX_NON_JUMBO_INDEX) {
+      assert verifyHighestSortingString(writableCode);
+      DexString highestSortingString = writableCode.getHighestSortingString();
+      if (highestSortingString != null
+          && mapping.getOffsetFor(highestSortingString) > Constants.MAX_NON_JUMBO_INDEX) {
         firstJumboString = mapping.getFirstJumboString();
       }
     }
@@ -1331,7 +1337,17 @@ public class DexEncodedMethod extends DexEncodedMember<DexEncodedMethod, DexMeth
       JumboStringRewriter rewriter = new JumboStringRewriter(this, firstJumboString, factory);
       return rewriter.rewrite();
     }
-    return code;
+    return writableCode;
+  }
+
+  private static boolean verifyHighestSortingString(DexWritableCode writableCode) {
+    if (writableCode instanceof DexCode) {
+      DexCode code = (DexCode) writableCode;
+      assert code.highestSortingString != null
+          || Arrays.stream(code.instructions).noneMatch(Instruction::isConstString);
+      assert Arrays.stream(code.instructions).noneMatch(Instruction::isDexItemBasedConstString);
+    }
+    return true;
   }
 
   public String codeToString() {
@@ -1425,14 +1441,35 @@ public class DexEncodedMethod extends DexEncodedMember<DexEncodedMethod, DexMeth
     return genericSignature;
   }
 
+  /**
+   * Returns the generic signature as it should be written to the output, or null if there is no
+   * signature.
+   */
+  public String getGenericSignatureString(
+      NamingLens namingLens, Predicate<DexType> isTypeMissing) {
+    if (originalGenericSignature != null) {
+      String originalString =
+          originalGenericSignature.getOriginalStringIfUnchanged(genericSignature, namingLens);
+      if (originalString != null) {
+        return originalString;
+      }
+    }
+    return genericSignature.toRenamedString(namingLens, isTypeMissing);
+  }
+
   public void setGenericSignature(MethodTypeSignature genericSignature) {
     assert genericSignature != null;
+    if (originalGenericSignature != null
+        && !originalGenericSignature.isParsedAs(genericSignature)) {
+      originalGenericSignature = null;
+    }
     this.genericSignature = genericSignature;
   }
 
   @Override
   public void clearGenericSignature() {
     this.genericSignature = MethodTypeSignature.noSignature();
+    this.originalGenericSignature = null;
   }
 
   public static Builder syntheticBuilder() {
@@ -1457,6 +1494,7 @@ public class DexEncodedMethod extends DexEncodedMember<DexEncodedMethod, DexMeth
     private Code code;
     private DexMethod method;
     private MethodTypeSignature genericSignature = MethodTypeSignature.noSignature();
+    private OriginalGenericSignature<MethodTypeSignature> originalGenericSignature;
     private DexAnnotationSet annotations = DexAnnotationSet.empty();
     private OptionalBool isLibraryMethodOverride = OptionalBool.UNKNOWN;
     private ParameterAnnotationsList parameterAnnotations = ParameterAnnotationsList.empty();
@@ -1488,7 +1526,8 @@ public class DexEncodedMethod extends DexEncodedMember<DexEncodedMethod, DexMeth
       // Copy all the mutable state of a DexEncodedMethod here.
       method = from.getReference();
       accessFlags = from.getAccessFlags().copy();
-      genericSignature = from.getGenericSignature();
+      genericSignature = from.genericSignature;
+      originalGenericSignature = from.originalGenericSignature;
       annotations = from.annotations();
       code = from.getCode();
       apiLevelForDefinition = from.getApiLevelForDefinition();
@@ -1701,6 +1740,16 @@ public class DexEncodedMethod extends DexEncodedMember<DexEncodedMethod, DexMeth
 
     public Builder setGenericSignature(MethodTypeSignature methodSignature) {
       this.genericSignature = methodSignature;
+      this.originalGenericSignature = null;
+      return this;
+    }
+
+    Builder setOriginalGenericSignature(OriginalGenericSignature<MethodTypeSignature> signature) {
+      if (signature == null) {
+        return setGenericSignature(MethodTypeSignature.noSignature());
+      }
+      this.genericSignature = signature.get();
+      this.originalGenericSignature = signature.get().hasSignature() ? signature : null;
       return this;
     }
 
@@ -1764,6 +1813,7 @@ public class DexEncodedMethod extends DexEncodedMember<DexEncodedMethod, DexMeth
               callSiteOptimizationInfo,
               optimizationInfo,
               deprecated);
+      result.originalGenericSignature = originalGenericSignature;
       result.setKotlinMemberInfo(kotlinInfo);
       result.compilationState = compilationState;
       if (!isLibraryMethodOverride.isUnknown()) {
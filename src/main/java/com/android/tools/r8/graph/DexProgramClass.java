@@ -699,11 +699,11 @@ public class DexProgramClass extends DexClass
     for (ClassTypeSignature extraInterface : extraInterfaces) {
       interfacesBuilder.add(extraInterface);
     }
-    classSignature =
+    setClassSignature(
         new ClassSignature(
             classSignature.formalTypeParameters,
             classSignature.superClassSignature,
-            interfacesBuilder.build());
+            interfacesBuilder.build()));
   }
 
   @Override
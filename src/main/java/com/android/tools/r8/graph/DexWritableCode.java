@@ -0,0 +1,51 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.graph;
+
+import com.android.tools.r8.dex.CodeToKeep;
+import com.android.tools.r8.dex.IndexedItemCollection;
+import com.android.tools.r8.dex.MixedSectionCollection;
+import com.android.tools.r8.graph.DexCode.Try;
+import com.android.tools.r8.graph.DexCode.TryHandler;
+import com.android.tools.r8.ir.conversion.LensCodeRewriterUtils;
+import java.nio.ShortBuffer;
+
+/** The view of a code object that the dex file writer needs to emit the code item of a method. */
+public interface DexWritableCode {
+
+  int getRegisterSize();
+
+  int getIncomingRegisterSize();
+
+  int getOutgoingRegisterSize();
+
+  Try[] getTries();
+
+  TryHandler[] getHandlers();
+
+  DexDebugInfoForWriting getDebugInfoForWriting();
+
+  /** Returns the highest sorting string collected by the last call to collectIndexedItems. */
+  DexString getHighestSortingString();
+
+  /** Returns the size of the instructions in code units. */
+  int codeSizeInBytes();
+
+  void setCallSiteContexts(ProgramMethod method);
+
+  void collectIndexedItems(
+      IndexedItemCollection indexedItems,
+      ProgramMethod context,
+      GraphLens graphLens,
+      LensCodeRewriterUtils rewriter);
+
+  void collectMixedSectionItems(MixedSectionCollection mixedItems);
+
+  /** Writes the instructions to the given buffer and records the items to keep for them. */
+  void writeInstructions(
+      ShortBuffer dest,
+      ProgramMethod context,
+      ObjectToOffsetMapping mapping,
+      CodeToKeep desugaredLibraryCodeToKeep);
+}
@@ -30,6 +30,7 @@ import java.util.Collections;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
@@ -690,6 +691,21 @@ public abstract class GraphLens {
 
     private final Map<DexType, DexType> arrayTypeCache = new ConcurrentHashMap<>();
 
+    // Memoized results of looking up class types through the entire lens chain. Only lookups on
+    // this lens are memoized; the lookups on the previous lenses that are needed to compute the
+    // result are not, so that a lens chain is effectively collapsed into a single mapping for the
+    // lens that is currently in use.
+    private final Map<DexType, DexType> classTypeCache = new ConcurrentHashMap<>();
+
+    // Memoized results of looking up fields and methods through the entire lens chain. As for
+    // class types, only the lookups on this lens are memoized. The method lookups are keyed on the
+    // method, the invoke type and, unless the lens chain is context free, the context. The result
+    // of a lookup carries the prototype changes and invoke type composed from all lenses.
+    private final Map<DexField, FieldLookupResult> fieldLookupCache = new ConcurrentHashMap<>();
+    private final Map<MethodLookupKey, MethodLookupResult> methodLookupCache =
+        new ConcurrentHashMap<>();
+    private volatile Boolean contextFreeForMethods;
+
     public NonIdentityGraphLens(AppView<?> appView) {
       this(appView.dexItemFactory(), appView.graphLens());
     }
@@ -728,6 +744,24 @@ public abstract class GraphLens {
       previousLens = oldParent;
     }
 
+    /**
+     * Clears the memoized lookups of this lens and all previous lenses. This must be called when
+     * the result of the lookups may change, i.e., when the parent of a lens in the chain is
+     * replaced, or when the definitions that are used to map invoke types change.
+     */
+    public final void clearLookupCaches() {
+      GraphLens current = this;
+      while (current.isNonIdentityLens()) {
+        NonIdentityGraphLens lens = current.asNonIdentityLens();
+        lens.arrayTypeCache.clear();
+        lens.classTypeCache.clear();
+        lens.fieldLookupCache.clear();
+        lens.methodLookupCache.clear();
+        lens.contextFreeForMethods = null;
+        current = lens.getPrevious();
+      }
+    }
+
     @Override
     public MethodLookupResult lookupMethod(DexMethod method, DexMethod context, Type type) {
       if (method.getHolderType().isArrayType()) {
@@ -740,7 +774,33 @@ public abstract class GraphLens {
             .build();
       }
       assert method.getHolderType().isClassType();
-      return internalLookupMethod(method, context, type, result -> result);
+      MethodLookupKey key =
+          new MethodLookupKey(method, isContextFreeForMethodsCached() ? null : context, type);
+      MethodLookupResult result = methodLookupCache.get(key);
+      if (result == null) {
+        result = internalLookupMethod(method, context, type, lookup -> lookup);
+        methodLookupCache.put(key, result);
+      }
+      return result;
+    }
+
+    private boolean isContextFreeForMethodsCached() {
+      Boolean result = contextFreeForMethods;
+      if (result == null) {
+        result = isContextFreeForMethods();
+        contextFreeForMethods = result;
+      }
+      return result;
+    }
+
+    @Override
+    public FieldLookupResult lookupFieldResult(DexField field) {
+      FieldLookupResult result = fieldLookupCache.get(field);
+      if (result == null) {
+        result = internalLookupField(field, x -> x);
+        fieldLookupCache.put(field, result);
+      }
+      return result;
     }
 
     @Override
@@ -775,7 +835,21 @@ public abstract class GraphLens {
       if (this == applied) {
         return type;
       }
-      return internalDescribeLookupClassType(getPrevious().lookupClassType(type));
+      DexType result = classTypeCache.get(type);
+      if (result == null) {
+        result = internalLookupClassType(type);
+        classTypeCache.put(type, result);
+      }
+      return result;
+    }
+
+    private DexType internalLookupClassType(DexType type) {
+      GraphLens previous = getPrevious();
+      DexType previousType =
+          previous.isNonIdentityLens()
+              ? previous.asNonIdentityLens().internalLookupClassType(type)
+              : previous.lookupClassType(type);
+      return internalDescribeLookupClassType(previousType);
     }
 
     @Override
@@ -818,6 +892,36 @@ public abstract class GraphLens {
     public final NonIdentityGraphLens asNonIdentityLens() {
       return this;
     }
+
+    private static final class MethodLookupKey {
+
+      private final DexMethod method;
+      private final DexMethod context;
+      private final Type type;
+
+      private MethodLookupKey(DexMethod method, DexMethod context, Type type) {
+        this.method = method;
+        this.context = context;
+        this.type = type;
+      }
+
+      @Override
+      public boolean equals(Object obj) {
+        if (this == obj) {
+          return true;
+        }
+        if (!(obj instanceof MethodLookupKey)) {
+          return false;
+        }
+        MethodLookupKey other = (MethodLookupKey) obj;
+        return method == other.method && context == other.context && type == other.type;
+      }
+
+      @Override
+      public int hashCode() {
+        return Objects.hash(method, context, type);
+      }
+    }
   }
 
   private static final class IdentityGraphLens extends GraphLens {
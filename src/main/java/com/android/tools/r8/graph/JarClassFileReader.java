@@ -212,7 +212,7 @@ public class JarClassFileReader<T extends DexClass> {
     private final Set<DexField> recordComponents = Sets.newIdentityHashSet();
     private EnclosingMethodAttribute enclosingMember = null;
     private final List<InnerClassAttribute> innerClasses = new ArrayList<>();
-    private ClassSignature classSignature = ClassSignature.noSignature();
+    private OriginalGenericSignature<ClassSignature> classSignature = null;
     private List<DexAnnotation> annotations = null;
     private List<DexAnnotationElement> defaultAnnotations = null;
     private final List<DexEncodedField> staticFields = new ArrayList<>();
@@ -381,9 +381,11 @@ public class JarClassFileReader<T extends DexClass> {
       assert superName != null || name.equals(Constants.JAVA_LANG_OBJECT_NAME);
       superType = superName == null ? null : application.getTypeFromName(superName);
       this.interfaces = application.getTypeListFromNames(interfaces);
-      if (application.options.parseSignatureAttribute()) {
+      if (application.options.parseSignatureAttribute()
+          && signature != null
+          && !signature.isEmpty()) {
         classSignature =
-            GenericSignature.parseClassSignature(
+            OriginalGenericSignature.parseClassSignature(
                 name, signature, origin, application.getFactory(), application.options.reporter);
       }
     }
@@ -460,7 +462,7 @@ public class JarClassFileReader<T extends DexClass> {
               nestMembers,
               enclosingMember,
               innerClasses,
-              classSignature,
+              ClassSignature.noSignature(),
               createAnnotationSet(annotations, application.options),
               staticFields.toArray(DexEncodedField.EMPTY_ARRAY),
               instanceFields.toArray(DexEncodedField.EMPTY_ARRAY),
@@ -469,6 +471,9 @@ public class JarClassFileReader<T extends DexClass> {
               application.getFactory().getSkipNameValidationForTesting(),
               getChecksumSupplier(classKind),
               syntheticMarker);
+      if (classSignature != null) {
+        clazz.setOriginalClassSignature(classSignature);
+      }
       InnerClassAttribute innerClassAttribute = clazz.getInnerClassAttributeForThisClass();
       // A member class should not be a local or anonymous class.
       if (innerClassAttribute != null && innerClassAttribute.getOuter() != null) {
@@ -622,7 +627,7 @@ public class JarClassFileReader<T extends DexClass> {
     private final String name;
     private final String desc;
     private final Object value;
-    private final FieldTypeSignature fieldSignature;
+    private final OriginalGenericSignature<FieldTypeSignature> fieldSignature;
     private List<DexAnnotation> annotations = null;
 
     public CreateFieldVisitor(
@@ -640,13 +645,15 @@ public class JarClassFileReader<T extends DexClass> {
       this.value = value;
       this.fieldSignature =
           parent.application.options.parseSignatureAttribute()
-              ? GenericSignature.parseFieldTypeSignature(
+                  && signature != null
+                  && !signature.isEmpty()
+              ? OriginalGenericSignature.parseFieldTypeSignature(
                   name,
                   signature,
                   parent.origin,
                   parent.application.getFactory(),
                   parent.application.options.reporter)
-              : FieldTypeSignature.noSignature();
+              : null;
     }
 
     @Override
@@ -675,7 +682,7 @@ public class JarClassFileReader<T extends DexClass> {
             DexEncodedField.builder()
                 .setField(dexField)
                 .setAccessFlags(flags)
-                .setGenericSignature(fieldSignature)
+                .setOriginalGenericSignature(fieldSignature)
                 .setAnnotations(annotationSet)
                 .setStaticValue(staticValue)
                 .setDeprecated(AsmUtils.isDeprecated(access))
@@ -749,7 +756,7 @@ public class JarClassFileReader<T extends DexClass> {
     private List<List<DexAnnotation>> parameterAnnotationsLists = null;
     private List<DexValue> parameterNames = null;
     private List<DexValue> parameterFlags = null;
-    private final MethodTypeSignature genericSignature;
+    private final OriginalGenericSignature<MethodTypeSignature> genericSignature;
     final DexMethod method;
     final MethodAccessFlags flags;
     final boolean deprecated;
@@ -779,13 +786,15 @@ public class JarClassFileReader<T extends DexClass> {
       }
       genericSignature =
           parent.application.options.parseSignatureAttribute()
-              ? GenericSignature.parseMethodSignature(
+                  && signature != null
+                  && !signature.isEmpty()
+              ? OriginalGenericSignature.parseMethodSignature(
                   name,
                   signature,
                   parent.origin,
                   parent.application.getFactory(),
                   parent.application.options.reporter)
-              : MethodTypeSignature.noSignature();
+              : null;
     }
 
     @Override
@@ -912,7 +921,7 @@ public class JarClassFileReader<T extends DexClass> {
           DexEncodedMethod.builder()
               .setMethod(method)
               .setAccessFlags(flags)
-              .setGenericSignature(genericSignature)
+              .setOriginalGenericSignature(genericSignature)
               .setAnnotations(createAnnotationSet(annotations, options))
               .setParameterAnnotations(parameterAnnotationsList)
               .setCode(code)
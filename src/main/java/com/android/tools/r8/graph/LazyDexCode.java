@@ -0,0 +1,482 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.graph;
+
+import com.android.tools.r8.code.CheckCast;
+import com.android.tools.r8.code.ConstClass;
+import com.android.tools.r8.code.EncodedInstructionCursor;
+import com.android.tools.r8.code.InstanceOf;
+import com.android.tools.r8.code.Instruction;
+import com.android.tools.r8.code.InstructionFactory;
+import com.android.tools.r8.dex.CodeToKeep;
+import com.android.tools.r8.dex.IndexedItemCollection;
+import com.android.tools.r8.dex.MixedSectionCollection;
+import com.android.tools.r8.errors.Unreachable;
+import com.android.tools.r8.graph.DexCode.Try;
+import com.android.tools.r8.graph.DexCode.TryHandler;
+import com.android.tools.r8.ir.code.IRCode;
+import com.android.tools.r8.ir.code.NumberGenerator;
+import com.android.tools.r8.ir.code.Position;
+import com.android.tools.r8.ir.conversion.LensCodeRewriterUtils;
+import com.android.tools.r8.naming.ClassNameMapper;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.utils.ExceptionUtils;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+/**
+ * Code read from a dex file, which keeps the encoded code units of the method and only decodes the
+ * instructions into a {@link DexCode} when the code is first used.
+ *
+ * <p>Until then, the instructions can be inspected using an {@link EncodedInstructionCursor}, which
+ * does not create an object per instruction. Once the code has been decoded, the {@link DexCode}
+ * is the only representation of the code and the encoded code units are released.
+ *
+ * <p>If the code is written without any lens rewriting, as when merging dex files, code that only
+ * refers to strings, types, fields and methods can be written without being decoded, by copying
+ * the code units and remapping the indices of the instructions in place.
+ */
+public class LazyDexCode extends Code implements DexWritableCode {
+
+  private final int registerSize;
+  private final int incomingRegisterSize;
+  private final int outgoingRegisterSize;
+  private final Try[] tries;
+  private final TryHandler[] handlers;
+  private final DexDebugInfo debugInfo;
+  private final Origin origin;
+
+  private final int codeSizeInUnits;
+
+  // The instructions of the code. This is either the EncodedInstructions or, once the code has been
+  // decoded, the DexCode. The two are published through a single reference, such that a reader
+  // sees either the complete encoded instructions or the decoded code.
+  private volatile Object instructions;
+
+  private DexString highestSortingString;
+  private DexDebugInfoForWriting debugInfoForWriting;
+
+  public LazyDexCode(
+      int registerSize,
+      int insSize,
+      int outsSize,
+      short[] codeUnits,
+      Try[] tries,
+      TryHandler[] handlers,
+      DexDebugInfo debugInfo,
+      OffsetToObjectMapping mapping,
+      Origin origin) {
+    this.registerSize = registerSize;
+    this.incomingRegisterSize = insSize;
+    this.outgoingRegisterSize = outsSize;
+    this.codeSizeInUnits = codeUnits.length;
+    this.tries = tries;
+    this.handlers = handlers;
+    this.debugInfo = debugInfo;
+    this.origin = origin;
+    this.instructions = new EncodedInstructions(codeUnits, mapping);
+    assert tries != null;
+    assert handlers != null;
+    assert codeUnits != null;
+  }
+
+  /** Returns true if the instructions of this code have not been decoded. */
+  public boolean isEncoded() {
+    return instructions instanceof EncodedInstructions;
+  }
+
+  private EncodedInstructions getEncodedInstructions() {
+    Object current = instructions;
+    if (current instanceof EncodedInstructions) {
+      return (EncodedInstructions) current;
+    }
+    throw new Unreachable("Unexpected access to the encoded instructions of decoded code");
+  }
+
+  /**
+   * Returns a cursor over the encoded instructions of this code. Must only be used before the code
+   * has been decoded.
+   */
+  public EncodedInstructionCursor getEncodedInstructionCursor() {
+    return new EncodedInstructionCursor(getEncodedInstructions().codeUnits);
+  }
+
+  public OffsetToObjectMapping getMapping() {
+    return getEncodedInstructions().mapping;
+  }
+
+  /**
+   * Returns true if this code can be written without being decoded, i.e., if all indices of the
+   * instructions can be remapped in place. Returns false if the code has been decoded.
+   */
+  public boolean canWriteEncoded() {
+    Object current = instructions;
+    if (!(current instanceof EncodedInstructions)) {
+      return false;
+    }
+    EncodedInstructionCursor cursor =
+        new EncodedInstructionCursor(((EncodedInstructions) current).codeUnits);
+    while (cursor.advance()) {
+      if (cursor.hasProtoIndex()) {
+        return false;
+      }
+      switch (cursor.getIndexKind()) {
+        case NONE:
+        case STRING:
+        case TYPE:
+        case FIELD:
+        case METHOD:
+          break;
+        default:
+          return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int getRegisterSize() {
+    return registerSize;
+  }
+
+  @Override
+  public int getIncomingRegisterSize() {
+    return incomingRegisterSize;
+  }
+
+  @Override
+  public int getOutgoingRegisterSize() {
+    return outgoingRegisterSize;
+  }
+
+  @Override
+  public Try[] getTries() {
+    return tries;
+  }
+
+  @Override
+  public TryHandler[] getHandlers() {
+    return handlers;
+  }
+
+  public DexDebugInfo getDebugInfo() {
+    return debugInfo;
+  }
+
+  @Override
+  public DexDebugInfoForWriting getDebugInfoForWriting() {
+    Object current = instructions;
+    if (current instanceof DexCode) {
+      return ((DexCode) current).getDebugInfoForWriting();
+    }
+    if (debugInfo == null) {
+      return null;
+    }
+    if (debugInfoForWriting == null) {
+      debugInfoForWriting = new DexDebugInfoForWriting(debugInfo);
+    }
+    return debugInfoForWriting;
+  }
+
+  @Override
+  public DexString getHighestSortingString() {
+    Object current = instructions;
+    return current instanceof DexCode
+        ? ((DexCode) current).getHighestSortingString()
+        : highestSortingString;
+  }
+
+  @Override
+  public int codeSizeInBytes() {
+    // Decoding does not change the size of the instructions.
+    return codeSizeInUnits;
+  }
+
+  @Override
+  public void setCallSiteContexts(ProgramMethod method) {
+    Object current = instructions;
+    if (current instanceof DexCode) {
+      ((DexCode) current).setCallSiteContexts(method);
+    }
+    // Only code without call sites is written without being decoded.
+  }
+
+  @Override
+  public void collectIndexedItems(
+      IndexedItemCollection indexedItems,
+      ProgramMethod context,
+      GraphLens graphLens,
+      LensCodeRewriterUtils rewriter) {
+    Object current = instructions;
+    if (current instanceof DexCode) {
+      ((DexCode) current).collectIndexedItems(indexedItems, context, graphLens, rewriter);
+      return;
+    }
+    assert graphLens.isIdentityLens();
+    OffsetToObjectMapping mapping = ((EncodedInstructions) current).mapping;
+    highestSortingString = null;
+    EncodedInstructionCursor cursor =
+        new EncodedInstructionCursor(((EncodedInstructions) current).codeUnits);
+    while (cursor.advance()) {
+      switch (cursor.getIndexKind()) {
+        case NONE:
+          break;
+        case STRING:
+          DexString string = mapping.getString(cursor.getIndex());
+          string.collectIndexedItems(indexedItems);
+          if (highestSortingString == null || highestSortingString.compareTo(string) < 0) {
+            highestSortingString = string;
+          }
+          break;
+        case TYPE:
+          mapping.getType(cursor.getIndex()).collectIndexedItems(indexedItems);
+          break;
+        case FIELD:
+          mapping.getField(cursor.getIndex()).collectIndexedItems(indexedItems);
+          break;
+        case METHOD:
+          mapping.getMethod(cursor.getIndex()).collectIndexedItems(indexedItems);
+          break;
+        default:
+          throw new Unreachable("Unexpected index kind " + cursor.getIndexKind());
+      }
+    }
+    if (debugInfo != null) {
+      getDebugInfoForWriting().collectIndexedItems(indexedItems, graphLens);
+    }
+    for (TryHandler handler : handlers) {
+      handler.collectIndexedItems(indexedItems, graphLens);
+    }
+  }
+
+  @Override
+  public void writeInstructions(
+      ShortBuffer dest,
+      ProgramMethod context,
+      ObjectToOffsetMapping objectToOffsetMapping,
+      CodeToKeep desugaredLibraryCodeToKeep) {
+    Object current = instructions;
+    if (current instanceof DexCode) {
+      ((DexCode) current)
+          .writeInstructions(dest, context, objectToOffsetMapping, desugaredLibraryCodeToKeep);
+      return;
+    }
+    OffsetToObjectMapping mapping = ((EncodedInstructions) current).mapping;
+    short[] units = ((EncodedInstructions) current).codeUnits.clone();
+    EncodedInstructionCursor cursor = new EncodedInstructionCursor(units);
+    while (cursor.advance()) {
+      int index;
+      switch (cursor.getIndexKind()) {
+        case NONE:
+          continue;
+        case STRING:
+          index = objectToOffsetMapping.getOffsetFor(mapping.getString(cursor.getIndex()));
+          break;
+        case TYPE:
+          DexType type = mapping.getType(cursor.getIndex());
+          int opcode = cursor.getOpcode();
+          if (opcode == ConstClass.OPCODE
+              || opcode == CheckCast.OPCODE
+              || opcode == InstanceOf.OPCODE) {
+            desugaredLibraryCodeToKeep.recordClass(type);
+          }
+          index = objectToOffsetMapping.getOffsetFor(type);
+          break;
+        case FIELD:
+          DexField field = mapping.getField(cursor.getIndex());
+          desugaredLibraryCodeToKeep.recordField(field);
+          index = objectToOffsetMapping.getOffsetFor(field);
+          break;
+        case METHOD:
+          DexMethod method = mapping.getMethod(cursor.getIndex());
+          desugaredLibraryCodeToKeep.recordMethod(method);
+          index = objectToOffsetMapping.getOffsetFor(method);
+          break;
+        default:
+          throw new Unreachable("Unexpected index kind " + cursor.getIndexKind());
+      }
+      if (!cursor.setIndex(index)) {
+        // Code with strings that require jumbo instructions is decoded before writing.
+        throw new Unreachable("Index " + index + " does not fit in the instruction");
+      }
+    }
+    dest.put(units);
+  }
+
+  @Override
+  public boolean isDexCode() {
+    return true;
+  }
+
+  @Override
+  public boolean isLazyDexCode() {
+    return true;
+  }
+
+  @Override
+  public LazyDexCode asLazyDexCode() {
+    return this;
+  }
+
+  @Override
+  public DexWritableCode asDexWritableCode() {
+    Object current = instructions;
+    return current instanceof DexCode ? (DexCode) current : this;
+  }
+
+  @Override
+  public DexCode asDexCode() {
+    Object current = instructions;
+    if (current instanceof DexCode) {
+      return (DexCode) current;
+    }
+    synchronized (this) {
+      current = instructions;
+      if (current instanceof DexCode) {
+        return (DexCode) current;
+      }
+      EncodedInstructions encoded = (EncodedInstructions) current;
+      DexCode result = ExceptionUtils.withOriginAttachmentHandler(origin, () -> decode(encoded));
+      // Publishing the decoded code releases the encoded instructions.
+      instructions = result;
+      return result;
+    }
+  }
+
+  private DexCode decode(EncodedInstructions encoded) {
+    Instruction[] decodedInstructions =
+        new InstructionFactory()
+            .readSequenceFrom(
+                ShortBuffer.wrap(encoded.codeUnits),
+                0,
+                encoded.codeUnits.length,
+                encoded.mapping);
+    DexCode result =
+        new DexCode(
+            registerSize,
+            incomingRegisterSize,
+            outgoingRegisterSize,
+            decodedInstructions,
+            tries,
+            handlers,
+            debugInfo);
+    result.highestSortingString = highestSortingString;
+    return result;
+  }
+
+  @Override
+  protected int computeHashCode() {
+    // Only hash what is known without decoding the instructions.
+    return incomingRegisterSize * 2
+        + registerSize * 3
+        + outgoingRegisterSize * 5
+        + codeSizeInUnits * 7
+        + Arrays.hashCode(tries) * 13
+        + Arrays.hashCode(handlers) * 17;
+  }
+
+  @Override
+  protected boolean computeEquals(Object other) {
+    // A LazyDexCode is only equal to another LazyDexCode, as a DexCode is never equal to a
+    // LazyDexCode. The instructions are only decoded if everything else is equal.
+    if (!(other instanceof LazyDexCode)) {
+      return false;
+    }
+    LazyDexCode otherCode = (LazyDexCode) other;
+    return registerSize == otherCode.registerSize
+        && incomingRegisterSize == otherCode.incomingRegisterSize
+        && outgoingRegisterSize == otherCode.outgoingRegisterSize
+        && codeSizeInUnits == otherCode.codeSizeInUnits
+        && Arrays.equals(tries, otherCode.tries)
+        && Arrays.equals(handlers, otherCode.handlers)
+        && asDexCode().equals(otherCode.asDexCode());
+  }
+
+  @Override
+  public boolean isEmptyVoidMethod() {
+    return asDexCode().isEmptyVoidMethod();
+  }
+
+  @Override
+  public int estimatedSizeForInlining() {
+    return asDexCode().estimatedSizeForInlining();
+  }
+
+  @Override
+  public int estimatedDexCodeSizeUpperBoundInBytes() {
+    // The code size is known without decoding the instructions.
+    return codeSizeInUnits;
+  }
+
+  @Override
+  public IRCode buildIR(ProgramMethod method, AppView<?> appView, Origin origin) {
+    return asDexCode().buildIR(method, appView, origin);
+  }
+
+  @Override
+  public IRCode buildInliningIR(
+      ProgramMethod context,
+      ProgramMethod method,
+      AppView<?> appView,
+      NumberGenerator valueNumberGenerator,
+      Position callerPosition,
+      Origin origin,
+      RewrittenPrototypeDescription protoChanges) {
+    return asDexCode()
+        .buildInliningIR(
+            context, method, appView, valueNumberGenerator, callerPosition, origin, protoChanges);
+  }
+
+  @Override
+  public Code getCodeAsInlining(DexMethod caller, DexMethod callee) {
+    return asDexCode().getCodeAsInlining(caller, callee);
+  }
+
+  @Override
+  public void registerCodeReferences(ProgramMethod method, UseRegistry registry) {
+    asDexCode().registerCodeReferences(method, registry);
+  }
+
+  @Override
+  public void registerCodeReferencesForDesugaring(ClasspathMethod method, UseRegistry registry) {
+    asDexCode().registerCodeReferencesForDesugaring(method, registry);
+  }
+
+  @Override
+  public void collectMixedSectionItems(MixedSectionCollection mixedItems) {
+    Object current = instructions;
+    if (current instanceof DexCode) {
+      ((DexCode) current).collectMixedSectionItems(mixedItems);
+    } else if (mixedItems.add(this)) {
+      if (debugInfo != null) {
+        getDebugInfoForWriting().collectMixedSectionItems(mixedItems);
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    Object current = instructions;
+    return current instanceof DexCode
+        ? current.toString()
+        : "LazyDexCode(" + codeSizeInUnits + " encoded code units)";
+  }
+
+  @Override
+  public String toString(DexEncodedMethod method, ClassNameMapper naming) {
+    return asDexCode().toString(method, naming);
+  }
+
+  private static class EncodedInstructions {
+
+    // The encoded code units and the mapping used to decode the indices of the instructions.
+    private final short[] codeUnits;
+    private final OffsetToObjectMapping mapping;
+
+    private EncodedInstructions(short[] codeUnits, OffsetToObjectMapping mapping) {
+      this.codeUnits = codeUnits;
+      this.mapping = mapping;
+    }
+  }
+}
@@ -0,0 +1,112 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.graph;
+
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.graph.GenericSignature.ClassSignature;
+import com.android.tools.r8.graph.GenericSignature.DexDefinitionSignature;
+import com.android.tools.r8.graph.GenericSignature.FieldTypeSignature;
+import com.android.tools.r8.graph.GenericSignature.MethodTypeSignature;
+import com.android.tools.r8.naming.NamingLens;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.utils.BooleanBox;
+
+/**
+ * A generic signature attribute read from a class file together with its parsed signature.
+ *
+ * <p>The signature is parsed when it is read, such that invalid signatures are reported for all
+ * classes. A signature that is not changed is written as the original string if none of the types
+ * it references are renamed.
+ */
+class OriginalGenericSignature<T extends DexDefinitionSignature<?>> {
+
+  private final String signature;
+  private final T parsedSignature;
+
+  private OriginalGenericSignature(String signature, T parsedSignature) {
+    assert signature != null && !signature.isEmpty();
+    this.signature = signature;
+    this.parsedSignature = parsedSignature;
+  }
+
+  static OriginalGenericSignature<ClassSignature> parseClassSignature(
+      String className,
+      String signature,
+      Origin origin,
+      DexItemFactory factory,
+      DiagnosticsHandler diagnosticsHandler) {
+    return new OriginalGenericSignature<>(
+        signature,
+        GenericSignature.parseClassSignature(
+            className, signature, origin, factory, diagnosticsHandler));
+  }
+
+  static OriginalGenericSignature<FieldTypeSignature> parseFieldTypeSignature(
+      String fieldName,
+      String signature,
+      Origin origin,
+      DexItemFactory factory,
+      DiagnosticsHandler diagnosticsHandler) {
+    return new OriginalGenericSignature<>(
+        signature,
+        GenericSignature.parseFieldTypeSignature(
+            fieldName, signature, origin, factory, diagnosticsHandler));
+  }
+
+  static OriginalGenericSignature<MethodTypeSignature> parseMethodSignature(
+      String methodName,
+      String signature,
+      Origin origin,
+      DexItemFactory factory,
+      DiagnosticsHandler diagnosticsHandler) {
+    return new OriginalGenericSignature<>(
+        signature,
+        GenericSignature.parseMethodSignature(
+            methodName, signature, origin, factory, diagnosticsHandler));
+  }
+
+  T get() {
+    return parsedSignature;
+  }
+
+  boolean isParsedAs(T signature) {
+    return parsedSignature == signature;
+  }
+
+  /**
+   * Returns the original signature string if it is equal to the printing of the given signature
+   * using the given naming lens, and null otherwise.
+   */
+  String getOriginalStringIfUnchanged(T signature, NamingLens namingLens) {
+    if (signature.hasNoSignature() || !isParsedAs(signature)) {
+      return null;
+    }
+    return namingLens.isIdentityLens() || !hasRenamedType(signature, namingLens)
+        ? this.signature
+        : null;
+  }
+
+  private static boolean hasRenamedType(
+      DexDefinitionSignature<?> signature, NamingLens namingLens) {
+    BooleanBox hasRenamedType = new BooleanBox();
+    GenericSignatureTypeVisitor visitor =
+        new GenericSignatureTypeVisitor(
+            null,
+            (type, context) -> {
+              if (namingLens.lookupDescriptor(type) != type.getDescriptor()) {
+                hasRenamedType.set();
+              }
+            });
+    if (signature.isClassSignature()) {
+      visitor.visitClassSignature(signature.asClassSignature());
+    } else if (signature.isFieldTypeSignature()) {
+      visitor.visitFieldTypeSignature(signature.asFieldTypeSignature());
+    } else {
+      assert signature.isMethodTypeSignature();
+      visitor.visitMethodSignature(signature.asMethodTypeSignature());
+    }
+    return hasRenamedType.isTrue();
+  }
+}
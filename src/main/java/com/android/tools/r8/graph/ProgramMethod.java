@@ -46,7 +46,7 @@ public final class ProgramMethod extends DexClassAndMethod
     getReference().collectIndexedItems(indexedItems);
     Code code = definition.getCode();
     if (code != null && code.isDexCode()) {
-      code.asDexCode().collectIndexedItems(indexedItems, this, graphLens, rewriter);
+      code.asDexWritableCode().collectIndexedItems(indexedItems, this, graphLens, rewriter);
     }
     definition.annotations().collectIndexedItems(indexedItems);
     definition.parameterAnnotationsList.collectIndexedItems(indexedItems);
@@ -8,10 +8,15 @@ import static com.android.tools.r8.ir.code.DominatorTree.Assumption.MAY_HAVE_UNR
 
 import com.android.tools.r8.ir.code.BasicBlock.BasicBlockChangeListener;
 import com.google.common.collect.ImmutableList;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 public class DominatorTree implements BasicBlockChangeListener {
 
@@ -25,11 +30,23 @@ public class DominatorTree implements BasicBlockChangeListener {
     NO
   }
 
-  private final BasicBlock[] sorted;
+  private final IRCode code;
+
+  // The reachable blocks in topological order, followed by the normal exit block and the
+  // unreachable blocks. Blocks created by splitting are inserted right after the split block.
+  private BasicBlock[] sorted;
+  // Indexed by block number.
+  private BasicBlock[] blocksByNumber;
   private BasicBlock[] doms;
   private final BasicBlock normalExitBlock = new BasicBlock();
 
-  private final int unreachableStartIndex;
+  // Interval numbering of the dominator tree: a block A strictly dominates a block B if and only if
+  // preorderNumbers[A] < preorderNumbers[B] <= lastDescendantNumbers[A]. Both arrays are indexed by
+  // block number. Unreachable blocks have the interval [-1, -1].
+  private int[] preorderNumbers;
+  private int[] lastDescendantNumbers;
+  // The reachable blocks in preorder of the dominator tree.
+  private BasicBlock[] preorderBlocks;
 
   private boolean obsolete = false;
 
@@ -40,9 +57,14 @@ public class DominatorTree implements BasicBlockChangeListener {
   public DominatorTree(IRCode code, Assumption assumption) {
     assert assumption != null;
     assert assumption == MAY_HAVE_UNREACHABLE_BLOCKS || code.getUnreachableBlocks().isEmpty();
+    this.code = code;
+    compute(assumption);
+  }
 
+  private void compute(Assumption assumption) {
     ImmutableList<BasicBlock> blocks = code.topologicallySortedBlocks();
     // Add the internal exit block to the block list.
+    normalExitBlock.getMutablePredecessors().clear();
     for (BasicBlock block : blocks) {
       if (block.exit().isReturn()) {
         normalExitBlock.getMutablePredecessors().add(block);
@@ -63,7 +85,6 @@ public class DominatorTree implements BasicBlockChangeListener {
       sorted[i] = normalExitBlock;
       i++;
       // Move unreachable blocks into the end of `sorted`.
-      unreachableStartIndex = i;
       for (BasicBlock block : code.blocks) {
         if (!block.isMarked(color)) {
           sorted[i] = block;
@@ -74,10 +95,11 @@ public class DominatorTree implements BasicBlockChangeListener {
     } else {
       sorted = blocks.toArray(new BasicBlock[numberOfBlocks + 1]);
       sorted[numberOfBlocks] = normalExitBlock;
-      unreachableStartIndex = numberOfBlocks + 1;
     }
     numberBlocks();
     build();
+    numberIntervals();
+    obsolete = false;
 
     // This is intentionally implemented via an `assert` so that we do not attach listeners to all
     // basic blocks when running without assertions.
@@ -135,16 +157,9 @@ public class DominatorTree implements BasicBlockChangeListener {
     if (subject.getNumber() == 0 || subject == normalExitBlock) {
       return false;
     }
-    while (true) {
-      BasicBlock idom = immediateDominator(subject);
-      if (idom.getNumber() < dominator.getNumber()) {
-        return false;
-      }
-      if (idom == dominator) {
-        return true;
-      }
-      subject = idom;
-    }
+    int subjectNumber = preorderNumbers[subject.getNumber()];
+    return subjectNumber > preorderNumbers[dominator.getNumber()]
+        && subjectNumber <= lastDescendantNumbers[dominator.getNumber()];
   }
 
   /**
@@ -161,7 +176,10 @@ public class DominatorTree implements BasicBlockChangeListener {
     Iterator<BasicBlock> it = blocks.iterator();
     BasicBlock dominator = it.next();
     while (it.hasNext()) {
-      dominator = intersect(dominator, it.next());
+      BasicBlock block = it.next();
+      while (!dominatedBy(block, dominator)) {
+        dominator = immediateDominator(dominator);
+      }
     }
     return dominator;
   }
@@ -174,9 +192,13 @@ public class DominatorTree implements BasicBlockChangeListener {
   public <T extends Collection<BasicBlock>> T dominatedBlocks(
       BasicBlock dominator, T dominatedBlocks) {
     assert !obsolete;
-    for (int i = dominator.getNumber(); i < unreachableStartIndex; ++i) {
-      BasicBlock block = sorted[i];
-      if (dominatedBy(block, dominator)) {
+    int preorderNumber = preorderNumbers[dominator.getNumber()];
+    if (preorderNumber < 0) {
+      return dominatedBlocks;
+    }
+    for (int i = preorderNumber; i <= lastDescendantNumbers[dominator.getNumber()]; i++) {
+      BasicBlock block = preorderBlocks[i];
+      if (block != normalExitBlock) {
         dominatedBlocks.add(block);
       }
     }
@@ -240,6 +262,7 @@ public class DominatorTree implements BasicBlockChangeListener {
     for (int i = 0; i < sorted.length; i++) {
       sorted[i].setNumber(i);
     }
+    blocksByNumber = sorted.clone();
   }
 
   private boolean postorderCompareLess(BasicBlock b1, BasicBlock b2) {
@@ -303,6 +326,210 @@ public class DominatorTree implements BasicBlockChangeListener {
     return finger1;
   }
 
+  // Assigns each reachable block its preorder number in the dominator tree and the preorder number
+  // of its last descendant, such that dominance queries are constant time.
+  private void numberIntervals() {
+    int size = doms.length;
+    BasicBlock[] firstChild = new BasicBlock[size];
+    BasicBlock[] nextSibling = new BasicBlock[size];
+    // Link the children in reverse, such that the children of each block are visited in the order
+    // of `sorted`.
+    for (int i = sorted.length - 1; i >= 0; i--) {
+      BasicBlock block = sorted[i];
+      BasicBlock idom = doms[block.getNumber()];
+      if (idom != null && idom != block) {
+        nextSibling[block.getNumber()] = firstChild[idom.getNumber()];
+        firstChild[idom.getNumber()] = block;
+      }
+    }
+    preorderNumbers = new int[size];
+    lastDescendantNumbers = new int[size];
+    Arrays.fill(preorderNumbers, -1);
+    Arrays.fill(lastDescendantNumbers, -1);
+    preorderBlocks = new BasicBlock[sorted.length];
+    BasicBlock root = sorted[0];
+    BasicBlock current = root;
+    int nextPreorderNumber = 0;
+    while (current != null) {
+      preorderNumbers[current.getNumber()] = nextPreorderNumber;
+      preorderBlocks[nextPreorderNumber] = current;
+      nextPreorderNumber++;
+      if (firstChild[current.getNumber()] != null) {
+        current = firstChild[current.getNumber()];
+        continue;
+      }
+      // The subtree of the current block is complete. Close the subtrees of its ancestors until
+      // one of them has a sibling that remains to be visited.
+      while (true) {
+        lastDescendantNumbers[current.getNumber()] = nextPreorderNumber - 1;
+        if (current == root) {
+          current = null;
+          break;
+        }
+        BasicBlock sibling = nextSibling[current.getNumber()];
+        if (sibling != null) {
+          current = sibling;
+          break;
+        }
+        current = doms[current.getNumber()];
+      }
+    }
+  }
+
+  /**
+   * Updates the dominator tree after {@param block} has been split into {@param block} and {@param
+   * newBlock}, where {@param newBlock} is the unique successor of {@param block} and has received
+   * (some of) its successors.
+   *
+   * <p>The blocks that were immediately dominated by {@param block} become immediately dominated by
+   * {@param newBlock}, unless they remain reachable from the other successors of {@param block}
+   * without passing through {@param newBlock}. If the split introduced other new blocks, e.g., when
+   * copying catch handlers, the dominator tree is instead recomputed, which renumbers the blocks.
+   */
+  public void onBlockSplit(BasicBlock block, BasicBlock newBlock) {
+    assert block.getSuccessors().contains(newBlock);
+    // The control flow edges changed by the caller are accounted for by this update.
+    obsolete = false;
+    if (applyBlockSplit(block, newBlock)) {
+      numberIntervals();
+      assert verifyImmediateDominators();
+      assert recordChangesToControlFlowEdges(ImmutableList.of(newBlock));
+    } else {
+      compute(MAY_HAVE_UNREACHABLE_BLOCKS);
+    }
+  }
+
+  private boolean applyBlockSplit(BasicBlock block, BasicBlock newBlock) {
+    if (!isKnownBlock(block)
+        || doms[block.getNumber()] == null
+        || !newBlock.hasUniquePredecessor()) {
+      return false;
+    }
+    ensureCapacity(newBlock.getNumber() + 1);
+    if (blocksByNumber[newBlock.getNumber()] == normalExitBlock) {
+      // The normal exit block is not part of the IR, so its number may be reused for new blocks.
+      moveNormalExitBlock();
+    }
+    if (blocksByNumber[newBlock.getNumber()] != null) {
+      return false;
+    }
+    // Find the blocks that are reachable from the other successors of `block` without passing
+    // through `block` or `newBlock`. These keep `block` as their immediate dominator.
+    boolean[] reachable = new boolean[doms.length];
+    Deque<BasicBlock> worklist = new ArrayDeque<>();
+    for (BasicBlock successor : block.getSuccessors()) {
+      if (successor != newBlock) {
+        worklist.add(successor);
+      }
+    }
+    while (!worklist.isEmpty()) {
+      BasicBlock current = worklist.removeLast();
+      if (current == block || current == newBlock) {
+        continue;
+      }
+      if (!isKnownBlock(current)) {
+        return false;
+      }
+      if (reachable[current.getNumber()]) {
+        continue;
+      }
+      reachable[current.getNumber()] = true;
+      if (current != normalExitBlock) {
+        worklist.addAll(current.getSuccessors());
+        if (current.exit().isReturn()) {
+          worklist.add(normalExitBlock);
+        }
+      }
+    }
+    for (BasicBlock successor : newBlock.getSuccessors()) {
+      if (!isKnownBlock(successor)) {
+        return false;
+      }
+    }
+    for (BasicBlock candidate : blocksByNumber) {
+      if (candidate != null
+          && candidate != block
+          && doms[candidate.getNumber()] == block
+          && !reachable[candidate.getNumber()]) {
+        doms[candidate.getNumber()] = newBlock;
+      }
+    }
+    blocksByNumber[newBlock.getNumber()] = newBlock;
+    doms[newBlock.getNumber()] = block;
+    if (newBlock.exit().isReturn()) {
+      List<BasicBlock> exitPredecessors = normalExitBlock.getMutablePredecessors();
+      int index = exitPredecessors.indexOf(block);
+      if (index >= 0) {
+        exitPredecessors.set(index, newBlock);
+      }
+    }
+    // Insert the new block right after `block` to keep `sorted` topologically sorted.
+    int index = 0;
+    while (sorted[index] != block) {
+      index++;
+    }
+    BasicBlock[] newSorted = new BasicBlock[sorted.length + 1];
+    System.arraycopy(sorted, 0, newSorted, 0, index + 1);
+    newSorted[index + 1] = newBlock;
+    System.arraycopy(sorted, index + 1, newSorted, index + 2, sorted.length - index - 1);
+    sorted = newSorted;
+    return true;
+  }
+
+  private void moveNormalExitBlock() {
+    int oldNumber = normalExitBlock.getNumber();
+    int newNumber = doms.length;
+    ensureCapacity(newNumber + 1);
+    doms[newNumber] = doms[oldNumber];
+    preorderNumbers[newNumber] = preorderNumbers[oldNumber];
+    lastDescendantNumbers[newNumber] = lastDescendantNumbers[oldNumber];
+    blocksByNumber[newNumber] = normalExitBlock;
+    doms[oldNumber] = null;
+    preorderNumbers[oldNumber] = -1;
+    lastDescendantNumbers[oldNumber] = -1;
+    blocksByNumber[oldNumber] = null;
+    normalExitBlock.setNumber(newNumber);
+  }
+
+  private boolean isKnownBlock(BasicBlock block) {
+    int number = block.getNumber();
+    return number >= 0 && number < blocksByNumber.length && blocksByNumber[number] == block;
+  }
+
+  private void ensureCapacity(int size) {
+    if (size > doms.length) {
+      int newSize = Math.max(size, doms.length * 2);
+      int oldSize = doms.length;
+      doms = Arrays.copyOf(doms, newSize);
+      blocksByNumber = Arrays.copyOf(blocksByNumber, newSize);
+      preorderNumbers = Arrays.copyOf(preorderNumbers, newSize);
+      lastDescendantNumbers = Arrays.copyOf(lastDescendantNumbers, newSize);
+      Arrays.fill(preorderNumbers, oldSize, newSize, -1);
+      Arrays.fill(lastDescendantNumbers, oldSize, newSize, -1);
+    }
+  }
+
+  // Checks that an incrementally updated dominator tree is identical to a recomputed one.
+  private boolean verifyImmediateDominators() {
+    // Computing a new dominator tree renumbers the blocks, so the numbering is restored afterwards.
+    Map<BasicBlock, Integer> numbers = new IdentityHashMap<>();
+    for (BasicBlock block : code.blocks) {
+      numbers.put(block, block.getNumber());
+    }
+    DominatorTree expected = new DominatorTree(code, MAY_HAVE_UNREACHABLE_BLOCKS);
+    Map<BasicBlock, BasicBlock> expectedDominators = new IdentityHashMap<>();
+    for (BasicBlock block : code.blocks) {
+      expectedDominators.put(block, expected.doms[block.getNumber()]);
+    }
+    numbers.forEach(BasicBlock::setNumber);
+    for (BasicBlock block : code.blocks) {
+      assert isKnownBlock(block);
+      assert doms[block.getNumber()] == expectedDominators.get(block)
+          : "Unexpected immediate dominator for block " + block.getNumber();
+    }
+    return true;
+  }
+
   @Override
   public String toString() {
     StringBuilder builder = new StringBuilder();
@@ -10,8 +10,10 @@ import com.android.tools.r8.graph.AppView;
 import com.android.tools.r8.graph.DexEncodedMethod;
 import com.android.tools.r8.graph.DexProgramClass;
 import com.android.tools.r8.graph.ProgramMethod;
+import com.android.tools.r8.logging.Log;
 import com.android.tools.r8.shaking.AppInfoWithLiveness;
 import com.android.tools.r8.utils.ThreadUtils;
+import com.android.tools.r8.utils.ThreadUtils.BatchStatistics;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 
@@ -23,7 +25,15 @@ public class CallGraphBuilder extends CallGraphBuilderBase {
 
   @Override
   void populateGraph(ExecutorService executorService) throws ExecutionException {
-    ThreadUtils.processItems(appView.appInfo().classes(), this::processClass, executorService);
+    BatchStatistics statistics =
+        ThreadUtils.processItemsInBatches(
+            appView.appInfo().classes(),
+            clazz -> clazz.getMethodCollection().size(),
+            this::processClass,
+            executorService);
+    if (Log.ENABLED) {
+      Log.info(getClass(), "Populated call graph using %s.", statistics);
+    }
   }
 
   private void processClass(DexProgramClass clazz) {
@@ -123,11 +123,13 @@ import com.android.tools.r8.optimize.argumentpropagation.ArgumentPropagatorIROpt
 import com.android.tools.r8.origin.Origin;
 import com.android.tools.r8.utils.AndroidApiLevel;
 import com.android.tools.r8.utils.Pair;
+import com.android.tools.r8.utils.ThreadUtils;
 import com.google.common.collect.Sets;
 import it.unimi.dsi.fastutil.ints.Int2ReferenceAVLTreeMap;
 import it.unimi.dsi.fastutil.ints.Int2ReferenceMap;
 import it.unimi.dsi.fastutil.ints.Int2ReferenceOpenHashMap;
 import it.unimi.dsi.fastutil.ints.Int2ReferenceSortedMap;
+import it.unimi.dsi.fastutil.ints.IntArrayFIFOQueue;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
 import it.unimi.dsi.fastutil.ints.IntArraySet;
 import it.unimi.dsi.fastutil.ints.IntIterator;
@@ -135,14 +137,16 @@ import it.unimi.dsi.fastutil.ints.IntList;
 import it.unimi.dsi.fastutil.ints.IntSet;
 import it.unimi.dsi.fastutil.objects.Reference2IntMap;
 import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
 import java.util.Set;
 import java.util.function.BiConsumer;
 
@@ -370,21 +374,66 @@ public class IRBuilder {
     }
   }
 
+  /**
+   * Transient structures that are only used while building the IR of a method.
+   *
+   * <p>These are reused by the builders of a compilation through the {@link IRBuilderStatePool} of
+   * the {@link AppView} to avoid allocating them for each method.
+   */
+  static class TransientState {
+
+    // Structures larger than these are not retained for the next method.
+    private static final int MAX_RETAINED_BLOCK_COUNT = 1 << 10;
+    private static final int MAX_RETAINED_INSTRUCTION_COUNT = 1 << 16;
+
+    final Int2ReferenceSortedMap<BlockInfo> targets = new Int2ReferenceAVLTreeMap<>();
+    final Reference2IntOpenHashMap<BasicBlock> offsets = new Reference2IntOpenHashMap<>();
+    final IntArrayFIFOQueue traceBlocksWorklist = new IntArrayFIFOQueue();
+    final Deque<WorklistItem> ssaWorklist = new ArrayDeque<>();
+    final List<Value> debugLocalEnds = new ArrayList<>();
+    private boolean[] processedInstructions = new boolean[0];
+
+    boolean[] getProcessedInstructions(int instructionCount) {
+      if (processedInstructions.length < instructionCount) {
+        processedInstructions = new boolean[instructionCount];
+      } else {
+        Arrays.fill(processedInstructions, 0, instructionCount, false);
+      }
+      return processedInstructions;
+    }
+
+    void clear() {
+      targets.clear();
+      offsets.clear();
+      offsets.trim(MAX_RETAINED_BLOCK_COUNT);
+      traceBlocksWorklist.clear();
+      ssaWorklist.clear();
+      debugLocalEnds.clear();
+      if (processedInstructions.length > MAX_RETAINED_INSTRUCTION_COUNT) {
+        processedInstructions = new boolean[0];
+      }
+    }
+  }
+
+  private TransientState transientState;
+
   // Mapping from instruction offsets to basic-block targets.
-  private final Int2ReferenceSortedMap<BlockInfo> targets = new Int2ReferenceAVLTreeMap<>();
-  private final Reference2IntMap<BasicBlock> offsets = new Reference2IntOpenHashMap<>();
+  private Int2ReferenceSortedMap<BlockInfo> targets;
+  private Reference2IntMap<BasicBlock> offsets;
 
   // Worklist of reachable blocks.
-  private final Queue<Integer> traceBlocksWorklist = new LinkedList<>();
+  private IntArrayFIFOQueue traceBlocksWorklist;
 
-  // Bitmap to ensure we don't process an instruction more than once.
+  // Bitmap to ensure we don't process an instruction more than once. Only the first
+  // processedInstructionCount entries are used, as the array may be reused from a larger method.
   private boolean[] processedInstructions = null;
+  private int processedInstructionCount = 0;
 
   // Bitmap of processed subroutine instructions. Lazily allocated off the fast-path.
   private Set<Integer> processedSubroutineInstructions = null;
 
   // Worklist for SSA construction.
-  private final Queue<WorklistItem> ssaWorklist = new LinkedList<>();
+  private Deque<WorklistItem> ssaWorklist;
 
   // Basic blocks. Added after processing from the worklist.
   private final LinkedList<BasicBlock> blocks = new LinkedList<>();
@@ -412,7 +461,7 @@ public class IRBuilder {
 
   // Pending local reads.
   private Value previousLocalValue = null;
-  private final List<Value> debugLocalEnds = new ArrayList<>();
+  private List<Value> debugLocalEnds;
 
   // Lazily populated list of local values that are referenced without being actually defined.
   private Int2ReferenceMap<List<Value>> uninitializedDebugLocalValues = null;
@@ -605,6 +654,37 @@ public class IRBuilder {
    * @return The list of basic blocks. First block is the main entry.
    */
   public IRCode build(ProgramMethod context) {
+    assert transientState == null;
+    IRBuilderStatePool statePool = appView.irBuilderStatePool();
+    transientState = statePool.acquire();
+    targets = transientState.targets;
+    offsets = transientState.offsets;
+    traceBlocksWorklist = transientState.traceBlocksWorklist;
+    ssaWorklist = transientState.ssaWorklist;
+    debugLocalEnds = transientState.debugLocalEnds;
+    BiConsumer<ProgramMethod, Long> allocationConsumer =
+        appView.options().testing.irBuildingAllocationConsumer;
+    long allocatedBytesBefore =
+        allocationConsumer != null ? ThreadUtils.getCurrentThreadAllocatedBytes() : -1;
+    try {
+      IRCode code = buildWithTransientState(context);
+      if (allocationConsumer != null && allocatedBytesBefore >= 0) {
+        allocationConsumer.accept(
+            method, ThreadUtils.getCurrentThreadAllocatedBytes() - allocatedBytesBefore);
+      }
+      return code;
+    } finally {
+      statePool.release(transientState);
+      transientState = null;
+      targets = null;
+      offsets = null;
+      traceBlocksWorklist = null;
+      ssaWorklist = null;
+      debugLocalEnds = null;
+    }
+  }
+
+  private IRCode buildWithTransientState(ProgramMethod context) {
     assert source != null;
     source.setUp();
 
@@ -617,10 +697,11 @@ public class IRBuilder {
 
     // Process reachable code paths starting from instruction 0.
     int instCount = source.instructionCount();
-    processedInstructions = new boolean[instCount];
-    traceBlocksWorklist.add(0);
+    processedInstructions = transientState.getProcessedInstructions(instCount);
+    processedInstructionCount = instCount;
+    traceBlocksWorklist.enqueue(0);
     while (!traceBlocksWorklist.isEmpty()) {
-      int startOfBlockOffset = traceBlocksWorklist.remove();
+      int startOfBlockOffset = traceBlocksWorklist.dequeueInt();
       int startOfBlockIndex = source.instructionIndex(startOfBlockOffset);
       // Check that the block has not been processed after being added.
       if (isIndexProcessed(startOfBlockIndex)) {
@@ -2501,7 +2582,7 @@ public class IRBuilder {
   private BlockInfo ensureBlock(int offset) {
     // We don't enqueue negative targets (these are special blocks, eg, an argument prelude).
     if (offset >= 0 && !isOffsetProcessed(offset)) {
-      traceBlocksWorklist.add(offset);
+      traceBlocksWorklist.enqueue(offset);
     }
     return ensureBlockWithoutEnqueuing(offset);
   }
@@ -2511,7 +2592,7 @@ public class IRBuilder {
   }
 
   private boolean isIndexProcessed(int index) {
-    if (index < processedInstructions.length) {
+    if (index < processedInstructionCount) {
       return processedInstructions[index];
     }
     ensureSubroutineProcessedInstructions();
@@ -2520,7 +2601,7 @@ public class IRBuilder {
 
   private void markIndexProcessed(int index) {
     assert !isIndexProcessed(index);
-    if (index < processedInstructions.length) {
+    if (index < processedInstructionCount) {
       processedInstructions[index] = true;
       return;
     }
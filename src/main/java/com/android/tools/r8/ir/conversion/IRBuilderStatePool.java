@@ -0,0 +1,37 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.ir.conversion;
+
+import com.android.tools.r8.ir.conversion.IRBuilder.TransientState;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Pool of the transient structures that {@link IRBuilder} only uses while building the IR of a
+ * method.
+ *
+ * <p>The pool is owned by the compilation, such that the pooled structures are released together
+ * with the compilation, also when the compilation runs on threads that outlive it. A builder that
+ * starts building while all pooled structures are in use, e.g., when building the IR of an inlinee
+ * while building the IR of its caller, gets fresh structures.
+ */
+public class IRBuilderStatePool {
+
+  private final Queue<TransientState> states = new ConcurrentLinkedQueue<>();
+
+  TransientState acquire() {
+    TransientState state = states.poll();
+    return state != null ? state : new TransientState();
+  }
+
+  void release(TransientState state) {
+    state.clear();
+    states.add(state);
+  }
+
+  int size() {
+    return states.size();
+  }
+}
@@ -1724,7 +1724,8 @@ public class IRConverter {
   }
 
   private synchronized void updateHighestSortingStrings(DexEncodedMethod method) {
-    DexString highestSortingReferencedString = method.getCode().asDexCode().highestSortingString;
+    DexString highestSortingReferencedString =
+        method.getCode().asDexWritableCode().getHighestSortingString();
     if (highestSortingReferencedString != null) {
       if (highestSortingString == null
           || highestSortingReferencedString.compareTo(highestSortingString) > 0) {
@@ -5,6 +5,7 @@
 package com.android.tools.r8.ir.desugar;
 
 import static com.android.tools.r8.utils.AndroidApiLevel.minApiLevelIfEnabledOrUnknown;
+import static com.android.tools.r8.utils.FunctionUtils.ignoreArgument;
 
 import com.android.tools.r8.cf.code.CfInstruction;
 import com.android.tools.r8.cf.code.CfInvoke;
@@ -41,6 +42,8 @@ import com.android.tools.r8.utils.AndroidApp;
 import com.android.tools.r8.utils.InternalOptions;
 import com.android.tools.r8.utils.Timing;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -48,6 +51,8 @@ import java.util.Collections;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.function.Consumer;
 import org.objectweb.asm.Opcodes;
@@ -157,8 +162,21 @@ public final class BackportedMethodRewriter implements CfInstructionDesugaring {
 
     private final AppView<?> appView;
 
-    // Map backported method to a provider for creating the actual target method (with code).
-    private final Map<DexMethod, MethodProvider> rewritable = new IdentityHashMap<>();
+    // The groups of backports that apply to this compilation, indexed by the holders of their
+    // backported methods. A group is only initialized when the first lookup of a method on one of
+    // its holders happens, such that compilations do not pay for creating the method references of
+    // the backports on holders that are never invoked.
+    private final List<ProviderGroup> groups = new ArrayList<>();
+    private final Map<DexType, List<ProviderGroup>> groupsByHolder = new IdentityHashMap<>();
+    private final Set<DexType> initializedHolders = Sets.newConcurrentHashSet();
+    private ProviderGroup groupBeingInitialized = null;
+
+    // Map backported method to a provider for creating the actual target method (with code). The
+    // providers are grouped by holder such that invokes to types without any backports are
+    // rejected by a single lookup. The providers of a holder are only read once all the groups
+    // with backports on the holder have been initialized.
+    private final Map<DexType, Map<DexMethod, MethodProvider>> rewritable =
+        new ConcurrentHashMap<>();
 
     RewritableMethods(InternalOptions options, AppView<?> appView) {
       this.appView = appView;
@@ -170,19 +188,59 @@ public final class BackportedMethodRewriter implements CfInstructionDesugaring {
       DexItemFactory factory = options.itemFactory;
 
       if (options.minApiLevel.isLessThan(AndroidApiLevel.K)) {
-        initializeAndroidKMethodProviders(factory);
+        addProviderGroup(
+            this::initializeAndroidKMethodProviders,
+            factory.boxedByteType,
+            factory.boxedShortType,
+            factory.boxedIntType,
+            factory.boxedLongType,
+            factory.boxedBooleanType,
+            factory.boxedCharType,
+            factory.objectsType,
+            factory.collectionsType);
       }
       if (options.minApiLevel.isLessThan(AndroidApiLevel.N)) {
-        initializeAndroidNMethodProviders(factory);
+        addProviderGroup(
+            this::initializeAndroidNMethodProviders,
+            factory.boxedByteType,
+            factory.boxedShortType,
+            factory.boxedIntType,
+            factory.boxedDoubleType,
+            factory.boxedFloatType,
+            factory.boxedBooleanType,
+            factory.boxedLongType,
+            factory.boxedCharType,
+            factory.objectsType,
+            factory.mathType,
+            factory.strictMathType);
       }
       if (options.minApiLevel.isLessThan(AndroidApiLevel.O)) {
-        initializeAndroidOMethodProviders(factory);
+        addProviderGroup(
+            this::initializeAndroidOMethodProviders,
+            factory.boxedByteType,
+            factory.boxedShortType,
+            factory.boxedIntType,
+            factory.boxedLongType,
+            factory.stringType);
       }
       if (options.minApiLevel.isLessThan(AndroidApiLevel.R)) {
-        initializeAndroidRMethodProviders(factory);
+        addProviderGroup(
+            this::initializeAndroidRMethodProviders,
+            factory.objectsType,
+            factory.listType,
+            factory.setType,
+            factory.mapType);
       }
       if (options.minApiLevel.isLessThan(AndroidApiLevel.S)) {
-        initializeAndroidSMethodProviders(factory);
+        addProviderGroup(
+            this::initializeAndroidSMethodProviders,
+            factory.listType,
+            factory.setType,
+            factory.mapType,
+            factory.boxedByteType,
+            factory.boxedShortType,
+            factory.mathType,
+            factory.strictMathType);
       }
 
       // The following providers are currently not implemented at any API level in Android.
@@ -191,33 +249,82 @@ public final class BackportedMethodRewriter implements CfInstructionDesugaring {
       // avoid confusion in error messages.
       if (appView.rewritePrefix.hasRewrittenType(factory.optionalType, appView)
           || options.minApiLevel.isGreaterThanOrEqualTo(AndroidApiLevel.N)) {
-        initializeJava9OptionalMethodProviders(factory);
-        initializeJava10OptionalMethodProviders(factory);
-        initializeJava11OptionalMethodProviders(factory);
+        DexType[] optionalTypes = {
+          factory.optionalType,
+          factory.optionalDoubleType,
+          factory.optionalLongType,
+          factory.optionalIntType
+        };
+        addProviderGroup(this::initializeJava9OptionalMethodProviders, optionalTypes);
+        addProviderGroup(this::initializeJava10OptionalMethodProviders, optionalTypes);
+        addProviderGroup(this::initializeJava11OptionalMethodProviders, optionalTypes);
       }
       if (appView.rewritePrefix.hasRewrittenType(factory.streamType, appView)
           || options.minApiLevel.isGreaterThanOrEqualTo(AndroidApiLevel.N)) {
-        initializeStreamMethodProviders(factory);
+        addProviderGroup(this::initializeStreamMethodProviders, factory.streamType);
       }
 
       if (appView.rewritePrefix.hasRewrittenType(factory.supplierType, appView)) {
         // TODO(b/191188594): Consider adding the Objects method from R here, or instead
         //  rely on desugared library to support them.
-        initializeObjectsMethodProviders(factory);
+        addProviderGroup(this::initializeObjectsMethodProviders, factory.objectsType);
       }
 
       // These are currently not implemented at any API level in Android.
-      initializeJava9MethodProviders(factory);
-      initializeJava10MethodProviders(factory);
-      initializeJava11MethodProviders(factory);
+      addProviderGroup(
+          this::initializeJava9MethodProviders, factory.boxedIntType, factory.boxedLongType);
+      addProviderGroup(this::initializeJava10MethodProviders);
+      addProviderGroup(
+          this::initializeJava11MethodProviders,
+          factory.boxedCharType,
+          factory.charSequenceType,
+          factory.stringType);
+    }
+
+    private void addProviderGroup(Consumer<DexItemFactory> initializer, DexType... holders) {
+      ProviderGroup group = new ProviderGroup(initializer, holders);
+      groups.add(group);
+      for (DexType holder : holders) {
+        groupsByHolder.computeIfAbsent(holder, ignoreArgument(ArrayList::new)).add(group);
+      }
+    }
+
+    private void ensureInitialized(DexType holder) {
+      if (initializedHolders.contains(holder)) {
+        return;
+      }
+      List<ProviderGroup> holderGroups = groupsByHolder.get(holder);
+      if (holderGroups == null) {
+        return;
+      }
+      synchronized (this) {
+        holderGroups.forEach(this::initialize);
+        initializedHolders.add(holder);
+      }
+    }
+
+    private void initialize(ProviderGroup group) {
+      assert Thread.holdsLock(this);
+      if (!group.initialized) {
+        groupBeingInitialized = group;
+        group.initializer.accept(appView.dexItemFactory());
+        groupBeingInitialized = null;
+        group.initialized = true;
+      }
     }
 
     boolean isEmpty() {
-      return rewritable.isEmpty();
+      // The Java 9, 10 and 11 backports are always registered when backporting is enabled, thus
+      // there is no need to force the initialization to answer this.
+      return groups.isEmpty();
     }
 
     public void visit(Consumer<DexMethod> consumer) {
-      rewritable.keySet().forEach(consumer);
+      synchronized (this) {
+        groups.forEach(this::initialize);
+        initializedHolders.addAll(groupsByHolder.keySet());
+      }
+      rewritable.values().forEach(providers -> providers.keySet().forEach(consumer));
     }
 
     private void initializeAndroidKMethodProviders(DexItemFactory factory) {
@@ -1388,12 +1495,33 @@ public final class BackportedMethodRewriter implements CfInstructionDesugaring {
           }
         }
       }
-      MethodProvider replaced = rewritable.put(generator.method, generator);
+      DexType holder = generator.method.getHolderType();
+      assert groupBeingInitialized.holders.contains(holder);
+      MethodProvider replaced =
+          rewritable
+              .computeIfAbsent(holder, ignoreArgument(IdentityHashMap::new))
+              .put(generator.method, generator);
       assert replaced == null;
     }
 
     MethodProvider getProvider(DexMethod method) {
-      return rewritable.get(method);
+      ensureInitialized(method.getHolderType());
+      Map<DexMethod, MethodProvider> providers = rewritable.get(method.getHolderType());
+      return providers != null ? providers.get(method) : null;
+    }
+
+    private static class ProviderGroup {
+
+      private final Consumer<DexItemFactory> initializer;
+      private final Set<DexType> holders;
+
+      // Guarded by the enclosing RewritableMethods.
+      private boolean initialized = false;
+
+      ProviderGroup(Consumer<DexItemFactory> initializer, DexType... holders) {
+        this.initializer = initializer;
+        this.holders = ImmutableSet.copyOf(holders);
+      }
     }
   }
 
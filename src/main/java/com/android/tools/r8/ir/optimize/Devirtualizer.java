@@ -283,7 +283,7 @@ public class Devirtualizer {
                 // If we split, add the new checkcast at the end of the currently visiting block.
                 block.listIterator(code, block.getInstructions().size() - 1).add(checkCast);
                 // Update the dominator tree after the split.
-                dominatorTree = new DominatorTree(code);
+                dominatorTree.onBlockSplit(block, blockWithDevirtualizedInvoke);
                 // Restore the cursor.
                 it = blockWithDevirtualizedInvoke.listIterator(code);
                 assert it.peekNext() == devirtualizedInvoke;
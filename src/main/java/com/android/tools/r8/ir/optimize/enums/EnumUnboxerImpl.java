@@ -100,6 +100,7 @@ import com.android.tools.r8.ir.optimize.info.OptimizationFeedback.OptimizationIn
 import com.android.tools.r8.ir.optimize.info.OptimizationFeedbackDelayed;
 import com.android.tools.r8.shaking.AppInfoWithLiveness;
 import com.android.tools.r8.shaking.KeepInfoCollection;
+import com.android.tools.r8.utils.Pair;
 import com.android.tools.r8.utils.Reporter;
 import com.android.tools.r8.utils.StringDiagnostic;
 import com.android.tools.r8.utils.collections.ImmutableInt2ReferenceSortedMap;
@@ -125,9 +126,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.OptionalInt;
+import java.util.Queue;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.function.Consumer;
@@ -153,6 +156,12 @@ public class EnumUnboxerImpl extends EnumUnboxer {
   private LongLivedProgramMethodMapBuilder<LongLivedClassSetBuilder<DexProgramClass>>
       checkNotNullMethodsBuilder;
 
+  // The results of analyzeEnums() are recorded in a buffer per thread, and merged into the
+  // candidate info and the builders above at the end of each wave.
+  private final ThreadLocal<AnalysisBuffer> analysisBuffer =
+      ThreadLocal.withInitial(this::createAnalysisBuffer);
+  private final Queue<AnalysisBuffer> analysisBuffers = new ConcurrentLinkedQueue<>();
+
   private final DexClassAndField ordinalField;
 
   private EnumUnboxingRewriter enumUnboxerRewriter;
@@ -183,8 +192,15 @@ public class EnumUnboxerImpl extends EnumUnboxer {
     return ordinalField;
   }
 
+  private AnalysisBuffer createAnalysisBuffer() {
+    AnalysisBuffer buffer = new AnalysisBuffer();
+    analysisBuffers.add(buffer);
+    return buffer;
+  }
+
   @Override
   public void updateEnumUnboxingCandidatesInfo() {
+    mergeAnalysisBuffers();
     for (DexProgramClass candidate : candidatesToRemoveInWave) {
       enumUnboxingCandidatesInfo.removeCandidate(candidate);
     }
@@ -207,8 +223,64 @@ public class EnumUnboxerImpl extends EnumUnboxer {
     return false;
   }
 
+  private void mergeAnalysisBuffers() {
+    // The buffers are filled in the order in which the methods happened to be processed, so the
+    // results are sorted before they are merged to make the resulting collections deterministic.
+    List<Pair<DexType, ProgramMethod>> methodDependencies = new ArrayList<>();
+    List<Pair<DexProgramClass, DexField>> requiredInstanceFieldData = new ArrayList<>();
+    List<ProgramMethod> methodsDependingOnLibraryModelisation = new ArrayList<>();
+    List<Pair<ProgramMethod, DexProgramClass>> checkNotNullMethods = new ArrayList<>();
+    for (AnalysisBuffer buffer : analysisBuffers) {
+      methodDependencies.addAll(buffer.methodDependencies);
+      requiredInstanceFieldData.addAll(buffer.requiredInstanceFieldData);
+      buffer.methodsDependingOnLibraryModelisation.forEach(
+          methodsDependingOnLibraryModelisation::add);
+      checkNotNullMethods.addAll(buffer.checkNotNullMethods);
+      buffer.clear();
+    }
+
+    methodDependencies.sort(
+        Comparator.comparing(
+                (Pair<DexType, ProgramMethod> pair) -> pair.getSecond().getReference())
+            .thenComparing(Pair::getFirst));
+    for (Pair<DexType, ProgramMethod> pair : methodDependencies) {
+      enumUnboxingCandidatesInfo.addMethodDependency(pair.getFirst(), pair.getSecond());
+    }
+
+    requiredInstanceFieldData.sort(
+        Comparator.comparing(Pair<DexProgramClass, DexField>::getSecond));
+    for (Pair<DexProgramClass, DexField> pair : requiredInstanceFieldData) {
+      enumUnboxingCandidatesInfo.addRequiredEnumInstanceFieldData(
+          pair.getFirst(), pair.getSecond());
+    }
+
+    GraphLens graphLens = appView.graphLens();
+    methodsDependingOnLibraryModelisation.sort(Comparator.comparing(ProgramMethod::getReference));
+    for (ProgramMethod method : methodsDependingOnLibraryModelisation) {
+      this.methodsDependingOnLibraryModelisation.add(method, graphLens);
+    }
+
+    checkNotNullMethods.sort(
+        Comparator.comparing(
+                (Pair<ProgramMethod, DexProgramClass> pair) -> pair.getFirst().getReference())
+            .thenComparing(pair -> pair.getSecond().getType()));
+    for (Pair<ProgramMethod, DexProgramClass> pair : checkNotNullMethods) {
+      checkNotNullMethodsBuilder
+          .computeIfAbsent(
+              pair.getFirst(),
+              ignoreKey(
+                  () -> LongLivedClassSetBuilder.createConcurrentBuilderForIdentitySet(graphLens)),
+              graphLens)
+          .add(pair.getSecond(), graphLens);
+    }
+  }
+
   private void markMethodDependsOnLibraryModelisation(ProgramMethod method) {
-    methodsDependingOnLibraryModelisation.add(method, appView.graphLens());
+    analysisBuffer.get().methodsDependingOnLibraryModelisation.add(method);
+  }
+
+  private void addRequiredEnumInstanceFieldData(DexProgramClass enumClass, DexField field) {
+    analysisBuffer.get().requiredInstanceFieldData.add(new Pair<>(enumClass, field));
   }
 
   private DexProgramClass getEnumUnboxingCandidateOrNull(TypeElement lattice) {
@@ -299,12 +371,12 @@ public class EnumUnboxerImpl extends EnumUnboxer {
         }
       }
     }
-    if (!eligibleEnums.isEmpty()) {
-      for (DexType eligibleEnum : eligibleEnums) {
-        enumUnboxingCandidatesInfo.addMethodDependency(eligibleEnum, code.context());
-      }
+    AnalysisBuffer buffer = analysisBuffer.get();
+    for (DexType eligibleEnum : eligibleEnums) {
+      buffer.methodDependencies.add(new Pair<>(eligibleEnum, code.context()));
     }
-    if (methodsDependingOnLibraryModelisation.contains(code.context(), appView.graphLens())) {
+    if (buffer.methodsDependingOnLibraryModelisation.contains(code.context())
+        || methodsDependingOnLibraryModelisation.contains(code.context(), appView.graphLens())) {
       conversionOptions.disablePeepholeOptimizations();
     }
   }
@@ -494,8 +566,7 @@ public class EnumUnboxerImpl extends EnumUnboxer {
   }
 
   private void addRequiredNameData(DexProgramClass enumClass) {
-    enumUnboxingCandidatesInfo.addRequiredEnumInstanceFieldData(
-        enumClass, factory.enumMembers.nameField);
+    addRequiredEnumInstanceFieldData(enumClass, factory.enumMembers.nameField);
   }
 
   private boolean isUnboxableNameMethod(DexMethod method) {
@@ -1300,7 +1371,7 @@ public class EnumUnboxerImpl extends EnumUnboxer {
       Value enumValue) {
     assert instanceGet.getField().holder == enumClass.type;
     DexField field = instanceGet.getField();
-    enumUnboxingCandidatesInfo.addRequiredEnumInstanceFieldData(enumClass, field);
+    addRequiredEnumInstanceFieldData(enumClass, field);
     return Reason.ELIGIBLE;
   }
 
@@ -1343,16 +1414,8 @@ public class EnumUnboxerImpl extends EnumUnboxer {
             classification.asCheckNotNullClassification();
         if (checkNotNullClassification.isUseEligibleForUnboxing(
             invoke.asInvokeStatic(), enumValue)) {
-          GraphLens graphLens = appView.graphLens();
-          checkNotNullMethodsBuilder
-              .computeIfAbsent(
-                  singleTarget.asProgramMethod(),
-                  ignoreKey(
-                      () ->
-                          LongLivedClassSetBuilder.createConcurrentBuilderForIdentitySet(
-                              graphLens)),
-                  graphLens)
-              .add(enumClass, graphLens);
+          AnalysisBuffer buffer = analysisBuffer.get();
+          buffer.checkNotNullMethods.add(new Pair<>(singleTarget.asProgramMethod(), enumClass));
           return Reason.ELIGIBLE;
         }
       }
@@ -1617,4 +1680,28 @@ public class EnumUnboxerImpl extends EnumUnboxer {
   public void unsetRewriter() {
     enumUnboxerRewriter = null;
   }
+
+  /** Results of {@link #analyzeEnums} on a single thread that have not yet been merged. */
+  private static class AnalysisBuffer {
+
+    // Pairs of an enum and a method that depends on it.
+    private final List<Pair<DexType, ProgramMethod>> methodDependencies = new ArrayList<>();
+
+    private final List<Pair<DexProgramClass, DexField>> requiredInstanceFieldData =
+        new ArrayList<>();
+
+    private final ProgramMethodSet methodsDependingOnLibraryModelisation =
+        ProgramMethodSet.create();
+
+    // Pairs of a checkNotNull() method and an enum that uses it.
+    private final List<Pair<ProgramMethod, DexProgramClass>> checkNotNullMethods =
+        new ArrayList<>();
+
+    void clear() {
+      methodDependencies.clear();
+      requiredInstanceFieldData.clear();
+      methodsDependingOnLibraryModelisation.clear();
+      checkNotNullMethods.clear();
+    }
+  }
 }
@@ -136,8 +136,25 @@ class EnumUnboxingLens extends NestedGraphLens {
         boolean fromStatic,
         boolean toStatic,
         int numberOfExtraNullParameters) {
+      RewrittenPrototypeDescription prototypeChanges =
+          computePrototypeChanges(from, to, fromStatic, toStatic, numberOfExtraNullParameters);
+      move(from, to, prototypeChanges);
+      return prototypeChanges;
+    }
+
+    public void move(DexMethod from, DexMethod to, RewrittenPrototypeDescription prototypeChanges) {
       assert from != to;
       newMethodSignatures.put(from, to);
+      prototypeChangesPerMethod.put(to, prototypeChanges);
+    }
+
+    static RewrittenPrototypeDescription computePrototypeChanges(
+        DexMethod from,
+        DexMethod to,
+        boolean fromStatic,
+        boolean toStatic,
+        int numberOfExtraNullParameters) {
+      assert from != to;
       int offsetDiff = 0;
       int toOffset = BooleanUtils.intValue(!toStatic);
       RewrittenPrototypeDescription.ArgumentInfoCollection.Builder builder =
@@ -164,11 +181,8 @@ class EnumUnboxingLens extends NestedGraphLens {
               ? null
               : new RewrittenPrototypeDescription.RewrittenTypeInfo(
                   from.proto.returnType, to.proto.returnType);
-      RewrittenPrototypeDescription prototypeChanges =
-          RewrittenPrototypeDescription.createForRewrittenTypes(returnInfo, builder.build())
-              .withExtraUnusedNullParameters(numberOfExtraNullParameters);
-      prototypeChangesPerMethod.put(to, prototypeChanges);
-      return prototypeChanges;
+      return RewrittenPrototypeDescription.createForRewrittenTypes(returnInfo, builder.build())
+          .withExtraUnusedNullParameters(numberOfExtraNullParameters);
     }
 
     void recordCheckNotZeroMethod(
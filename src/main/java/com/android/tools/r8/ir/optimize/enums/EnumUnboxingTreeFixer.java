@@ -104,33 +104,36 @@ class EnumUnboxingTreeFixer {
     // We do this before so that we can still perform lookup of definitions.
     fixupEnumClassInitializers(converter, executorService);
 
-    // Fix all methods and fields using enums to unbox.
-    // TODO(b/191617665): Parallelize this fixup.
+    // Fix all methods and fields using enums to unbox. Each class is only changed by its own
+    // fixup, except that the members of an unboxed enum are moved to its local utility class.
+    // Therefore the unboxed enums are processed after all other classes.
+    List<ClassFixup> fixups = new ArrayList<>();
+    List<ClassFixup> unboxedEnumFixups = new ArrayList<>();
+    List<ClassFixup> otherFixups = new ArrayList<>();
     for (DexProgramClass clazz : appView.appInfo().classes()) {
+      ClassFixup fixup = new ClassFixup(clazz);
+      fixups.add(fixup);
       if (enumDataMap.isUnboxedEnum(clazz)) {
-        // Clear the initializers and move the other methods to the new location.
-        LocalEnumUnboxingUtilityClass localUtilityClass =
-            utilityClasses.getLocalUtilityClass(clazz);
-        Collection<DexEncodedField> localUtilityFields =
-            createLocalUtilityFields(clazz, localUtilityClass, prunedItemsBuilder);
-        Collection<DexEncodedMethod> localUtilityMethods =
-            createLocalUtilityMethods(clazz, localUtilityClass, prunedItemsBuilder);
-
-        // Cleanup old class.
-        clazz.clearInstanceFields();
-        clazz.clearStaticFields();
-        clazz.getMethodCollection().clearDirectMethods();
-        clazz.getMethodCollection().clearVirtualMethods();
-
-        // Update members on the local utility class.
-        localUtilityClass.getDefinition().setDirectMethods(localUtilityMethods);
-        localUtilityClass.getDefinition().setStaticFields(localUtilityFields);
+        unboxedEnumFixups.add(fixup);
       } else {
-        clazz.getMethodCollection().replaceMethods(method -> fixupEncodedMethod(clazz, method));
-        fixupFields(clazz.staticFields(), clazz::setStaticField);
-        fixupFields(clazz.instanceFields(), clazz::setInstanceField);
+        otherFixups.add(fixup);
       }
     }
+    ThreadUtils.processItemsInBatches(
+        otherFixups,
+        fixup -> estimateFixupCost(fixup.clazz),
+        this::fixupClass,
+        executorService);
+    ThreadUtils.processItemsInBatches(
+        unboxedEnumFixups,
+        fixup -> estimateFixupCost(fixup.clazz),
+        this::fixupUnboxedEnum,
+        executorService);
+    // Record the moves and pruned items in class order, such that the lens does not depend on
+    // the order in which the classes were processed.
+    for (ClassFixup fixup : fixups) {
+      fixup.apply(prunedItemsBuilder);
+    }
 
     // Create mapping from checkNotNull() to checkNotZero() methods.
     BiMap<DexMethod, DexMethod> checkNotNullToCheckNotZeroMapping =
@@ -422,10 +425,43 @@ class EnumUnboxingTreeFixer {
         code, OptimizationFeedbackIgnore.getInstance(), Timing.empty());
   }
 
+  private static long estimateFixupCost(DexProgramClass clazz) {
+    return clazz.getMethodCollection().size()
+        + clazz.staticFields().size()
+        + clazz.instanceFields().size();
+  }
+
+  private void fixupClass(ClassFixup fixup) {
+    DexProgramClass clazz = fixup.clazz;
+    clazz.getMethodCollection().replaceMethods(method -> fixupEncodedMethod(fixup, method));
+    fixupFields(clazz.staticFields(), clazz::setStaticField, fixup);
+    fixupFields(clazz.instanceFields(), clazz::setInstanceField, fixup);
+  }
+
+  private void fixupUnboxedEnum(ClassFixup fixup) {
+    DexProgramClass clazz = fixup.clazz;
+    // Clear the initializers and move the other methods to the new location.
+    LocalEnumUnboxingUtilityClass localUtilityClass = utilityClasses.getLocalUtilityClass(clazz);
+    Collection<DexEncodedField> localUtilityFields =
+        createLocalUtilityFields(clazz, localUtilityClass, fixup);
+    Collection<DexEncodedMethod> localUtilityMethods =
+        createLocalUtilityMethods(clazz, localUtilityClass, fixup);
+
+    // Cleanup old class.
+    clazz.clearInstanceFields();
+    clazz.clearStaticFields();
+    clazz.getMethodCollection().clearDirectMethods();
+    clazz.getMethodCollection().clearVirtualMethods();
+
+    // Update members on the local utility class.
+    localUtilityClass.getDefinition().setDirectMethods(localUtilityMethods);
+    localUtilityClass.getDefinition().setStaticFields(localUtilityFields);
+  }
+
   private Collection<DexEncodedField> createLocalUtilityFields(
       DexProgramClass unboxedEnum,
       LocalEnumUnboxingUtilityClass localUtilityClass,
-      PrunedItems.Builder prunedItemsBuilder) {
+      ClassFixup fixup) {
     EnumData enumData = enumDataMap.get(unboxedEnum);
     Map<DexField, DexEncodedField> localUtilityFields =
         new LinkedHashMap<>(unboxedEnum.staticFields().size());
@@ -434,7 +470,7 @@ class EnumUnboxingTreeFixer {
     unboxedEnum.forEachProgramField(
         field -> {
           if (isPrunedAfterEnumUnboxing(field, enumData)) {
-            prunedItemsBuilder.addRemovedField(field.getReference());
+            fixup.removedFields.add(field.getReference());
             return;
           }
 
@@ -442,7 +478,8 @@ class EnumUnboxingTreeFixer {
               createLocalUtilityField(
                   field,
                   localUtilityClass,
-                  newFieldSignature -> !localUtilityFields.containsKey(newFieldSignature));
+                  newFieldSignature -> !localUtilityFields.containsKey(newFieldSignature),
+                  fixup);
           assert !localUtilityFields.containsKey(newLocalUtilityField.getReference());
           localUtilityFields.put(newLocalUtilityField.getReference(), newLocalUtilityField);
         });
@@ -452,7 +489,8 @@ class EnumUnboxingTreeFixer {
   private DexEncodedField createLocalUtilityField(
       ProgramField field,
       LocalEnumUnboxingUtilityClass localUtilityClass,
-      Predicate<DexField> availableFieldSignatures) {
+      Predicate<DexField> availableFieldSignatures,
+      ClassFixup fixup) {
     // Create a new, fresh field signature on the local utility class.
     DexField newFieldSignature =
         factory.createFreshFieldNameWithoutHolder(
@@ -462,7 +500,7 @@ class EnumUnboxingTreeFixer {
             availableFieldSignatures);
 
     // Record the move.
-    lensBuilder.move(field.getReference(), newFieldSignature);
+    fixup.move(field.getReference(), newFieldSignature);
 
     // Clear annotations and publicize.
     return field
@@ -482,7 +520,7 @@ class EnumUnboxingTreeFixer {
   private Collection<DexEncodedMethod> createLocalUtilityMethods(
       DexProgramClass unboxedEnum,
       LocalEnumUnboxingUtilityClass localUtilityClass,
-      PrunedItems.Builder prunedItemsBuilder) {
+      ClassFixup fixup) {
     Map<DexMethod, DexEncodedMethod> localUtilityMethods =
         new LinkedHashMap<>(
             localUtilityClass.getDefinition().getMethodCollection().size()
@@ -494,13 +532,14 @@ class EnumUnboxingTreeFixer {
     unboxedEnum.forEachProgramMethod(
         method -> {
           if (method.getDefinition().isInstanceInitializer()) {
-            prunedItemsBuilder.addRemovedMethod(method.getReference());
+            fixup.removedMethods.add(method.getReference());
           } else {
             DexEncodedMethod newLocalUtilityMethod =
                 createLocalUtilityMethod(
                     method,
                     localUtilityClass,
-                    newMethodSignature -> !localUtilityMethods.containsKey(newMethodSignature));
+                    newMethodSignature -> !localUtilityMethods.containsKey(newMethodSignature),
+                    fixup);
             assert !localUtilityMethods.containsKey(newLocalUtilityMethod.getReference());
             localUtilityMethods.put(newLocalUtilityMethod.getReference(), newLocalUtilityMethod);
           }
@@ -511,7 +550,8 @@ class EnumUnboxingTreeFixer {
   private DexEncodedMethod createLocalUtilityMethod(
       ProgramMethod method,
       LocalEnumUnboxingUtilityClass localUtilityClass,
-      Predicate<DexMethod> availableMethodSignatures) {
+      Predicate<DexMethod> availableMethodSignatures,
+      ClassFixup fixup) {
     DexMethod methodReference = method.getReference();
 
     // Create a new, fresh method signature on the local utility class. We prefix the method by "_"
@@ -529,7 +569,7 @@ class EnumUnboxingTreeFixer {
                 availableMethodSignatures);
 
     // Record the move.
-    lensBuilder.move(methodReference, newMethod, method.getDefinition().isStatic(), true);
+    fixup.move(methodReference, newMethod, method.getDefinition().isStatic(), true, 0);
 
     return method
         .getDefinition()
@@ -557,7 +597,7 @@ class EnumUnboxingTreeFixer {
             && !field.getDefinition().getOptimizationInfo().isDead());
   }
 
-  private DexEncodedMethod fixupEncodedMethod(DexProgramClass holder, DexEncodedMethod method) {
+  private DexEncodedMethod fixupEncodedMethod(ClassFixup fixup, DexEncodedMethod method) {
     DexProto oldProto = method.getProto();
     DexProto newProto = fixupProto(oldProto);
     if (newProto == method.getProto()) {
@@ -574,7 +614,7 @@ class EnumUnboxingTreeFixer {
     int numberOfExtraNullParameters = newMethod.getArity() - method.getReference().getArity();
     boolean isStatic = method.isStatic();
     RewrittenPrototypeDescription prototypeChanges =
-        lensBuilder.move(
+        fixup.move(
             method.getReference(), newMethod, isStatic, isStatic, numberOfExtraNullParameters);
     return method.toTypeSubstitutedMethod(
         newMethod,
@@ -608,7 +648,8 @@ class EnumUnboxingTreeFixer {
     return newMethod;
   }
 
-  private void fixupFields(List<DexEncodedField> fields, DexClass.FieldSetter setter) {
+  private void fixupFields(
+      List<DexEncodedField> fields, DexClass.FieldSetter setter, ClassFixup fixup) {
     if (fields == null) {
       return;
     }
@@ -618,7 +659,7 @@ class EnumUnboxingTreeFixer {
       DexType newType = fixupType(field.type);
       if (newType != field.type) {
         DexField newField = field.withType(newType, factory);
-        lensBuilder.move(field, newField);
+        fixup.move(field, newField);
         DexEncodedField newEncodedField =
             encodedField.toTypeSubstitutedField(
                 newField,
@@ -661,6 +702,64 @@ class EnumUnboxingTreeFixer {
     return result;
   }
 
+  /**
+   * The moves and pruned items of a single class. These are recorded by the fixup of the class,
+   * which may run concurrently with the fixup of other classes, and are applied in class order.
+   */
+  private class ClassFixup {
+
+    private final DexProgramClass clazz;
+
+    private final List<DexField> movedFieldSources = new ArrayList<>();
+    private final List<DexField> movedFieldTargets = new ArrayList<>();
+
+    private final List<DexMethod> movedMethodSources = new ArrayList<>();
+    private final List<DexMethod> movedMethodTargets = new ArrayList<>();
+    private final List<RewrittenPrototypeDescription> movedMethodPrototypeChanges =
+        new ArrayList<>();
+
+    private final List<DexField> removedFields = new ArrayList<>();
+    private final List<DexMethod> removedMethods = new ArrayList<>();
+
+    ClassFixup(DexProgramClass clazz) {
+      this.clazz = clazz;
+    }
+
+    void move(DexField from, DexField to) {
+      movedFieldSources.add(from);
+      movedFieldTargets.add(to);
+    }
+
+    RewrittenPrototypeDescription move(
+        DexMethod from,
+        DexMethod to,
+        boolean fromStatic,
+        boolean toStatic,
+        int numberOfExtraNullParameters) {
+      RewrittenPrototypeDescription prototypeChanges =
+          EnumUnboxingLens.Builder.computePrototypeChanges(
+              from, to, fromStatic, toStatic, numberOfExtraNullParameters);
+      movedMethodSources.add(from);
+      movedMethodTargets.add(to);
+      movedMethodPrototypeChanges.add(prototypeChanges);
+      return prototypeChanges;
+    }
+
+    void apply(PrunedItems.Builder prunedItemsBuilder) {
+      for (int i = 0; i < movedFieldSources.size(); i++) {
+        lensBuilder.move(movedFieldSources.get(i), movedFieldTargets.get(i));
+      }
+      for (int i = 0; i < movedMethodSources.size(); i++) {
+        lensBuilder.move(
+            movedMethodSources.get(i),
+            movedMethodTargets.get(i),
+            movedMethodPrototypeChanges.get(i));
+      }
+      removedFields.forEach(prunedItemsBuilder::addRemovedField);
+      removedMethods.forEach(prunedItemsBuilder::addRemovedMethod);
+    }
+  }
+
   public static class Result {
 
     private final BiMap<DexMethod, DexMethod> checkNotNullToCheckNotZeroMapping;
@@ -199,7 +199,7 @@ public class CfApplicationWriter {
     }
     String desc = namingLens.lookupDescriptor(clazz.type).toString();
     String name = namingLens.lookupInternalName(clazz.type);
-    String signature = clazz.getClassSignature().toRenamedString(namingLens, isTypeMissing);
+    String signature = clazz.getClassSignatureString(namingLens, isTypeMissing);
     String superName =
         clazz.type == options.itemFactory.objectType
             ? null
@@ -235,7 +235,7 @@ public class CfApplicationWriter {
         String componentDescriptor =
             namingLens.lookupDescriptor(instanceField.getReference().type).toString();
         String componentSignature =
-            instanceField.getGenericSignature().toRenamedString(namingLens, isTypeMissing);
+            instanceField.getGenericSignatureString(namingLens, isTypeMissing);
         writer.visitRecordComponent(componentName, componentDescriptor, componentSignature);
       }
     }
@@ -390,7 +390,7 @@ public class CfApplicationWriter {
     }
     String name = namingLens.lookupName(field.getReference()).toString();
     String desc = namingLens.lookupDescriptor(field.getReference().type).toString();
-    String signature = field.getGenericSignature().toRenamedString(namingLens, isTypeMissing);
+    String signature = field.getGenericSignatureString(namingLens, isTypeMissing);
     Object value = getStaticValue(field);
     FieldVisitor visitor = writer.visitField(access, name, desc, signature, value);
     writeAnnotations(visitor::visitAnnotation, field.annotations().annotations);
@@ -417,8 +417,7 @@ public class CfApplicationWriter {
     }
     String name = namingLens.lookupName(method.getReference()).toString();
     String desc = definition.descriptor(namingLens);
-    String signature =
-        method.getDefinition().getGenericSignature().toRenamedString(namingLens, isTypeMissing);
+    String signature = definition.getGenericSignatureString(namingLens, isTypeMissing);
     String[] exceptions = getExceptions(definition.annotations());
     MethodVisitor visitor = writer.visitMethod(access, name, desc, signature, exceptions);
     if (defaults.containsKey(definition.getName())) {
@@ -395,6 +395,12 @@ public class KotlinClassInfo implements KotlinClassLevelInfo {
         rewritten || !originalMembersWithKotlinInfo.isEqual(rewrittenReferences, appView));
   }
 
+  @Override
+  public boolean hasOriginalMembersWithKotlinInfo(DexClass clazz, AppView<?> appView) {
+    return originalMembersWithKotlinInfo.isEqual(
+        KotlinMetadataMembersTracker.ofMembersWithKotlinInfo(clazz, appView), appView);
+  }
+
   @Override
   public String getPackageName() {
     return packageName;
@@ -60,6 +60,12 @@ public interface KotlinClassLevelInfo extends EnqueuerMetadataTraceable {
   Pair<KotlinClassHeader, Boolean> rewrite(
       DexClass clazz, AppView<?> appView, NamingLens namingLens);
 
+  /**
+   * Returns true if the members of the class that are described by the metadata are still present,
+   * such that rewriting the metadata does not drop any of them.
+   */
+  boolean hasOriginalMembersWithKotlinInfo(DexClass clazz, AppView<?> appView);
+
   String getPackageName();
 
   int[] getMetadataVersion();
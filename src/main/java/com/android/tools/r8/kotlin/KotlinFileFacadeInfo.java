@@ -67,6 +67,11 @@ public class KotlinFileFacadeInfo implements KotlinClassLevelInfo {
     return Pair.create(writer.write().getHeader(), rewritten);
   }
 
+  @Override
+  public boolean hasOriginalMembersWithKotlinInfo(DexClass clazz, AppView<?> appView) {
+    return packageInfo.hasOriginalMembersWithKotlinInfo(clazz, appView);
+  }
+
   @Override
   public String getPackageName() {
     return packageName;
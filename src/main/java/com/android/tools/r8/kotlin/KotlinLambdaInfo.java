@@ -82,6 +82,18 @@ public class KotlinLambdaInfo implements EnqueuerMetadataTraceable {
     return function.rewrite(visitorProvider.get()::visitFunction, backing, appView, namingLens);
   }
 
+  boolean hasOriginalBacking(DexClass clazz) {
+    if (!hasBacking) {
+      return false;
+    }
+    for (DexEncodedMethod method : clazz.methods()) {
+      if (method.getKotlinInfo() == function) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   @Override
   public void trace(DexDefinitionSupplier definitionSupplier) {
     function.trace(definitionSupplier);
@@ -153,6 +153,9 @@ public class KotlinMetadataEnqueuerExtension extends EnqueuerAnalysis {
 
     @Override
     public DexClass definitionFor(DexType type) {
+      if (type.isArrayType()) {
+        return null;
+      }
       // TODO(b/157700128) Metadata cannot at this point keep anything alive. Therefore, if a type
       //  has been pruned it may still be referenced, so we do an early check here to ensure it will
       //  not end up as. Ideally, those types should be removed by a pass on the modeled data.
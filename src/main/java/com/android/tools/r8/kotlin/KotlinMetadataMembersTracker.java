@@ -5,6 +5,9 @@
 package com.android.tools.r8.kotlin;
 
 import com.android.tools.r8.graph.AppView;
+import com.android.tools.r8.graph.DexClass;
+import com.android.tools.r8.graph.DexEncodedField;
+import com.android.tools.r8.graph.DexEncodedMethod;
 import com.android.tools.r8.graph.DexMember;
 import com.android.tools.r8.graph.DexReference;
 import com.android.tools.r8.graph.DexType;
@@ -23,6 +26,23 @@ public class KotlinMetadataMembersTracker {
     references = appView.options().testing.enableTestAssertions ? Sets.newIdentityHashSet() : null;
   }
 
+  /** Returns a tracker of the members of the class that currently have Kotlin info. */
+  static KotlinMetadataMembersTracker ofMembersWithKotlinInfo(DexClass clazz, AppView<?> appView) {
+    KotlinMetadataMembersTracker tracker = new KotlinMetadataMembersTracker(appView);
+    for (DexEncodedField field : clazz.fields()) {
+      if (field.getKotlinInfo().isProperty()) {
+        tracker.add(field.getReference());
+      }
+    }
+    for (DexEncodedMethod method : clazz.methods()) {
+      KotlinMethodLevelInfo kotlinInfo = method.getKotlinInfo();
+      if (kotlinInfo.isConstructor() || kotlinInfo.isFunction() || kotlinInfo.isProperty()) {
+        tracker.add(method.getReference());
+      }
+    }
+    return tracker;
+  }
+
   public void add(DexMember<?, ?> reference) {
     count += 1;
     if (references != null) {
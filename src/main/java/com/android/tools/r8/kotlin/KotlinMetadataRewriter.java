@@ -12,8 +12,14 @@ import com.android.tools.r8.graph.AppView;
 import com.android.tools.r8.graph.DexAnnotation;
 import com.android.tools.r8.graph.DexAnnotationElement;
 import com.android.tools.r8.graph.DexClass;
+import com.android.tools.r8.graph.DexDefinitionSupplier;
 import com.android.tools.r8.graph.DexEncodedAnnotation;
+import com.android.tools.r8.graph.DexEncodedField;
+import com.android.tools.r8.graph.DexEncodedMember;
+import com.android.tools.r8.graph.DexEncodedMethod;
+import com.android.tools.r8.graph.DexField;
 import com.android.tools.r8.graph.DexItemFactory;
+import com.android.tools.r8.graph.DexMethod;
 import com.android.tools.r8.graph.DexString;
 import com.android.tools.r8.graph.DexType;
 import com.android.tools.r8.graph.DexValue;
@@ -21,6 +27,7 @@ import com.android.tools.r8.graph.DexValue.DexValueArray;
 import com.android.tools.r8.graph.DexValue.DexValueInt;
 import com.android.tools.r8.graph.DexValue.DexValueString;
 import com.android.tools.r8.naming.NamingLens;
+import com.android.tools.r8.utils.BooleanBox;
 import com.android.tools.r8.utils.ConsumerUtils;
 import com.android.tools.r8.utils.Pair;
 import com.android.tools.r8.utils.ThreadUtils;
@@ -122,9 +129,14 @@ public class KotlinMetadataRewriter {
                       .annotations()
                       .keepIf(anno -> isNotKotlinMetadata(anno, rewrittenMetadataType)));
             }
-            return;
+          } else {
+            writeKotlinInfoToAnnotation(clazz, kotlinInfo, oldMeta, writeMetadataFieldInfo);
           }
-          writeKotlinInfoToAnnotation(clazz, kotlinInfo, oldMeta, writeMetadataFieldInfo);
+          // The metadata is parsed eagerly by the enqueuer, since the references in it must be
+          // traced, but the model is not used after it has been written back to the annotation.
+          // Drop it such that the model does not stay alive while the application is written.
+          clazz.clearKotlinInfo();
+          clazz.members().forEach(DexEncodedMember::clearKotlinInfo);
         },
         executorService);
   }
@@ -158,6 +170,14 @@ public class KotlinMetadataRewriter {
       DexAnnotation oldMeta,
       WriteMetadataFieldInfo writeMetadataFieldInfo) {
     try {
+      if (appView.options().testing.keepMetadataInR8IfNotRewritten
+          && hasUnchangedReferences(clazz, kotlinInfo)) {
+        // Nothing that the metadata refers to is renamed or removed, so the original annotation is
+        // kept without rewriting the metadata.
+        assert appView.checkForTesting(
+            () -> !kotlinInfo.rewrite(clazz, appView, lens).getSecond());
+        return;
+      }
       Pair<KotlinClassHeader, Boolean> kotlinClassHeader = kotlinInfo.rewrite(clazz, appView, lens);
       // TODO(b/185756596): Remove when special handling is no longer needed.
       if (!kotlinClassHeader.getSecond()
@@ -196,6 +216,74 @@ public class KotlinMetadataRewriter {
     }
   }
 
+  /**
+   * Returns true if the class, its members with Kotlin info and all types that the metadata refers
+   * to are unchanged by the lenses, and no member described by the metadata has been removed.
+   */
+  private boolean hasUnchangedReferences(DexClass clazz, KotlinClassLevelInfo kotlinInfo) {
+    DexType type = clazz.getType();
+    if (isRenamed(type) || appView.graphLens().getOriginalType(type) != type) {
+      return false;
+    }
+    for (DexEncodedField field : clazz.fields()) {
+      if (!field.getKotlinInfo().isNoKotlinInformation() && isRenamed(field.getReference())) {
+        return false;
+      }
+    }
+    for (DexEncodedMethod method : clazz.methods()) {
+      if (!method.getKotlinInfo().isNoKotlinInformation() && isRenamed(method.getReference())) {
+        return false;
+      }
+    }
+    if (!kotlinInfo.hasOriginalMembersWithKotlinInfo(clazz, appView)) {
+      return false;
+    }
+    BooleanBox hasRenamedType = new BooleanBox();
+    DexDefinitionSupplier renamedTypeChecker =
+        new DexDefinitionSupplier() {
+          @Override
+          public DexClass definitionFor(DexType type) {
+            if (isRenamed(type)) {
+              hasRenamedType.set();
+            }
+            return null;
+          }
+
+          @Override
+          public DexItemFactory dexItemFactory() {
+            return factory;
+          }
+        };
+    kotlinInfo.trace(renamedTypeChecker);
+    clazz.members().forEach(member -> member.getKotlinInfo().trace(renamedTypeChecker));
+    return hasRenamedType.isFalse();
+  }
+
+  private boolean isRenamed(DexType type) {
+    DexType baseType = type.toBaseType(factory);
+    if (!baseType.isClassType()) {
+      return false;
+    }
+    if (appView.graphLens().lookupClassType(baseType) != baseType) {
+      return true;
+    }
+    if (appView.appInfo().hasLiveness()
+        && !appView.withLiveness().appInfo().isNonProgramTypeOrLiveProgramType(baseType)) {
+      return true;
+    }
+    return lens.lookupDescriptor(baseType) != baseType.getDescriptor();
+  }
+
+  private boolean isRenamed(DexField field) {
+    return appView.graphLens().getOriginalFieldSignature(field) != field
+        || lens.lookupName(field) != field.getName();
+  }
+
+  private boolean isRenamed(DexMethod method) {
+    return appView.graphLens().getOriginalMethodSignature(method) != method
+        || lens.lookupName(method) != method.getName();
+  }
+
   private boolean verifyRewrittenMetadataIsEquivalent(
       DexAnnotation original, DexAnnotation rewritten) {
     String originalMetadata =
@@ -55,6 +55,11 @@ public class KotlinMetadataUtils {
       throw new Unreachable("Should never be called");
     }
 
+    @Override
+    public boolean hasOriginalMembersWithKotlinInfo(DexClass clazz, AppView<?> appView) {
+      throw new Unreachable("Should never be called");
+    }
+
     @Override
     public String getPackageName() {
       throw new Unreachable("Should never be called");
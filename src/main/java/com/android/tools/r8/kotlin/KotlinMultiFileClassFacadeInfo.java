@@ -77,6 +77,12 @@ public class KotlinMultiFileClassFacadeInfo implements KotlinClassLevelInfo {
     return Pair.create(writer.write(partClassNameStrings).getHeader(), rewritten);
   }
 
+  @Override
+  public boolean hasOriginalMembersWithKotlinInfo(DexClass clazz, AppView<?> appView) {
+    // The facade only refers to the classes of its parts.
+    return true;
+  }
+
   @Override
   public String getPackageName() {
     return packageName;
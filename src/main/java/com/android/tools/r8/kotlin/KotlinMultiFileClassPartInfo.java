@@ -75,6 +75,11 @@ public class KotlinMultiFileClassPartInfo implements KotlinClassLevelInfo {
     return Pair.create(writer.write(facadeClassName).getHeader(), rewritten);
   }
 
+  @Override
+  public boolean hasOriginalMembersWithKotlinInfo(DexClass clazz, AppView<?> appView) {
+    return packageInfo.hasOriginalMembersWithKotlinInfo(clazz, appView);
+  }
+
   @Override
   public String getPackageName() {
     return packageName;
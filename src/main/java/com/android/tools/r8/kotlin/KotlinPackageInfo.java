@@ -95,6 +95,11 @@ public class KotlinPackageInfo implements EnqueuerMetadataTraceable {
     return rewritten || !originalMembersWithKotlinInfo.isEqual(rewrittenReferences, appView);
   }
 
+  boolean hasOriginalMembersWithKotlinInfo(DexClass clazz, AppView<?> appView) {
+    return originalMembersWithKotlinInfo.isEqual(
+        KotlinMetadataMembersTracker.ofMembersWithKotlinInfo(clazz, appView), appView);
+  }
+
   @Override
   public void trace(DexDefinitionSupplier definitionSupplier) {
     containerInfo.trace(definitionSupplier);
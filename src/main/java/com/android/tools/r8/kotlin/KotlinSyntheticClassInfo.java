@@ -93,6 +93,11 @@ public class KotlinSyntheticClassInfo implements KotlinClassLevelInfo {
     }
   }
 
+  @Override
+  public boolean hasOriginalMembersWithKotlinInfo(DexClass clazz, AppView<?> appView) {
+    return lambda == null || lambda.hasOriginalBacking(clazz);
+  }
+
   @Override
   public String getPackageName() {
     return packageName;
@@ -154,8 +154,9 @@ class KotlinTypeReference implements EnqueuerMetadataTraceable {
 
   @Override
   public void trace(DexDefinitionSupplier definitionSupplier) {
-    if (known != null && known.isClassType()) {
-      // Lookup the definition, ignoring the result. This populates the sets in the Enqueuer.
+    if (known != null && known.isReferenceType()) {
+      // Lookup the definition, ignoring the result. This populates the sets in the Enqueuer. Array
+      // types have no definition, but are included such that all references are visited.
       definitionSupplier.contextIndependentDefinitionFor(known);
     }
   }
@@ -74,7 +74,7 @@ public class ArgumentPropagator {
         ImmediateProgramSubtypingInfo.create(appView);
     List<Set<DexProgramClass>> stronglyConnectedProgramClasses =
         new ProgramClassesBidirectedGraph(appView, immediateSubtypingInfo)
-            .computeStronglyConnectedComponents();
+            .computeStronglyConnectedComponentsLargestFirst();
     ThreadUtils.processItems(
         stronglyConnectedProgramClasses,
         classes -> {
@@ -140,7 +140,7 @@ public class ArgumentPropagator {
         ImmediateProgramSubtypingInfo.create(appView);
     List<Set<DexProgramClass>> stronglyConnectedProgramComponents =
         new ProgramClassesBidirectedGraph(appView, immediateSubtypingInfo)
-            .computeStronglyConnectedComponents();
+            .computeStronglyConnectedComponentsLargestFirst();
     timing.end();
 
     // Set the optimization info on each method.
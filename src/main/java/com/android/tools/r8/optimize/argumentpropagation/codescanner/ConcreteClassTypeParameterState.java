@@ -12,7 +12,6 @@ import com.android.tools.r8.ir.analysis.value.AbstractValue;
 import com.android.tools.r8.optimize.argumentpropagation.utils.WideningUtils;
 import com.android.tools.r8.shaking.AppInfoWithLiveness;
 import com.android.tools.r8.utils.Action;
-import com.android.tools.r8.utils.SetUtils;
 import java.util.Collections;
 import java.util.Set;
 
@@ -22,7 +21,7 @@ public class ConcreteClassTypeParameterState extends ConcreteReferenceTypeParame
   private DynamicType dynamicType;
 
   public ConcreteClassTypeParameterState(MethodParameter inParameter) {
-    this(AbstractValue.bottom(), DynamicType.bottom(), SetUtils.newHashSet(inParameter));
+    this(AbstractValue.bottom(), DynamicType.bottom(), Collections.singleton(inParameter));
   }
 
   public ConcreteClassTypeParameterState(AbstractValue abstractValue, DynamicType dynamicType) {
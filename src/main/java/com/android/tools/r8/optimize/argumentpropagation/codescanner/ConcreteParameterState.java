@@ -21,6 +21,9 @@ public abstract class ConcreteParameterState extends NonEmptyParameterState {
     RECEIVER
   }
 
+  // The in-parameters are represented using an immutable set when there are at most one
+  // in-parameter, since most parameter states have no or a single in-parameter. The set is replaced
+  // by a mutable HashSet when a second in-parameter is added.
   private Set<MethodParameter> inParameters;
 
   ConcreteParameterState(Set<MethodParameter> inParameters) {
@@ -34,8 +37,7 @@ public abstract class ConcreteParameterState extends NonEmptyParameterState {
   }
 
   public Set<MethodParameter> copyInParameters() {
-    if (inParameters.isEmpty()) {
-      assert inParameters == Collections.<MethodParameter>emptySet();
+    if (isImmutableInParameters()) {
       return inParameters;
     }
     return new HashSet<>(inParameters);
@@ -46,10 +48,15 @@ public abstract class ConcreteParameterState extends NonEmptyParameterState {
   }
 
   public Set<MethodParameter> getInParameters() {
-    assert inParameters.isEmpty() || inParameters instanceof HashSet<?>;
+    assert isImmutableInParameters() || inParameters instanceof HashSet<?>;
     return inParameters;
   }
 
+  private boolean isImmutableInParameters() {
+    assert !inParameters.isEmpty() || inParameters == Collections.<MethodParameter>emptySet();
+    return inParameters.size() <= 1 && !(inParameters instanceof HashSet<?>);
+  }
+
   public abstract ConcreteParameterStateKind getKind();
 
   public boolean isArrayParameter() {
@@ -134,9 +141,18 @@ public abstract class ConcreteParameterState extends NonEmptyParameterState {
     if (parameterState.inParameters.isEmpty()) {
       return false;
     }
-    if (inParameters.isEmpty()) {
-      assert inParameters == Collections.<MethodParameter>emptySet();
-      inParameters = new HashSet<>();
+    if (isImmutableInParameters()) {
+      if (inParameters.containsAll(parameterState.inParameters)) {
+        return false;
+      }
+      if (inParameters.isEmpty() && parameterState.isImmutableInParameters()) {
+        inParameters = parameterState.inParameters;
+        return true;
+      }
+      Set<MethodParameter> newInParameters = new HashSet<>(inParameters);
+      newInParameters.addAll(parameterState.inParameters);
+      inParameters = newInParameters;
+      return true;
     }
     return inParameters.addAll(parameterState.inParameters);
   }
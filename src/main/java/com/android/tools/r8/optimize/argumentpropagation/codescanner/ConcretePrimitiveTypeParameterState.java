@@ -9,7 +9,6 @@ import com.android.tools.r8.graph.DexType;
 import com.android.tools.r8.ir.analysis.value.AbstractValue;
 import com.android.tools.r8.shaking.AppInfoWithLiveness;
 import com.android.tools.r8.utils.Action;
-import com.android.tools.r8.utils.SetUtils;
 import java.util.Collections;
 import java.util.Set;
 
@@ -30,7 +29,7 @@ public class ConcretePrimitiveTypeParameterState extends ConcreteParameterState
   }
 
   public ConcretePrimitiveTypeParameterState(MethodParameter inParameter) {
-    this(AbstractValue.bottom(), SetUtils.newHashSet(inParameter));
+    this(AbstractValue.bottom(), Collections.singleton(inParameter));
   }
 
   @Override
@@ -56,7 +56,7 @@ public class InParameterFlowPropagator {
     FlowGraph flowGraph = new FlowGraph(appView.appInfo().classes());
 
     List<Set<ParameterNode>> stronglyConnectedComponents =
-        flowGraph.computeStronglyConnectedComponents();
+        flowGraph.computeStronglyConnectedComponentsLargestFirst();
     ThreadUtils.processItems(stronglyConnectedComponents, this::process, executorService);
 
     // The algorithm only changes the parameter states of each monomorphic method state. In case any
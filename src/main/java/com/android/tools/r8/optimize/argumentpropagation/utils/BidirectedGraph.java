@@ -6,6 +6,7 @@ package com.android.tools.r8.optimize.argumentpropagation.utils;
 
 import com.android.tools.r8.utils.WorkList;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -36,6 +37,19 @@ public abstract class BidirectedGraph<T> {
     return stronglyConnectedComponents;
   }
 
+  /**
+   * Computes the strongly connected components in the current bidirectional graph, sorted by
+   * decreasing size. When the components are processed in parallel, this ensures that the largest
+   * components are scheduled first, so that the processing of a single large component is not
+   * started after all the small components have been processed.
+   */
+  public List<Set<T>> computeStronglyConnectedComponentsLargestFirst() {
+    List<Set<T>> stronglyConnectedComponents = computeStronglyConnectedComponents();
+    // The sort is stable, thus components of the same size remain in a deterministic order.
+    stronglyConnectedComponents.sort(Comparator.comparingInt(component -> -component.size()));
+    return stronglyConnectedComponents;
+  }
+
   private Set<T> internalComputeStronglyConnectedProgramClasses(T node) {
     WorkList<T> worklist = WorkList.newEqualityWorkList(node);
     while (worklist.hasNext()) {
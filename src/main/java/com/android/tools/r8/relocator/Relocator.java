@@ -46,7 +46,7 @@ public class Relocator {
         command.getReporter(),
         () -> {
           try {
-            run(command, executor, app, options);
+            run(command, executor, app, options, true);
           } finally {
             executor.shutdown();
           }
@@ -66,7 +66,27 @@ public class Relocator {
     ExceptionUtils.withCompilationHandler(
         command.getReporter(),
         () -> {
-          run(command, executor, app, options);
+          run(command, executor, app, options, true);
+        });
+  }
+
+  /**
+   * Relocates the input by reading the application, also when the class files could be relocated
+   * independently.
+   */
+  static void runWithoutStreamingForTesting(RelocatorCommand command)
+      throws CompilationFailedException {
+    AndroidApp app = command.getApp();
+    InternalOptions options = command.getInternalOptions();
+    ExecutorService executor = ThreadUtils.getExecutorService(options);
+    ExceptionUtils.withCompilationHandler(
+        command.getReporter(),
+        () -> {
+          try {
+            run(command, executor, app, options, false);
+          } finally {
+            executor.shutdown();
+          }
         });
   }
 
@@ -74,27 +94,14 @@ public class Relocator {
       RelocatorCommand command,
       ExecutorService executor,
       AndroidApp inputApp,
-      InternalOptions options)
+      InternalOptions options,
+      boolean allowStreaming)
       throws IOException {
     Timing timing = Timing.create("Relocator", options);
     try {
-      DexApplication app = new ApplicationReader(inputApp, options, timing).read(executor);
-      AppInfo appInfo = AppInfo.createInitialAppInfo(app);
-      AppView<?> appView = AppView.createForRelocator(appInfo);
-      appView.setAppServices(AppServices.builder(appView).build());
-
-      SimplePackagesRewritingMapper packageRemapper = new SimplePackagesRewritingMapper(appView);
-      NamingLens namingLens = packageRemapper.compute(command.getMapping());
-
-      new GenericSignatureRewriter(appView, namingLens).run(appInfo.classes(), executor);
-
-      new CfApplicationWriter(
-              appView,
-              new Marker(Tool.Relocator),
-              GraphLens.getIdentityLens(),
-              namingLens,
-              null)
-          .write(command.getConsumer());
+      if (!allowStreaming || !StreamingRelocator.run(command, options, executor, timing)) {
+        relocateApplication(command, executor, inputApp, options, timing);
+      }
       options.printWarnings();
     } catch (ExecutionException e) {
       throw unwrapExecutionException(e);
@@ -106,4 +113,26 @@ public class Relocator {
       }
     }
   }
+
+  private static void relocateApplication(
+      RelocatorCommand command,
+      ExecutorService executor,
+      AndroidApp inputApp,
+      InternalOptions options,
+      Timing timing)
+      throws IOException, ExecutionException {
+    DexApplication app = new ApplicationReader(inputApp, options, timing).read(executor);
+    AppInfo appInfo = AppInfo.createInitialAppInfo(app);
+    AppView<?> appView = AppView.createForRelocator(appInfo);
+    appView.setAppServices(AppServices.builder(appView).build());
+
+    SimplePackagesRewritingMapper packageRemapper = new SimplePackagesRewritingMapper(appView);
+    NamingLens namingLens = packageRemapper.compute(command.getMapping());
+
+    new GenericSignatureRewriter(appView, namingLens).run(appInfo.classes(), executor);
+
+    new CfApplicationWriter(
+            appView, new Marker(Tool.Relocator), GraphLens.getIdentityLens(), namingLens, null)
+        .write(command.getConsumer());
+  }
 }
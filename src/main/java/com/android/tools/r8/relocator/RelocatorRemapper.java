@@ -0,0 +1,64 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.relocator;
+
+import com.android.tools.r8.graph.DexItemFactory;
+import com.android.tools.r8.utils.DescriptorUtils;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import org.objectweb.asm.commons.Remapper;
+
+/**
+ * Remapper for relocating the binary names referenced from a single class file.
+ *
+ * <p>A binary name is relocated if it is in a source package or one of its subpackages, which
+ * matches the relocation of types by {@link SimplePackagesRewritingMapper}.
+ */
+class RelocatorRemapper extends Remapper {
+
+  private final Map<String, String> packageMappings;
+  private final DexItemFactory factory;
+  private final Map<String, String> relocatedNames = new HashMap<>();
+
+  RelocatorRemapper(Map<String, String> packageMappings, DexItemFactory factory) {
+    this.packageMappings = packageMappings;
+    this.factory = factory;
+  }
+
+  @Override
+  public String map(String internalName) {
+    return relocatedNames.computeIfAbsent(internalName, this::relocate);
+  }
+
+  @Override
+  public String mapInnerClassName(String name, String ownerName, String innerName) {
+    // The simple name of a class does not change when relocating its package.
+    return innerName;
+  }
+
+  private String relocate(String internalName) {
+    for (Entry<String, String> packageMapping : packageMappings.entrySet()) {
+      String source = packageMapping.getKey();
+      if (isInPackageOrSubpackage(internalName, source)) {
+        // Create the type such that the naming lens computed after the class files have been
+        // relocated reports ambiguous relocations and adapts resource names referencing the type.
+        factory.createType(DescriptorUtils.getDescriptorFromClassBinaryName(internalName));
+        return packageMapping.getValue() + internalName.substring(source.length());
+      }
+    }
+    return internalName;
+  }
+
+  private static boolean isInPackageOrSubpackage(String internalName, String packageName) {
+    if (packageName.isEmpty()) {
+      return true;
+    }
+    return internalName.length() > packageName.length()
+        && internalName.charAt(packageName.length())
+            == DescriptorUtils.DESCRIPTOR_PACKAGE_SEPARATOR
+        && internalName.startsWith(packageName);
+  }
+}
@@ -21,6 +21,7 @@ import com.android.tools.r8.utils.InternalOptions;
 import com.google.common.collect.ImmutableMap;
 import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.Map.Entry;
 
 class SimplePackagesRewritingMapper {
 
@@ -41,21 +42,10 @@ class SimplePackagesRewritingMapper {
         }
       }
     }
-    ImmutableMap.Builder<String, String> packingMappings = ImmutableMap.builder();
-    for (PackageReference key : mapping.keySet()) {
-      String source = key.getPackageName();
-      String target = mapping.get(key).getPackageName();
-      if (source.equals(target)) {
-        // No need for relocating identities.
-        continue;
-      }
-      if (source.isEmpty()) {
-        assert !target.isEmpty();
-        target = target + DescriptorUtils.JAVA_PACKAGE_SEPARATOR;
-      }
-      String sourceBinary = DescriptorUtils.getBinaryNameFromJavaType(source);
-      String targetBinary = DescriptorUtils.getBinaryNameFromJavaType(target);
-      packingMappings.put(sourceBinary, targetBinary);
+    Map<String, String> packageMappings = computePackageMappings(mapping);
+    for (Entry<String, String> packageMapping : packageMappings.entrySet()) {
+      String sourceBinary = packageMapping.getKey();
+      String targetBinary = packageMapping.getValue();
       DexString sourceDescriptor = appView.dexItemFactory().createString("L" + sourceBinary);
       DexString targetDescriptor = appView.dexItemFactory().createString("L" + targetBinary);
       // TODO(b/129925954): Change to a lazy implementation in the naming lens.
@@ -90,7 +80,33 @@ class SimplePackagesRewritingMapper {
               });
     }
 
-    return new RelocatorNamingLens(typeMappings, packingMappings.build(), appView.dexItemFactory());
+    return new RelocatorNamingLens(typeMappings, packageMappings, appView.dexItemFactory());
+  }
+
+  /**
+   * Returns the package mappings as binary names, excluding identities. The target of a mapping
+   * from the empty package ends with a package separator, such that a type in a source package is
+   * relocated by replacing the source prefix of its binary name with the target.
+   */
+  static Map<String, String> computePackageMappings(
+      Map<PackageReference, PackageReference> mapping) {
+    ImmutableMap.Builder<String, String> packageMappings = ImmutableMap.builder();
+    for (PackageReference key : mapping.keySet()) {
+      String source = key.getPackageName();
+      String target = mapping.get(key).getPackageName();
+      if (source.equals(target)) {
+        // No need for relocating identities.
+        continue;
+      }
+      if (source.isEmpty()) {
+        assert !target.isEmpty();
+        target = target + DescriptorUtils.JAVA_PACKAGE_SEPARATOR;
+      }
+      packageMappings.put(
+          DescriptorUtils.getBinaryNameFromJavaType(source),
+          DescriptorUtils.getBinaryNameFromJavaType(target));
+    }
+    return packageMappings.build();
   }
 
   private static class RelocatorNamingLens extends NonIdentityNamingLens {
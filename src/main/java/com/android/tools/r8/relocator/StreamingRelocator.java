@@ -0,0 +1,236 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.relocator;
+
+import com.android.tools.r8.ByteDataView;
+import com.android.tools.r8.ClassFileConsumer;
+import com.android.tools.r8.DataResourceProvider;
+import com.android.tools.r8.Diagnostic;
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.ProgramResource;
+import com.android.tools.r8.ProgramResource.Kind;
+import com.android.tools.r8.ProgramResourceProvider;
+import com.android.tools.r8.ResourceException;
+import com.android.tools.r8.dex.ApplicationWriter;
+import com.android.tools.r8.graph.AppInfo;
+import com.android.tools.r8.graph.AppServices;
+import com.android.tools.r8.graph.AppView;
+import com.android.tools.r8.graph.DexApplication;
+import com.android.tools.r8.graph.DexItemFactory;
+import com.android.tools.r8.graph.GenericSignature;
+import com.android.tools.r8.graph.GraphLens;
+import com.android.tools.r8.graph.LazyLoadedDexApplication;
+import com.android.tools.r8.naming.NamingLens;
+import com.android.tools.r8.origin.Origin;
+import com.android.tools.r8.utils.AndroidApp;
+import com.android.tools.r8.utils.DescriptorUtils;
+import com.android.tools.r8.utils.ExceptionUtils;
+import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.StringDiagnostic;
+import com.android.tools.r8.utils.ThreadUtils;
+import com.android.tools.r8.utils.Timing;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.RecordComponentVisitor;
+import org.objectweb.asm.commons.ClassRemapper;
+
+/**
+ * Relocates each program class file independently of the other class files, without reading the
+ * application.
+ *
+ * <p>The class files are rewritten in parallel by an ASM {@link ClassRemapper}. If some input
+ * cannot be relocated in isolation, nothing is passed to the consumers and the relocation must be
+ * done by reading the application, which also reports the issues with the input.
+ */
+class StreamingRelocator {
+
+  private final RelocatorCommand command;
+  private final InternalOptions options;
+  private final Map<String, String> packageMappings;
+
+  private StreamingRelocator(RelocatorCommand command, InternalOptions options) {
+    this.command = command;
+    this.options = options;
+    this.packageMappings =
+        SimplePackagesRewritingMapper.computePackageMappings(command.getMapping());
+  }
+
+  /** Returns true if the input was relocated, and false if the application must be read. */
+  static boolean run(
+      RelocatorCommand command,
+      InternalOptions options,
+      ExecutorService executor,
+      Timing timing)
+      throws ExecutionException {
+    try {
+      return new StreamingRelocator(command, options).run(executor, timing);
+    } catch (ResourceException e) {
+      throw options.reporter.fatalError(new StringDiagnostic(e.getMessage(), e.getOrigin()));
+    }
+  }
+
+  private boolean run(ExecutorService executor, Timing timing)
+      throws ExecutionException, ResourceException {
+    // TODO(b/155047618): Relocating to the empty package yields invalid types, which are reported
+    //  when reading the application.
+    if (packageMappings.containsValue("")) {
+      return false;
+    }
+    AndroidApp inputApp = command.getApp();
+    Collection<ProgramResource> resources = inputApp.computeAllProgramResources();
+    for (ProgramResource resource : resources) {
+      if (resource.getKind() != Kind.CF) {
+        return false;
+      }
+    }
+
+    timing.begin("Relocate class files");
+    Collection<RelocatedClassFile> classFiles =
+        ThreadUtils.processItemsWithResults(resources, this::relocate, executor);
+    timing.end();
+    Set<String> descriptors = new HashSet<>();
+    for (RelocatedClassFile classFile : classFiles) {
+      if (classFile == null || !descriptors.add(classFile.descriptor)) {
+        return false;
+      }
+    }
+
+    // The naming lens is only used for reporting ambiguous relocations and for adapting data
+    // resources, so it suffices that the factory contains the relocated types.
+    timing.begin("Compute naming lens");
+    LazyLoadedDexApplication.Builder builder = DexApplication.builder(options, timing);
+    for (ProgramResourceProvider provider : inputApp.getProgramResourceProviders()) {
+      DataResourceProvider dataResourceProvider = provider.getDataResourceProvider();
+      if (dataResourceProvider != null) {
+        builder.addDataResourceProvider(dataResourceProvider);
+      }
+    }
+    DexApplication app = builder.build();
+    AppView<?> appView = AppView.createForRelocator(AppInfo.createInitialAppInfo(app));
+    appView.setAppServices(AppServices.builder(appView).build());
+    NamingLens namingLens =
+        new SimplePackagesRewritingMapper(appView).compute(command.getMapping());
+    timing.end();
+
+    timing.begin("Write class files");
+    ClassFileConsumer consumer = command.getConsumer();
+    for (RelocatedClassFile classFile : classFiles) {
+      ExceptionUtils.withConsumeResourceHandler(
+          options.reporter,
+          handler ->
+              consumer.accept(ByteDataView.of(classFile.bytes), classFile.descriptor, handler));
+    }
+    ApplicationWriter.supplyAdditionalConsumers(
+        app, appView, GraphLens.getIdentityLens(), namingLens, options);
+    timing.end();
+    return true;
+  }
+
+  private RelocatedClassFile relocate(ProgramResource resource) throws ResourceException {
+    byte[] bytes = resource.getBytes();
+    RelocatorRemapper remapper = new RelocatorRemapper(packageMappings, options.dexItemFactory());
+    try {
+      ClassReader reader = new ClassReader(bytes);
+      ClassWriter writer = new ClassWriter(0);
+      GenericSignatureValidator validator =
+          new GenericSignatureValidator(
+              new ClassRemapper(writer, remapper), resource.getOrigin(), options.dexItemFactory());
+      reader.accept(validator, 0);
+      if (validator.hasInvalidSignature) {
+        // Invalid signatures are reported and removed when reading the application. The remapper
+        // does not reject all of them, and would instead rewrite them in its own way.
+        return null;
+      }
+      return new RelocatedClassFile(
+          DescriptorUtils.getDescriptorFromClassBinaryName(remapper.map(reader.getClassName())),
+          writer.toByteArray());
+    } catch (RuntimeException e) {
+      // Class files that cannot be parsed, or that have signatures that cannot be parsed, are
+      // reported when reading the application.
+      return null;
+    }
+  }
+
+  /**
+   * Parses the generic signatures of a class file using the same parser as when reading the
+   * application, and records if any of them is invalid.
+   */
+  private static class GenericSignatureValidator extends ClassVisitor {
+
+    private final Origin origin;
+    private final DexItemFactory factory;
+    private final DiagnosticsHandler diagnosticsHandler =
+        new DiagnosticsHandler() {
+          @Override
+          public void warning(Diagnostic warning) {
+            hasInvalidSignature = true;
+          }
+        };
+
+    private boolean hasInvalidSignature = false;
+
+    private GenericSignatureValidator(
+        ClassVisitor classVisitor, Origin origin, DexItemFactory factory) {
+      super(InternalOptions.ASM_VERSION, classVisitor);
+      this.origin = origin;
+      this.factory = factory;
+    }
+
+    @Override
+    public void visit(
+        int version,
+        int access,
+        String name,
+        String signature,
+        String superName,
+        String[] interfaces) {
+      GenericSignature.parseClassSignature(name, signature, origin, factory, diagnosticsHandler);
+      super.visit(version, access, name, signature, superName, interfaces);
+    }
+
+    @Override
+    public RecordComponentVisitor visitRecordComponent(
+        String name, String descriptor, String signature) {
+      GenericSignature.parseFieldTypeSignature(
+          name, signature, origin, factory, diagnosticsHandler);
+      return super.visitRecordComponent(name, descriptor, signature);
+    }
+
+    @Override
+    public FieldVisitor visitField(
+        int access, String name, String descriptor, String signature, Object value) {
+      GenericSignature.parseFieldTypeSignature(
+          name, signature, origin, factory, diagnosticsHandler);
+      return super.visitField(access, name, descriptor, signature, value);
+    }
+
+    @Override
+    public MethodVisitor visitMethod(
+        int access, String name, String descriptor, String signature, String[] exceptions) {
+      GenericSignature.parseMethodSignature(name, signature, origin, factory, diagnosticsHandler);
+      return super.visitMethod(access, name, descriptor, signature, exceptions);
+    }
+  }
+
+  private static class RelocatedClassFile {
+
+    private final String descriptor;
+    private final byte[] bytes;
+
+    private RelocatedClassFile(String descriptor, byte[] bytes) {
+      this.descriptor = descriptor;
+      this.bytes = bytes;
+    }
+  }
+}
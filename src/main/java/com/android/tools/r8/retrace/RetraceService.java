@@ -0,0 +1,348 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.retrace;
+
+import com.android.tools.r8.DiagnosticsHandler;
+import com.android.tools.r8.retrace.internal.RetracerImpl;
+import com.android.tools.r8.retrace.internal.StackTraceRegularExpressionParser;
+import com.android.tools.r8.utils.ExceptionDiagnostic;
+import com.android.tools.r8.utils.OptionsParsing;
+import com.android.tools.r8.utils.OptionsParsing.ParseContext;
+import com.android.tools.r8.utils.StringDiagnostic;
+import com.android.tools.r8.utils.StringUtils;
+import com.android.tools.r8.utils.ThreadUtils;
+import com.google.common.base.Charsets;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A long running retrace service that retraces requests read from an input stream.
+ *
+ * <p>Each request is on the form:
+ *
+ * <pre>
+ *   #mapping &lt;path-to-mapping-file&gt;
+ *   &lt;stack trace lines&gt;
+ *   #end
+ * </pre>
+ *
+ * <p>The requests are retraced concurrently, and the retraced stack traces are written to the
+ * output in the order of the requests, each terminated by a line with {@code #end}. A line with
+ * {@code #stats} writes a line with the throughput of the service so far.
+ *
+ * <p>The parsed mapping files are cached by the hash of their content, such that stack traces for
+ * the same mapping file share a single immutable retracer. The least recently used mapping file is
+ * evicted when the cache is full. The hash of a mapping file is only recomputed when the size or
+ * the modification time of the file changes.
+ */
+public class RetraceService {
+
+  public static final String USAGE_MESSAGE =
+      StringUtils.lines(
+          "Usage: retrace-service [--regex <regexp>, --verbose, --thread-count <number>,"
+              + " --cache-size <number>]",
+          "  Reads requests from standard input and writes the result to standard output.");
+
+  static final String MAPPING_PREFIX = "#mapping ";
+  static final String END = "#end";
+  static final String ERROR_PREFIX = "#error ";
+  static final String STATS = "#stats";
+
+  private static final int DEFAULT_CACHE_SIZE = 4;
+
+  // The maximum number of requests that are read ahead of the request being written.
+  static final int MAX_PENDING_REQUESTS = 256;
+
+  private final DiagnosticsHandler diagnosticsHandler;
+  private final String regularExpression;
+  private final boolean isVerbose;
+  private final int threadCount;
+
+  // The retracers for the most recently used mapping files, keyed by the hash of the mapping file.
+  private final Map<HashCode, StringRetrace> retracerCache;
+  // The hash of the most recently used mapping files, keyed by their path. Guarded by the lock on
+  // retracerCache.
+  private final Map<String, MappingFileHash> mappingFileHashes;
+
+  private final AtomicLong numberOfRequests = new AtomicLong();
+  private final AtomicLong numberOfLines = new AtomicLong();
+  private final AtomicLong numberOfMappingCacheHits = new AtomicLong();
+  private final AtomicLong numberOfMappingCacheMisses = new AtomicLong();
+
+  public RetraceService(
+      DiagnosticsHandler diagnosticsHandler,
+      String regularExpression,
+      boolean isVerbose,
+      int threadCount,
+      int cacheSize) {
+    this.diagnosticsHandler = diagnosticsHandler;
+    this.regularExpression = regularExpression;
+    this.isVerbose = isVerbose;
+    this.threadCount = threadCount;
+    this.retracerCache = createLeastRecentlyUsedCache(cacheSize);
+    this.mappingFileHashes = createLeastRecentlyUsedCache(cacheSize);
+  }
+
+  private static <K, V> Map<K, V> createLeastRecentlyUsedCache(int cacheSize) {
+    return new LinkedHashMap<K, V>(cacheSize, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+        return size() > cacheSize;
+      }
+    };
+  }
+
+  /**
+   * Retraces all requests from {@param input} and writes the result to {@param output}. Returns
+   * when the end of the input has been reached and all requests have been written.
+   */
+  public void run(Reader input, PrintStream output) throws IOException {
+    long start = System.nanoTime();
+    ExecutorService executorService = ThreadUtils.getExecutorService(threadCount);
+    // The results are written by a single thread in the order of the requests.
+    ExecutorService outputService = Executors.newSingleThreadExecutor();
+    Deque<Future<?>> outputFutures = new ArrayDeque<>();
+    try {
+      BufferedReader reader = new BufferedReader(input);
+      String mappingPath = null;
+      List<String> stackTrace = null;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (stackTrace == null) {
+          if (line.startsWith(MAPPING_PREFIX)) {
+            mappingPath = line.substring(MAPPING_PREFIX.length()).trim();
+            stackTrace = new ArrayList<>();
+          } else if (line.equals(STATS)) {
+            String stats = getStats(start);
+            addOutputFuture(outputFutures, outputService.submit(() -> output.println(stats)));
+          } else if (!line.isEmpty()) {
+            diagnosticsHandler.warning(
+                new StringDiagnostic("Expected '" + MAPPING_PREFIX + "', but was: " + line));
+          }
+        } else if (line.equals(END)) {
+          String requestMappingPath = mappingPath;
+          List<String> requestStackTrace = stackTrace;
+          Future<List<String>> result =
+              executorService.submit(() -> retrace(requestMappingPath, requestStackTrace));
+          addOutputFuture(outputFutures, outputService.submit(() -> writeResult(result, output)));
+          mappingPath = null;
+          stackTrace = null;
+        } else {
+          stackTrace.add(line);
+        }
+      }
+      if (stackTrace != null) {
+        diagnosticsHandler.warning(
+            new StringDiagnostic("Missing '" + END + "' for the last request"));
+      }
+      ThreadUtils.awaitFutures(outputFutures);
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    } finally {
+      executorService.shutdown();
+      outputService.shutdown();
+    }
+    diagnosticsHandler.info(new StringDiagnostic(getStats(start)));
+  }
+
+  private static void addOutputFuture(Deque<Future<?>> outputFutures, Future<?> outputFuture)
+      throws ExecutionException {
+    outputFutures.addLast(outputFuture);
+    // The results are written in the order of the requests, so the written results are at the head
+    // of the queue. Wait for the oldest result when too many requests are pending, such that
+    // reading the input does not run arbitrarily far ahead of the output.
+    while (!outputFutures.isEmpty()
+        && (outputFutures.peekFirst().isDone() || outputFutures.size() > MAX_PENDING_REQUESTS)) {
+      ThreadUtils.awaitFutures(Collections.singletonList(outputFutures.pollFirst()));
+    }
+  }
+
+  private List<String> retrace(String mappingPath, List<String> stackTrace) throws IOException {
+    StringRetrace stringRetrace = getRetracer(mappingPath);
+    List<String> result = stringRetrace.retrace(stackTrace);
+    numberOfRequests.incrementAndGet();
+    numberOfLines.addAndGet(stackTrace.size());
+    return result;
+  }
+
+  private StringRetrace getRetracer(String mappingPath) throws IOException {
+    Path path = Paths.get(mappingPath);
+    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+    synchronized (retracerCache) {
+      MappingFileHash mappingFileHash = mappingFileHashes.get(mappingPath);
+      if (mappingFileHash != null && mappingFileHash.isUpToDate(attributes)) {
+        StringRetrace cached = retracerCache.get(mappingFileHash.hash);
+        if (cached != null) {
+          numberOfMappingCacheHits.incrementAndGet();
+          return cached;
+        }
+      }
+    }
+    String mapping = new String(Files.readAllBytes(path), Charsets.UTF_8);
+    HashCode hash = Hashing.sha256().hashString(mapping, Charsets.UTF_8);
+    synchronized (retracerCache) {
+      mappingFileHashes.put(mappingPath, new MappingFileHash(attributes, hash));
+      StringRetrace cached = retracerCache.get(hash);
+      if (cached != null) {
+        numberOfMappingCacheHits.incrementAndGet();
+        return cached;
+      }
+    }
+    numberOfMappingCacheMisses.incrementAndGet();
+    // The mapping file is parsed outside the lock, such that requests for other mapping files are
+    // not blocked while parsing.
+    StringRetrace stringRetrace =
+        new StringRetrace(
+            new StackTraceRegularExpressionParser(regularExpression),
+            StackTraceElementProxyRetracer.createDefault(
+                RetracerImpl.create(
+                    ProguardMapProducer.fromString(mapping),
+                    diagnosticsHandler,
+                    System.getProperty("com.android.tools.r8.experimentalmapping") != null)),
+            diagnosticsHandler,
+            isVerbose);
+    synchronized (retracerCache) {
+      StringRetrace existing = retracerCache.putIfAbsent(hash, stringRetrace);
+      return existing != null ? existing : stringRetrace;
+    }
+  }
+
+  private static class MappingFileHash {
+
+    private final long size;
+    private final FileTime lastModifiedTime;
+    private final HashCode hash;
+
+    private MappingFileHash(BasicFileAttributes attributes, HashCode hash) {
+      this.size = attributes.size();
+      this.lastModifiedTime = attributes.lastModifiedTime();
+      this.hash = hash;
+    }
+
+    private boolean isUpToDate(BasicFileAttributes attributes) {
+      return size == attributes.size() && lastModifiedTime.equals(attributes.lastModifiedTime());
+    }
+  }
+
+  private void writeResult(Future<List<String>> result, PrintStream output) {
+    try {
+      result.get().forEach(output::println);
+    } catch (ExecutionException e) {
+      diagnosticsHandler.error(new ExceptionDiagnostic(e.getCause()));
+      output.println(ERROR_PREFIX + e.getCause().getMessage());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      output.println(ERROR_PREFIX + "Interrupted");
+    }
+    output.println(END);
+    output.flush();
+  }
+
+  private String getStats(long start) {
+    long elapsedMs = Math.max((System.nanoTime() - start) / 1000000, 1);
+    long requests = numberOfRequests.get();
+    long lines = numberOfLines.get();
+    return String.format(
+        "Retraced %d stack traces (%d lines) in %d ms (%d lines/s), mapping cache hits: %d,"
+            + " misses: %d",
+        requests,
+        lines,
+        elapsedMs,
+        lines * 1000 / elapsedMs,
+        numberOfMappingCacheHits.get(),
+        numberOfMappingCacheMisses.get());
+  }
+
+  private static RetraceService parseArguments(
+      String[] args, DiagnosticsHandler diagnosticsHandler) {
+    ParseContext context = new ParseContext(args);
+    String regularExpression = StackTraceRegularExpressionParser.DEFAULT_REGULAR_EXPRESSION;
+    boolean isVerbose = false;
+    int threadCount = ThreadUtils.NOT_SPECIFIED;
+    int cacheSize = DEFAULT_CACHE_SIZE;
+    while (context.head() != null) {
+      Boolean help = OptionsParsing.tryParseBoolean(context, "--help");
+      if (help != null) {
+        return null;
+      }
+      Boolean verbose = OptionsParsing.tryParseBoolean(context, "--verbose");
+      if (verbose != null) {
+        isVerbose = verbose;
+        continue;
+      }
+      String regex = OptionsParsing.tryParseSingle(context, "--regex", "r");
+      if (regex != null && !regex.isEmpty()) {
+        regularExpression = regex;
+        continue;
+      }
+      String threads = OptionsParsing.tryParseSingle(context, "--thread-count", null);
+      if (threads != null) {
+        threadCount = parsePositiveInt(threads, "--thread-count", diagnosticsHandler);
+        continue;
+      }
+      String size = OptionsParsing.tryParseSingle(context, "--cache-size", null);
+      if (size != null) {
+        cacheSize = parsePositiveInt(size, "--cache-size", diagnosticsHandler);
+        continue;
+      }
+      diagnosticsHandler.error(
+          new StringDiagnostic(String.format("Unknown argument '%s'", context.head())));
+      throw new RuntimeException(USAGE_MESSAGE);
+    }
+    return new RetraceService(
+        diagnosticsHandler, regularExpression, isVerbose, threadCount, cacheSize);
+  }
+
+  private static int parsePositiveInt(
+      String value, String option, DiagnosticsHandler diagnosticsHandler) {
+    try {
+      int result = Integer.parseInt(value);
+      if (result > 0) {
+        return result;
+      }
+    } catch (NumberFormatException e) {
+      // Handled below.
+    }
+    diagnosticsHandler.error(
+        new StringDiagnostic("Invalid argument to " + option + ": " + value));
+    throw new RuntimeException(USAGE_MESSAGE);
+  }
+
+  public static void main(String[] args) throws IOException {
+    RetraceService service = parseArguments(args, new DiagnosticsHandler() {});
+    if (service == null) {
+      System.out.print(USAGE_MESSAGE);
+      return;
+    }
+    try (PrintStream output = new PrintStream(System.out, false, Charsets.UTF_8.name())) {
+      service.run(new InputStreamReader(System.in, Charsets.UTF_8), output);
+    } catch (UnsupportedEncodingException e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
@@ -0,0 +1,213 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.retrace.internal;
+
+import com.android.tools.r8.retrace.internal.StackTraceElementStringProxy.ClassNameType;
+import com.android.tools.r8.retrace.internal.StackTraceElementStringProxy.StackTraceElementStringProxyBuilder;
+
+/**
+ * A scanner for the most common shapes of stack trace lines, which computes the same result as
+ * matching the line against {@link StackTraceRegularExpressionParser#DEFAULT_REGULAR_EXPRESSION}
+ * without running the regular expression.
+ *
+ * <p>The scanner recognizes frames on the form {@code at a.b.c(SourceFile:12)} and exception lines
+ * on the form {@code Caused by: a.b.C: message}. It only accepts lines for which the regular
+ * expression has a single way of matching the line. For all other lines it returns null, and the
+ * line must be parsed using the regular expression.
+ */
+class DefaultStackTraceLineScanner {
+
+  private static final String AT = "at";
+  private static final String CAUSED_BY = "Caused by:";
+
+  static StackTraceElementStringProxy tryParse(String line) {
+    int index = skipSpaces(line, 0);
+    if (line.startsWith(AT, index)) {
+      return tryParseFrame(line, index + AT.length());
+    }
+    if (line.startsWith(CAUSED_BY, index)) {
+      return tryParseCausedBy(line, index + CAUSED_BY.length());
+    }
+    return null;
+  }
+
+  // Parses the remainder of a line on the form `at <class>.<method>(<source>[:<line>])`.
+  private static StackTraceElementStringProxy tryParseFrame(String line, int index) {
+    int classStart = skipSpaces(line, index);
+    if (classStart == index) {
+      return null;
+    }
+    int lastDot = -1;
+    int current = classStart;
+    boolean atSegmentStart = true;
+    while (current < line.length()) {
+      char c = line.charAt(current);
+      if (c == '.') {
+        if (atSegmentStart) {
+          return null;
+        }
+        lastDot = current;
+        atSegmentStart = true;
+      } else if (c == '<') {
+        // Only <init> and <clinit> are allowed, and only as the method name.
+        if (!atSegmentStart || lastDot < 0) {
+          return null;
+        }
+        int end = line.indexOf('>', current);
+        if (end < 0 || !isInitializerName(line, current, end + 1)) {
+          return null;
+        }
+        current = end + 1;
+        if (current >= line.length() || line.charAt(current) != '(') {
+          return null;
+        }
+        atSegmentStart = false;
+        break;
+      } else if (c == '(') {
+        break;
+      } else if (atSegmentStart ? isIdentifierStart(c) : isIdentifierPart(c)) {
+        atSegmentStart = false;
+      } else {
+        return null;
+      }
+      current++;
+    }
+    if (current >= line.length() || atSegmentStart || lastDot < 0) {
+      return null;
+    }
+    int openParenthesis = current;
+    // The line must end with the closing parenthesis.
+    int closeParenthesis = line.length() - 1;
+    if (closeParenthesis <= openParenthesis || line.charAt(closeParenthesis) != ')') {
+      return null;
+    }
+    int sourceStart = openParenthesis + 1;
+    int sourceEnd = sourceStart;
+    while (sourceEnd < closeParenthesis) {
+      char c = line.charAt(sourceEnd);
+      if (c == ':') {
+        break;
+      }
+      if (c == '(' || c == ')') {
+        return null;
+      }
+      sourceEnd++;
+    }
+    int lineNumberStart = -1;
+    if (sourceEnd < closeParenthesis) {
+      lineNumberStart = sourceEnd + 1;
+      if (lineNumberStart == closeParenthesis) {
+        return null;
+      }
+      for (int i = lineNumberStart; i < closeParenthesis; i++) {
+        if (!isDigit(line.charAt(i))) {
+          return null;
+        }
+      }
+    }
+    if (line.regionMatches(classStart, "Suppressed", 0, lastDot - classStart)
+        && lastDot - classStart == "Suppressed".length()) {
+      return null;
+    }
+    StackTraceElementStringProxyBuilder builder = StackTraceElementStringProxy.builder(line);
+    builder.registerClassName(classStart, lastDot, ClassNameType.TYPENAME);
+    builder.registerMethodName(lastDot + 1, openParenthesis);
+    builder.registerSourceFile(sourceStart, sourceEnd);
+    if (lineNumberStart >= 0) {
+      builder.registerLineNumber(lineNumberStart, closeParenthesis, false);
+    }
+    return builder.build();
+  }
+
+  // Parses the remainder of a line on the form `Caused by: <class>[: <message>]`.
+  private static StackTraceElementStringProxy tryParseCausedBy(String line, int index) {
+    int classStart = skipSpaces(line, index);
+    if (classStart == index) {
+      return null;
+    }
+    int classEnd = skipClassName(line, classStart);
+    if (classEnd < 0) {
+      return null;
+    }
+    if (classEnd < line.length()) {
+      // The message must not be matched by the regular expression as a class name or a frame, so
+      // it cannot contain any of `:"(` and must contain a printable character that is not part of
+      // a class name.
+      if (line.charAt(classEnd) != ':') {
+        return null;
+      }
+      int messageStart = skipSpaces(line, classEnd + 1);
+      if (messageStart == classEnd + 1 || messageStart == line.length()) {
+        return null;
+      }
+      boolean hasNonClassNameCharacter = false;
+      for (int i = messageStart; i < line.length(); i++) {
+        char c = line.charAt(i);
+        if (c == ':' || c == '"' || c == '(' || c < 0x20 || c >= 0x7f) {
+          return null;
+        }
+        hasNonClassNameCharacter |= !isIdentifierPart(c) && c != '.' && c != '-';
+      }
+      if (!hasNonClassNameCharacter) {
+        return null;
+      }
+    }
+    if (line.regionMatches(classStart, "Suppressed", 0, classEnd - classStart)
+        && classEnd - classStart == "Suppressed".length()) {
+      return null;
+    }
+    return StackTraceElementStringProxy.builder(line)
+        .registerClassName(classStart, classEnd, ClassNameType.TYPENAME)
+        .build();
+  }
+
+  private static int skipClassName(String line, int index) {
+    boolean atSegmentStart = true;
+    int current = index;
+    for (; current < line.length(); current++) {
+      char c = line.charAt(current);
+      if (c == '.') {
+        if (atSegmentStart) {
+          return -1;
+        }
+        atSegmentStart = true;
+      } else if (atSegmentStart ? isIdentifierStart(c) : isIdentifierPart(c)) {
+        atSegmentStart = false;
+      } else if (c == ':' || c == ' ' || c == '\t') {
+        break;
+      } else {
+        return -1;
+      }
+    }
+    return atSegmentStart ? -1 : current;
+  }
+
+  private static boolean isInitializerName(String line, int start, int end) {
+    int length = end - start;
+    return (length == "<init>".length() && line.startsWith("<init>", start))
+        || (length == "<clinit>".length() && line.startsWith("<clinit>", start));
+  }
+
+  private static int skipSpaces(String line, int index) {
+    while (index < line.length() && (line.charAt(index) == ' ' || line.charAt(index) == '\t')) {
+      index++;
+    }
+    return index;
+  }
+
+  private static boolean isDigit(char c) {
+    return '0' <= c && c <= '9';
+  }
+
+  // Only ASCII identifiers are recognized. Lines with other identifiers are left for the regular
+  // expression.
+  private static boolean isIdentifierStart(char c) {
+    return ('a' <= c && c <= 'z') || ('A' <= c && c <= 'Z') || c == '_' || c == '$';
+  }
+
+  private static boolean isIdentifierPart(char c) {
+    return isIdentifierStart(c) || isDigit(c);
+  }
+}
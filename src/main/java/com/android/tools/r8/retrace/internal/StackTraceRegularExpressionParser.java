@@ -24,6 +24,9 @@ public class StackTraceRegularExpressionParser
           + "|(?:(?:(?:%c|.*)?[:\"]\\s+)?%c(?::.*)?)";
 
   private final Pattern compiledPattern;
+  // When using the default regular expression the common shapes of lines are recognized without
+  // running the regular expression.
+  private final boolean useDefaultLineScanner;
 
   private static final int NO_MATCH = -1;
 
@@ -52,10 +55,17 @@ public class StackTraceRegularExpressionParser
     registerGroups(
         regularExpression, refinedRegularExpressionBuilder, handlers, FIRST_CAPTURE_GROUP_INDEX);
     compiledPattern = Pattern.compile(refinedRegularExpressionBuilder.toString());
+    useDefaultLineScanner = regularExpression.equals(DEFAULT_REGULAR_EXPRESSION);
   }
 
   @Override
   public StackTraceElementStringProxy parse(String stackTraceLine) {
+    if (useDefaultLineScanner) {
+      StackTraceElementStringProxy result = DefaultStackTraceLineScanner.tryParse(stackTraceLine);
+      if (result != null) {
+        return result;
+      }
+    }
     StackTraceElementStringProxyBuilder proxyBuilder =
         StackTraceElementStringProxy.builder(stackTraceLine);
     Matcher matcher = compiledPattern.matcher(stackTraceLine);
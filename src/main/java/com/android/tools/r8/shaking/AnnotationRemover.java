@@ -22,9 +22,11 @@ import com.android.tools.r8.graph.ProgramDefinition;
 import com.android.tools.r8.graph.ProgramMember;
 import com.android.tools.r8.kotlin.KotlinMemberLevelInfo;
 import com.android.tools.r8.kotlin.KotlinPropertyInfo;
+import com.android.tools.r8.logging.Log;
 import com.android.tools.r8.shaking.Enqueuer.Mode;
 import com.android.tools.r8.utils.InternalOptions;
 import com.android.tools.r8.utils.ThreadUtils;
+import com.android.tools.r8.utils.ThreadUtils.BatchStatistics;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Sets;
 import java.util.Set;
@@ -169,7 +171,15 @@ public class AnnotationRemover {
   }
 
   public void run(ExecutorService executorService) throws ExecutionException {
-    ThreadUtils.processItems(appView.appInfo().classes(), this::run, executorService);
+    BatchStatistics statistics =
+        ThreadUtils.processItemsInBatches(
+            appView.appInfo().classes(),
+            clazz -> clazz.getMethodCollection().size(),
+            this::run,
+            executorService);
+    if (Log.ENABLED) {
+      Log.info(getClass(), "Removed annotations using %s.", statistics);
+    }
     assert verifyNoKeptKotlinMembersForClassesWithNoKotlinInfo();
   }
 
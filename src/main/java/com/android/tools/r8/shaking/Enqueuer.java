@@ -422,6 +422,15 @@ public class Enqueuer {
   /** Map of active if rules to speed up aapt2 generated keep rules. */
   private Map<Wrapper<ProguardIfRule>, Set<ProguardIfRule>> activeIfRules;
 
+  /**
+   * The program types that became live, or that had a member become live, targeted or referenced,
+   * since the last evaluation of the -if rules. Other classes cannot give rise to new consequences
+   * of the -if rules, so only these need to be evaluated in the next round. The set is null until
+   * the -if rules have been evaluated for the first time, since all classes need to be considered
+   * in the first round.
+   */
+  private Set<DexType> typesWithNewlyLiveItemsForIfRules = null;
+
   /**
    * A cache of ScopedDexMethodSet for each live type used for determining that virtual methods that
    * cannot be removed because they are widening access for another virtual method defined earlier
@@ -964,6 +973,7 @@ public class Enqueuer {
       if (info == null) {
         info = new FieldAccessInfoImpl(encodedField.getReference());
         fieldAccessInfoCollection.extend(encodedField.getReference(), info);
+        recordNewlyLiveItemForIfRules(encodedField.getHolderType());
       }
 
       // If `field` is an indirect reference, then create a mapping for it, such that we don't have
@@ -1741,6 +1751,8 @@ public class Enqueuer {
       return;
     }
 
+    recordNewlyLiveItemForIfRules(clazz.getType());
+
     assert !mode.isFinalMainDexTracing()
             || !options.testing.checkForNotExpandingMainDexTracingResult
             || appView.appInfo().getMainDexInfo().isTracedRoot(clazz, appView.getSyntheticItems())
@@ -3121,7 +3133,7 @@ public class Enqueuer {
       assert appView.appInfo().getMainDexInfo().isTracedMethodRootsCleared()
           || mode.isGenerateMainDexList();
     }
-    new MainDexListBuilder(appView, builder.getRoots(), builder).run();
+    new MainDexListBuilder(appView, builder.getRoots(), builder).run(executorService);
     MainDexInfo previousMainDexInfo = appInfo.getMainDexInfo();
     return builder.build(previousMainDexInfo);
   }
@@ -3878,6 +3890,8 @@ public class Enqueuer {
           }
           ConsequentRootSetBuilder consequentSetBuilder =
               ConsequentRootSet.builder(appView, subtypingInfo, this);
+          Set<DexType> typesToEvaluate = typesWithNewlyLiveItemsForIfRules;
+          typesWithNewlyLiveItemsForIfRules = Sets.newIdentityHashSet();
           IfRuleEvaluator ifRuleEvaluator =
               new IfRuleEvaluator(
                   appView,
@@ -3885,6 +3899,7 @@ public class Enqueuer {
                   this,
                   executorService,
                   activeIfRules,
+                  typesToEvaluate,
                   consequentSetBuilder);
           addConsequentRootSet(ifRuleEvaluator.run());
           assert getNumberOfLiveItems() == numberOfLiveItemsAfterProcessing;
@@ -4001,6 +4016,12 @@ public class Enqueuer {
     }
   }
 
+  private void recordNewlyLiveItemForIfRules(DexType type) {
+    if (typesWithNewlyLiveItemsForIfRules != null) {
+      typesWithNewlyLiveItemsForIfRules.add(type);
+    }
+  }
+
   private long getNumberOfLiveItems() {
     long result = liveTypes.getItems().size();
     result += liveMethods.items.size();
@@ -4739,7 +4760,11 @@ public class Enqueuer {
       DexEncodedField definition = field.getDefinition();
       register.accept(definition, reason);
       transitionUnusedInterfaceToLive(field.getHolder());
-      return fields.add(definition);
+      if (fields.add(definition)) {
+        recordNewlyLiveItemForIfRules(field.getHolderType());
+        return true;
+      }
+      return false;
     }
 
     boolean contains(DexEncodedField field) {
@@ -4765,7 +4790,11 @@ public class Enqueuer {
       DexEncodedMethod definition = method.getDefinition();
       register.accept(definition, reason);
       transitionUnusedInterfaceToLive(method.getHolder());
-      return items.add(definition);
+      if (items.add(definition)) {
+        recordNewlyLiveItemForIfRules(method.getHolderType());
+        return true;
+      }
+      return false;
     }
 
     boolean contains(DexEncodedMethod method) {
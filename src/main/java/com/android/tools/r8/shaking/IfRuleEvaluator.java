@@ -46,6 +46,7 @@ public class IfRuleEvaluator {
   private final ExecutorService executorService;
   private final List<Future<?>> futures = new ArrayList<>();
   private final Map<Wrapper<ProguardIfRule>, Set<ProguardIfRule>> ifRules;
+  private final Set<DexType> typesToEvaluate;
   private final ConsequentRootSetBuilder rootSetBuilder;
 
   IfRuleEvaluator(
@@ -54,12 +55,14 @@ public class IfRuleEvaluator {
       Enqueuer enqueuer,
       ExecutorService executorService,
       Map<Wrapper<ProguardIfRule>, Set<ProguardIfRule>> ifRules,
+      Set<DexType> typesToEvaluate,
       ConsequentRootSetBuilder rootSetBuilder) {
     this.appView = appView;
     this.subtypingInfo = subtypingInfo;
     this.enqueuer = enqueuer;
     this.executorService = executorService;
     this.ifRules = ifRules;
+    this.typesToEvaluate = typesToEvaluate;
     this.rootSetBuilder = rootSetBuilder;
   }
 
@@ -67,6 +70,7 @@ public class IfRuleEvaluator {
     appView.appInfo().app().timing.begin("Find consequent items for -if rules...");
     try {
       if (ifRules != null && !ifRules.isEmpty()) {
+        Collection<DexProgramClass> candidates = getCandidateClasses();
         Iterator<Map.Entry<Wrapper<ProguardIfRule>, Set<ProguardIfRule>>> it =
             ifRules.entrySet().iterator();
         while (it.hasNext()) {
@@ -79,9 +83,8 @@ public class IfRuleEvaluator {
           // -keep rule may vary (due to back references). So, we need to try all pairs of -if
           // rule and live types.
           for (DexProgramClass clazz :
-              ifRule.relevantCandidatesForRule(
-                  appView, subtypingInfo, appView.appInfo().classes())) {
-            if (!isEffectivelyLive(clazz)) {
+              ifRule.relevantCandidatesForRule(appView, subtypingInfo, candidates)) {
+            if (!isCandidate(clazz) || !isEffectivelyLive(clazz)) {
               continue;
             }
 
@@ -152,6 +155,30 @@ public class IfRuleEvaluator {
     return rootSetBuilder.buildConsequentRootSet();
   }
 
+  /**
+   * Returns the classes that need to be evaluated against the -if rules in this round, in the order
+   * of the program classes. If the -if rules have been evaluated before, this is only the classes
+   * with newly live items, since the result of evaluating the -if rules against the other classes
+   * has not changed since the previous round.
+   */
+  private Collection<DexProgramClass> getCandidateClasses() {
+    Collection<DexProgramClass> classes = appView.appInfo().classes();
+    if (typesToEvaluate == null) {
+      return classes;
+    }
+    List<DexProgramClass> candidates = new ArrayList<>(typesToEvaluate.size());
+    for (DexProgramClass clazz : classes) {
+      if (typesToEvaluate.contains(clazz.getType())) {
+        candidates.add(clazz);
+      }
+    }
+    return candidates;
+  }
+
+  private boolean isCandidate(DexProgramClass clazz) {
+    return typesToEvaluate == null || typesToEvaluate.contains(clazz.getType());
+  }
+
   private boolean canRemoveSubsequentKeepRule(ProguardIfRule rule) {
     // We cannot remove an if-rule if there is a kept graph consumer, otherwise we would not record
     // all edges.
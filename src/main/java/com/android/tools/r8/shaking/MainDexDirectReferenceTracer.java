@@ -23,7 +23,15 @@ import com.android.tools.r8.graph.DexType;
 import com.android.tools.r8.graph.ProgramMethod;
 import com.android.tools.r8.graph.UseRegistry;
 import com.android.tools.r8.utils.Box;
+import com.android.tools.r8.utils.ThreadUtils;
+import com.google.common.collect.Sets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
@@ -63,6 +71,39 @@ public class MainDexDirectReferenceTracer {
     }
   }
 
+  /**
+   * Traces the direct references of each of the roots concurrently. The references found for a
+   * root are reported to the consumer on the calling thread, in the iteration order of the roots,
+   * such that the consumer does not need to be thread safe.
+   */
+  public static void runConcurrently(
+      AppInfoWithClassHierarchy appInfo,
+      Set<DexType> roots,
+      Consumer<DexType> consumer,
+      ExecutorService executorService)
+      throws ExecutionException {
+    Collection<List<DexType>> referencesPerRoot =
+        ThreadUtils.processItemsWithResults(
+            roots,
+            root -> {
+              List<DexType> references = new ArrayList<>();
+              Set<DexType> seen = Sets.newIdentityHashSet();
+              new MainDexDirectReferenceTracer(
+                      appInfo,
+                      type -> {
+                        if (seen.add(type)) {
+                          references.add(type);
+                        }
+                      })
+                  .run(Collections.singleton(root));
+              return references;
+            },
+            executorService);
+    for (List<DexType> references : referencesPerRoot) {
+      references.forEach(consumer);
+    }
+  }
+
   public void runOnCode(ProgramMethod method) {
     method.registerCodeReferences(codeDirectReferenceCollector);
   }
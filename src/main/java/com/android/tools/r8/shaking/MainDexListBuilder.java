@@ -13,9 +13,17 @@ import com.android.tools.r8.graph.DexEncodedMethod;
 import com.android.tools.r8.graph.DexProgramClass;
 import com.android.tools.r8.graph.DexProto;
 import com.android.tools.r8.graph.DexType;
-import java.util.IdentityHashMap;
+import com.android.tools.r8.utils.Box;
+import com.android.tools.r8.utils.ThreadUtils;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Calculate the list of classes required in the main dex to allow legacy multidex loading.
@@ -26,6 +34,12 @@ import java.util.Set;
  */
 public class MainDexListBuilder {
 
+  private enum AnnotationDependencyKind {
+    NONE,
+    ANNOTATION_WITH_ENUM,
+    ANNOTATED_WITH_ANNOTATION_WITH_ENUM
+  }
+
   private final Set<DexType> roots;
   private final AppView<? extends AppInfoWithClassHierarchy> appView;
   private final Map<DexType, Boolean> annotationTypeContainEnum;
@@ -57,40 +71,65 @@ public class MainDexListBuilder {
     assert roots.stream().allMatch(type -> appView.definitionFor(type).isProgramClass());
     this.roots = roots;
     this.mainDexInfoBuilder = mainDexInfoBuilder;
-    annotationTypeContainEnum = new IdentityHashMap<>();
+    annotationTypeContainEnum = new ConcurrentHashMap<>();
   }
 
   private AppInfoWithClassHierarchy appInfo() {
     return appView.appInfo();
   }
 
-  public void run() {
-    traceMainDexDirectDependencies();
-    traceRuntimeAnnotationsWithEnumForMainDex();
+  public void run(ExecutorService executorService) throws ExecutionException {
+    traceMainDexDirectDependencies(executorService);
+    traceRuntimeAnnotationsWithEnumForMainDex(executorService);
   }
 
-  private void traceRuntimeAnnotationsWithEnumForMainDex() {
+  private void traceRuntimeAnnotationsWithEnumForMainDex(ExecutorService executorService)
+      throws ExecutionException {
+    // Classify the classes concurrently. The classification only depends on the program, thus the
+    // main dex info can be updated afterwards in the same class order as a sequential traversal.
+    List<DexProgramClass> candidates = new ArrayList<>();
     for (DexProgramClass clazz : appInfo().classes()) {
-      if (mainDexInfoBuilder.contains(clazz)) {
+      if (!mainDexInfoBuilder.contains(clazz)) {
+        candidates.add(clazz);
+      }
+    }
+    Collection<AnnotationDependencyKind> kinds =
+        ThreadUtils.processItemsWithResults(
+            candidates, this::computeAnnotationDependencyKind, executorService);
+    Iterator<AnnotationDependencyKind> kindIterator = kinds.iterator();
+    for (DexProgramClass clazz : candidates) {
+      AnnotationDependencyKind kind = kindIterator.next();
+      if (kind == AnnotationDependencyKind.NONE || mainDexInfoBuilder.contains(clazz)) {
         continue;
       }
-      DexType dexType = clazz.type;
-      if (isAnnotation(dexType) && isAnnotationWithEnum(dexType)) {
+      if (kind == AnnotationDependencyKind.ANNOTATION_WITH_ENUM) {
         addAnnotationsWithEnum(clazz);
-        continue;
+      } else {
+        assert kind == AnnotationDependencyKind.ANNOTATED_WITH_ANNOTATION_WITH_ENUM;
+        // Just add classes annotated with annotations with enum as direct dependencies.
+        mainDexInfoBuilder.addDependency(clazz);
       }
-      // Classes with annotations must be in the same dex file as the annotation. As all
-      // annotations with enums goes into the main dex, move annotated classes there as well.
-      clazz.forEachAnnotation(
-          annotation -> {
-            if (!mainDexInfoBuilder.contains(clazz)
-                && annotation.visibility == DexAnnotation.VISIBILITY_RUNTIME
-                && isAnnotationWithEnum(annotation.annotation.type)) {
-              // Just add classes annotated with annotations with enum as direct dependencies.
-              mainDexInfoBuilder.addDependency(clazz);
-            }
-          });
     }
+    assert !kindIterator.hasNext();
+  }
+
+  private AnnotationDependencyKind computeAnnotationDependencyKind(DexProgramClass clazz) {
+    DexType dexType = clazz.type;
+    if (isAnnotation(dexType) && isAnnotationWithEnum(dexType)) {
+      return AnnotationDependencyKind.ANNOTATION_WITH_ENUM;
+    }
+    // Classes with annotations must be in the same dex file as the annotation. As all
+    // annotations with enums goes into the main dex, move annotated classes there as well.
+    Box<AnnotationDependencyKind> kind = new Box<>(AnnotationDependencyKind.NONE);
+    clazz.forEachAnnotation(
+        annotation -> {
+          if (kind.get() == AnnotationDependencyKind.NONE
+              && annotation.visibility == DexAnnotation.VISIBILITY_RUNTIME
+              && isAnnotationWithEnum(annotation.annotation.type)) {
+            kind.set(AnnotationDependencyKind.ANNOTATED_WITH_ANNOTATION_WITH_ENUM);
+          }
+        });
+    return kind.get();
   }
 
   private boolean isAnnotationWithEnum(DexType dexType) {
@@ -134,8 +173,10 @@ public class MainDexListBuilder {
     return appInfo().isSubtype(valueType, appView.dexItemFactory().annotationType);
   }
 
-  private void traceMainDexDirectDependencies() {
-    new MainDexDirectReferenceTracer(appInfo(), this::addDirectDependency).run(roots);
+  private void traceMainDexDirectDependencies(ExecutorService executorService)
+      throws ExecutionException {
+    MainDexDirectReferenceTracer.runConcurrently(
+        appInfo(), roots, this::addDirectDependency, executorService);
   }
 
   private void addAnnotationsWithEnum(DexProgramClass clazz) {
@@ -26,6 +26,7 @@ import com.android.tools.r8.utils.ExceptionDiagnostic;
 import com.android.tools.r8.utils.ExceptionUtils;
 import com.android.tools.r8.utils.Reporter;
 import com.android.tools.r8.utils.StringDiagnostic;
+import com.android.tools.r8.utils.ThreadUtils;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import java.io.IOException;
@@ -49,6 +50,7 @@ public class TraceReferencesCommand {
   private final ImmutableList<ClassFileResourceProvider> traceTarget;
   private final ImmutableList<ProgramResourceProvider> traceSource;
   private final TraceReferencesConsumer consumer;
+  private final int threadCount;
 
   TraceReferencesCommand(
       boolean printHelp,
@@ -57,7 +59,8 @@ public class TraceReferencesCommand {
       ImmutableList<ClassFileResourceProvider> library,
       ImmutableList<ClassFileResourceProvider> traceTarget,
       ImmutableList<ProgramResourceProvider> traceSource,
-      TraceReferencesConsumer consumer) {
+      TraceReferencesConsumer consumer,
+      int threadCount) {
     this.printHelp = printHelp;
     this.printVersion = printVersion;
     this.reporter = reporter;
@@ -65,6 +68,7 @@ public class TraceReferencesCommand {
     this.traceTarget = traceTarget;
     this.traceSource = traceSource;
     this.consumer = consumer;
+    this.threadCount = threadCount;
   }
 
   TraceReferencesCommand(boolean printHelp, boolean printVersion) {
@@ -75,6 +79,7 @@ public class TraceReferencesCommand {
     this.traceTarget = null;
     this.traceSource = null;
     this.consumer = null;
+    this.threadCount = ThreadUtils.NOT_SPECIFIED;
   }
 
   /**
@@ -126,6 +131,7 @@ public class TraceReferencesCommand {
     private final ImmutableList.Builder<ProgramResourceProvider> traceSourceBuilder =
         ImmutableList.builder();
     private TraceReferencesConsumer consumer;
+    private int threadCount = ThreadUtils.NOT_SPECIFIED;
 
     private Builder() {
       this(new DiagnosticsHandler() {});
@@ -334,6 +340,19 @@ public class TraceReferencesCommand {
       return this;
     }
 
+    /**
+     * Set the number of threads to use for tracing. If not set, the number of threads is based on
+     * the number of available processors.
+     */
+    public Builder setThreadCount(int threadCount) {
+      if (threadCount <= 0) {
+        error(new StringDiagnostic("Invalid threadCount: " + threadCount));
+      } else {
+        this.threadCount = threadCount;
+      }
+      return this;
+    }
+
     private TraceReferencesCommand makeCommand() {
       if (isPrintHelp() || isPrintVersion()) {
         return new TraceReferencesCommand(isPrintHelp(), isPrintVersion());
@@ -356,7 +375,14 @@ public class TraceReferencesCommand {
         error(new StringDiagnostic("No consumer specified"));
       }
       return new TraceReferencesCommand(
-          printHelp, printVersion, reporter, library, traceTarget, traceSource, consumer);
+          printHelp,
+          printVersion,
+          reporter,
+          library,
+          traceTarget,
+          traceSource,
+          consumer,
+          threadCount);
     }
 
     public final TraceReferencesCommand build() throws CompilationFailedException {
@@ -395,4 +421,8 @@ public class TraceReferencesCommand {
   TraceReferencesConsumer getConsumer() {
     return consumer;
   }
+
+  int getThreadCount() {
+    return threadCount;
+  }
 }
@@ -26,7 +26,7 @@ import java.util.Set;
 class TraceReferencesCommandParser {
 
   private static final Set<String> OPTIONS_WITH_PARAMETER =
-      ImmutableSet.of("--lib", "--target", "--source", "--output");
+      ImmutableSet.of("--lib", "--target", "--source", "--output", "--thread-count");
 
   static final String USAGE_MESSAGE =
       String.join(
@@ -48,7 +48,11 @@ class TraceReferencesCommandParser {
                   "                          # outside of library are treated as a missing",
                   "                          # references.",
                   "  --output <file>         # Output result in <outfile>. If not passed the",
-                  "                          # result will go to standard out."),
+                  "                          # result will go to standard out.",
+                  "  --thread-count <number of threads>",
+                  "                          # Number of threads to use for tracing. If not",
+                  "                          # specified the number will be based on heuristics",
+                  "                          # taking the number of cores into account."),
               BaseCompilerCommandParser.MAP_DIAGNOSTICS_USAGE_MESSAGE,
               Arrays.asList(
                   "  --version               # Print the version of tracereferences.",
@@ -149,6 +153,9 @@ class TraceReferencesCommandParser {
         } else {
           output = Paths.get(nextArg);
         }
+      } else if (arg.equals("--thread-count")) {
+        BaseCompilerCommandParser.parsePositiveIntArgument(
+            builder::error, arg, nextArg, origin, builder::setThreadCount);
       } else if (arg.startsWith("@")) {
         builder.error(new StringDiagnostic("Recursive @argfiles are not supported: ", origin));
       } else {
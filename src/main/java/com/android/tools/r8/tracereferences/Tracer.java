@@ -8,6 +8,7 @@ import com.android.tools.r8.DiagnosticsHandler;
 import com.android.tools.r8.dex.ApplicationReader;
 import com.android.tools.r8.diagnostic.DefinitionContext;
 import com.android.tools.r8.diagnostic.internal.DefinitionContextUtils;
+import com.android.tools.r8.errors.Unreachable;
 import com.android.tools.r8.features.ClassToFeatureSplitMap;
 import com.android.tools.r8.graph.AppInfoWithClassHierarchy;
 import com.android.tools.r8.graph.AppView;
@@ -38,18 +39,29 @@ import com.android.tools.r8.ir.desugar.LambdaDescriptor;
 import com.android.tools.r8.references.ClassReference;
 import com.android.tools.r8.references.FieldReference;
 import com.android.tools.r8.references.MethodReference;
+import com.android.tools.r8.references.PackageReference;
 import com.android.tools.r8.references.Reference;
 import com.android.tools.r8.shaking.MainDexInfo;
+import com.android.tools.r8.tracereferences.TraceReferencesConsumer.TracedClass;
+import com.android.tools.r8.tracereferences.TraceReferencesConsumer.TracedField;
+import com.android.tools.r8.tracereferences.TraceReferencesConsumer.TracedMethod;
 import com.android.tools.r8.tracereferences.TraceReferencesConsumer.TracedReference;
 import com.android.tools.r8.tracereferences.internal.TracedClassImpl;
 import com.android.tools.r8.tracereferences.internal.TracedFieldImpl;
 import com.android.tools.r8.tracereferences.internal.TracedMethodImpl;
 import com.android.tools.r8.utils.AndroidApp;
 import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.ThreadUtils;
 import com.android.tools.r8.utils.Timing;
 import java.io.IOException;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 
 public class Tracer {
@@ -60,12 +72,20 @@ public class Tracer {
   private final InitClassLens initClassLens;
   private final Predicate<DexType> targetPredicate;
 
-  Tracer(Set<String> targetDescriptors, AndroidApp inputApp, DiagnosticsHandler diagnostics)
+  private final Set<ClassReference> missingClasses = ConcurrentHashMap.newKeySet();
+  private final Set<FieldReference> missingFields = ConcurrentHashMap.newKeySet();
+  private final Set<MethodReference> missingMethods = ConcurrentHashMap.newKeySet();
+
+  Tracer(
+      Set<String> targetDescriptors,
+      AndroidApp inputApp,
+      DiagnosticsHandler diagnostics,
+      ExecutorService executorService)
       throws IOException {
     this(
         AppInfoWithClassHierarchy.createInitialAppInfoWithClassHierarchy(
             new ApplicationReader(inputApp, new InternalOptions(), Timing.empty())
-                .read()
+                .read(executorService)
                 .toDirect(),
             ClassToFeatureSplitMap.createEmptyClassToFeatureSplitMap(),
             MainDexInfo.none()),
@@ -101,23 +121,97 @@ public class Tracer {
   }
 
   public void run(TraceReferencesConsumer consumer) {
-    UseCollector useCollector = new UseCollector(appInfo, consumer, diagnostics, targetPredicate);
+    UseCollector useCollector = createUseCollector(consumer);
     for (DexProgramClass clazz : appInfo.classes()) {
-      DefinitionContext classContext = DefinitionContextUtils.create(clazz);
-      useCollector.registerSuperType(clazz, clazz.superType, classContext);
-      for (DexType implementsType : clazz.getInterfaces()) {
-        useCollector.registerSuperType(clazz, implementsType, classContext);
-      }
-      clazz.forEachProgramField(useCollector::registerField);
-      clazz.forEachProgramMethod(
-          method -> {
-            useCollector.registerMethod(method);
-            useCollector.traceCode(method, graphLens, initClassLens);
-          });
+      traceClass(clazz, useCollector);
     }
     consumer.finished(diagnostics);
   }
 
+  /**
+   * Traces the program classes concurrently. The references found in each class are buffered and
+   * reported to the consumer on the calling thread in the same order as {@link
+   * #run(TraceReferencesConsumer)}, so the consumer does not need to be thread safe and the result
+   * is deterministic.
+   */
+  public void run(TraceReferencesConsumer consumer, ExecutorService executorService)
+      throws ExecutionException {
+    Collection<BufferingConsumer> results =
+        ThreadUtils.processItemsWithResults(
+            appInfo.classes(),
+            clazz -> {
+              BufferingConsumer classConsumer = new BufferingConsumer();
+              traceClass(clazz, createUseCollector(classConsumer));
+              return classConsumer;
+            },
+            executorService);
+    for (BufferingConsumer result : results) {
+      result.replay(consumer);
+    }
+    consumer.finished(diagnostics);
+  }
+
+  private UseCollector createUseCollector(TraceReferencesConsumer consumer) {
+    return new UseCollector(
+        appInfo,
+        consumer,
+        diagnostics,
+        targetPredicate,
+        missingClasses,
+        missingFields,
+        missingMethods);
+  }
+
+  private void traceClass(DexProgramClass clazz, UseCollector useCollector) {
+    DefinitionContext classContext = DefinitionContextUtils.create(clazz);
+    useCollector.registerSuperType(clazz, clazz.superType, classContext);
+    for (DexType implementsType : clazz.getInterfaces()) {
+      useCollector.registerSuperType(clazz, implementsType, classContext);
+    }
+    clazz.forEachProgramField(useCollector::registerField);
+    clazz.forEachProgramMethod(
+        method -> {
+          useCollector.registerMethod(method);
+          useCollector.traceCode(method, graphLens, initClassLens);
+        });
+  }
+
+  // Records the references reported while tracing a single class, such that they can be passed on
+  // to the actual consumer in a deterministic order.
+  private static class BufferingConsumer implements TraceReferencesConsumer {
+
+    private final List<Consumer<TraceReferencesConsumer>> events = new ArrayList<>();
+
+    @Override
+    public void acceptType(TracedClass tracedClass, DiagnosticsHandler handler) {
+      events.add(consumer -> consumer.acceptType(tracedClass, handler));
+    }
+
+    @Override
+    public void acceptField(TracedField tracedField, DiagnosticsHandler handler) {
+      events.add(consumer -> consumer.acceptField(tracedField, handler));
+    }
+
+    @Override
+    public void acceptMethod(TracedMethod tracedMethod, DiagnosticsHandler handler) {
+      events.add(consumer -> consumer.acceptMethod(tracedMethod, handler));
+    }
+
+    @Override
+    public void acceptPackage(PackageReference pkg, DiagnosticsHandler handler) {
+      events.add(consumer -> consumer.acceptPackage(pkg, handler));
+    }
+
+    @Override
+    public void finished(DiagnosticsHandler handler) {
+      throw new Unreachable();
+    }
+
+    void replay(TraceReferencesConsumer consumer) {
+      events.forEach(event -> event.accept(consumer));
+    }
+  }
+
   // The graph lens is intentionally only made accessible to the MethodUseCollector, since the
   // graph lens should only be applied to the code.
   static class UseCollector {
@@ -128,20 +222,26 @@ public class Tracer {
     private final DiagnosticsHandler diagnostics;
     private final Predicate<DexType> targetPredicate;
 
-    private final Set<ClassReference> missingClasses = new HashSet<>();
-    private final Set<FieldReference> missingFields = new HashSet<>();
-    private final Set<MethodReference> missingMethods = new HashSet<>();
+    private final Set<ClassReference> missingClasses;
+    private final Set<FieldReference> missingFields;
+    private final Set<MethodReference> missingMethods;
 
     UseCollector(
         AppInfoWithClassHierarchy appInfo,
         TraceReferencesConsumer consumer,
         DiagnosticsHandler diagnostics,
-        Predicate<DexType> targetPredicate) {
+        Predicate<DexType> targetPredicate,
+        Set<ClassReference> missingClasses,
+        Set<FieldReference> missingFields,
+        Set<MethodReference> missingMethods) {
       this.appInfo = appInfo;
       this.factory = appInfo.dexItemFactory();
       this.consumer = consumer;
       this.diagnostics = diagnostics;
       this.targetPredicate = targetPredicate;
+      this.missingClasses = missingClasses;
+      this.missingFields = missingFields;
+      this.missingMethods = missingMethods;
     }
 
     private boolean isTargetType(DexType type) {
@@ -94,6 +94,7 @@ import java.util.function.BiConsumer;
 import java.util.function.BiPredicate;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
 import java.util.function.Predicate;
 import org.objectweb.asm.Opcodes;
 
@@ -249,6 +250,12 @@ public class InternalOptions implements GlobalKeepInfoConfiguration {
   public boolean printTimes = System.getProperty("com.android.tools.r8.printtimes") != null;
   // To print memory one also have to enable printtimes.
   public boolean printMemory = System.getProperty("com.android.tools.r8.printmemory") != null;
+  // If set, the peak usage of the heap memory pools in each phase and the estimated retained sizes
+  // of the main AppView components at the end of each top-level phase are written as JSON to the
+  // given file. The estimation walks the heap, so this should only be used for investigations.
+  public String memoryReportFile = System.getProperty("com.android.tools.r8.memoryreport");
+  // If set, the timing of the compilation is passed to this consumer when the compilation is done.
+  public Consumer<Timing> timingConsumer = null;
 
   public String dumpInputToFile = System.getProperty("com.android.tools.r8.dumpinputtofile");
   public String dumpInputToDirectory =
@@ -257,6 +264,15 @@ public class InternalOptions implements GlobalKeepInfoConfiguration {
   // Flag to toggle if DEX code objects should pass-through without IR processing.
   public boolean passthroughDexCode = false;
 
+  // Flag to toggle if the instructions of DEX code objects should be decoded when first used
+  // instead of when the code is read.
+  public boolean enableLazyDexCode = false;
+
+  // Flag to toggle if DEX code objects that have not been decoded should be written by remapping
+  // the indices of the encoded instructions. Only used when nothing is renamed or rewritten, and
+  // only has an effect if enableLazyDexCode is set.
+  public boolean enableEncodedDexCodeWriting = false;
+
   // Flag to toggle if the prefix based merge restriction should be enforced.
   public boolean enableNeverMergePrefixes = true;
   public Set<String> neverMergePrefixes = ImmutableSet.of("j$.");
@@ -739,6 +755,13 @@ public class InternalOptions implements GlobalKeepInfoConfiguration {
    * because it's adding classes in the main dex to satisfy also DexOpt constraints.
    */
   public boolean enableInheritanceClassInDexDistributor = true;
+  /**
+   * Enable packing of the classes into as few dex files as possible, taking the methods and fields
+   * shared between classes into account. This may split packages over more dex files than the
+   * default distribution, which keeps packages together.
+   */
+  public boolean enableDexFilePacking =
+      System.getProperty("com.android.tools.r8.dexFilePacking") != null;
 
   public LineNumberOptimization lineNumberOptimization = LineNumberOptimization.ON;
 
@@ -1562,7 +1585,12 @@ public class InternalOptions implements GlobalKeepInfoConfiguration {
     public boolean forceNameReflectionOptimization = false;
     public boolean enableNarrowAndWideningingChecksInD8 = false;
     public Consumer<IRCode> irModifier = null;
+    // Receives the number of bytes allocated on the current thread while building the IR of each
+    // method.
+    public BiConsumer<ProgramMethod, Long> irBuildingAllocationConsumer = null;
     public Consumer<IRCode> inlineeIrModifier = null;
+    // Receives the number of methods written by the dex file merger without decoding the code.
+    public IntConsumer encodedDexCodeWritesConsumer = null;
     public int basicBlockMuncherIterationLimit = NO_LIMIT;
     public boolean dontReportFailingCheckDiscarded = false;
     public boolean disableRecordApplicationReaderMap = false;
@@ -0,0 +1,198 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.utils;
+
+import com.google.common.collect.Sets;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+/**
+ * Estimates the number of bytes retained by a number of components by walking the object graph
+ * reachable from each component using reflection.
+ *
+ * <p>The components are visited in order, and each object is attributed to the first component
+ * from which it is reached. The estimate assumes a 64-bit JVM with compressed object pointers.
+ * Objects of JDK classes whose fields cannot be accessed are estimated using their public API,
+ * e.g., collections are estimated from their elements.
+ *
+ * <p>This walks the entire reachable heap and is only intended for memory instrumentation.
+ */
+public class RetainedSizeEstimator {
+
+  private static final int OBJECT_HEADER_SIZE = 12;
+  private static final int ARRAY_HEADER_SIZE = 16;
+  private static final int REFERENCE_SIZE = 4;
+  private static final int COLLECTION_ENTRY_SIZE = 32;
+
+  private static final ClassValue<ClassLayout> LAYOUTS =
+      new ClassValue<ClassLayout>() {
+        @Override
+        protected ClassLayout computeValue(Class<?> clazz) {
+          return ClassLayout.create(clazz);
+        }
+      };
+
+  private final Set<Object> seen = Sets.newIdentityHashSet();
+  private final Deque<Object> worklist = new ArrayDeque<>();
+
+  private RetainedSizeEstimator() {}
+
+  /** Returns the estimated retained size in bytes of each of the given components. */
+  public static Map<String, Long> estimate(Map<String, Object> components) {
+    RetainedSizeEstimator estimator = new RetainedSizeEstimator();
+    Map<String, Long> result = new LinkedHashMap<>();
+    for (Entry<String, Object> entry : components.entrySet()) {
+      result.put(entry.getKey(), estimator.visit(entry.getValue()));
+    }
+    return result;
+  }
+
+  private long visit(Object root) {
+    long size = 0;
+    enqueue(root);
+    while (!worklist.isEmpty()) {
+      size += visitObject(worklist.removeLast());
+    }
+    return size;
+  }
+
+  private void enqueue(Object object) {
+    if (object != null && seen.add(object)) {
+      worklist.addLast(object);
+    }
+  }
+
+  private long visitObject(Object object) {
+    Class<?> clazz = object.getClass();
+    if (clazz.isArray()) {
+      int length = Array.getLength(object);
+      Class<?> componentType = clazz.getComponentType();
+      if (!componentType.isPrimitive()) {
+        for (Object element : (Object[]) object) {
+          enqueue(element);
+        }
+      }
+      return align(ARRAY_HEADER_SIZE + (long) length * sizeOf(componentType));
+    }
+    ClassLayout layout = LAYOUTS.get(clazz);
+    if (layout.isOpaque()) {
+      return visitOpaqueObject(object, layout);
+    }
+    for (Field field : layout.referenceFields) {
+      try {
+        enqueue(field.get(object));
+      } catch (IllegalAccessException e) {
+        // Fields that cannot be read are not accounted for.
+      }
+    }
+    return layout.shallowSize;
+  }
+
+  // Estimates the size of an object whose fields cannot be read reflectively.
+  private long visitOpaqueObject(Object object, ClassLayout layout) {
+    if (object instanceof String) {
+      return layout.shallowSize + align(ARRAY_HEADER_SIZE + ((String) object).length());
+    }
+    if (object instanceof Collection) {
+      Collection<?> collection = (Collection<?>) object;
+      for (Object element : collection) {
+        enqueue(element);
+      }
+      return layout.shallowSize + (long) collection.size() * COLLECTION_ENTRY_SIZE;
+    }
+    if (object instanceof Map) {
+      Map<?, ?> map = (Map<?, ?>) object;
+      for (Entry<?, ?> entry : map.entrySet()) {
+        enqueue(entry.getKey());
+        enqueue(entry.getValue());
+      }
+      return layout.shallowSize + (long) map.size() * COLLECTION_ENTRY_SIZE;
+    }
+    return layout.shallowSize;
+  }
+
+  private static int sizeOf(Class<?> type) {
+    if (type == long.class || type == double.class) {
+      return 8;
+    }
+    if (type == int.class || type == float.class) {
+      return 4;
+    }
+    if (type == short.class || type == char.class) {
+      return 2;
+    }
+    if (type == byte.class || type == boolean.class) {
+      return 1;
+    }
+    return REFERENCE_SIZE;
+  }
+
+  private static long align(long size) {
+    return (size + 7) & ~7L;
+  }
+
+  private static class ClassLayout {
+
+    private final long shallowSize;
+    private final Field[] referenceFields;
+    private final boolean isOpaque;
+
+    private ClassLayout(long shallowSize, Field[] referenceFields, boolean isOpaque) {
+      this.shallowSize = shallowSize;
+      this.referenceFields = referenceFields;
+      this.isOpaque = isOpaque;
+    }
+
+    static ClassLayout create(Class<?> clazz) {
+      long size = OBJECT_HEADER_SIZE;
+      List<Field> referenceFields = new ArrayList<>();
+      // The runtime structures reachable from classes, class loaders and threads are not part of
+      // any component.
+      boolean isOpaque =
+          Class.class.isAssignableFrom(clazz)
+              || ClassLoader.class.isAssignableFrom(clazz)
+              || Thread.class.isAssignableFrom(clazz);
+      for (Class<?> current = clazz; current != null; current = current.getSuperclass()) {
+        for (Field field : current.getDeclaredFields()) {
+          if (Modifier.isStatic(field.getModifiers())) {
+            continue;
+          }
+          size += sizeOf(field.getType());
+          if (!field.getType().isPrimitive()) {
+            if (isOpaque || !trySetAccessible(field)) {
+              isOpaque = true;
+            } else {
+              referenceFields.add(field);
+            }
+          }
+        }
+      }
+      return new ClassLayout(align(size), referenceFields.toArray(new Field[0]), isOpaque);
+    }
+
+    private static boolean trySetAccessible(Field field) {
+      try {
+        field.setAccessible(true);
+        return true;
+      } catch (RuntimeException e) {
+        // The field is in a module that is not open to us.
+        return false;
+      }
+    }
+
+    boolean isOpaque() {
+      return isOpaque;
+    }
+  }
+}
@@ -3,6 +3,8 @@
 // BSD-style license that can be found in the LICENSE file.
 package com.android.tools.r8.utils;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
@@ -14,11 +16,16 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
+import java.util.function.ToLongFunction;
 
 public class ThreadUtils {
 
   public static final int NOT_SPECIFIED = -1;
 
+  // The number of batches to create per thread when processing items in batches. Having more
+  // batches than threads allows balancing the load when the cost estimates are inaccurate.
+  private static final int BATCHES_PER_THREAD = 8;
+
   public static <T> Future<T> processAsynchronously(
       Callable<T> callable, ExecutorService executorService) {
     return executorService.submit(callable);
@@ -93,6 +100,103 @@ public class ThreadUtils {
         executorService);
   }
 
+  public static <T, E extends Exception> BatchStatistics processItemsInBatches(
+      Collection<T> items, ThrowingConsumer<T, E> consumer, ExecutorService executorService)
+      throws ExecutionException {
+    return processItemsInBatches(items, item -> 0, consumer, executorService);
+  }
+
+  /**
+   * Processes the items using a task for each batch of items instead of a task for each item.
+   *
+   * <p>The items are grouped into batches of roughly the same estimated cost, where the cost of an
+   * item is one plus the given cost estimate. The batches are scheduled with the most expensive
+   * items first, and an item whose cost exceeds the cost of a batch is processed by a task of its
+   * own.
+   */
+  public static <T, E extends Exception> BatchStatistics processItemsInBatches(
+      Collection<T> items,
+      ToLongFunction<T> costEstimate,
+      ThrowingConsumer<T, E> consumer,
+      ExecutorService executorService)
+      throws ExecutionException {
+    List<CostedItem<T>> costedItems = new ArrayList<>(items.size());
+    long totalCost = 0;
+    for (T item : items) {
+      CostedItem<T> costedItem = new CostedItem<>(item, 1 + costEstimate.applyAsLong(item));
+      costedItems.add(costedItem);
+      totalCost += costedItem.cost;
+    }
+    costedItems.sort((x, y) -> Long.compare(y.cost, x.cost));
+    int numberOfThreads = getNumberOfThreads(executorService);
+    if (numberOfThreads <= 0) {
+      numberOfThreads = Runtime.getRuntime().availableProcessors();
+    }
+    long batchCost = Math.max(1, totalCost / ((long) numberOfThreads * BATCHES_PER_THREAD));
+    List<Future<?>> futures = new ArrayList<>();
+    int index = 0;
+    while (index < costedItems.size()) {
+      List<CostedItem<T>> batch = new ArrayList<>();
+      long cost = 0;
+      do {
+        CostedItem<T> costedItem = costedItems.get(index++);
+        batch.add(costedItem);
+        cost += costedItem.cost;
+      } while (index < costedItems.size() && cost + costedItems.get(index).cost <= batchCost);
+      futures.add(
+          executorService.submit(
+              () -> {
+                for (CostedItem<T> costedItem : batch) {
+                  consumer.accept(costedItem.item);
+                }
+                return null;
+              }));
+    }
+    awaitFutures(futures);
+    return new BatchStatistics(costedItems.size(), futures.size());
+  }
+
+  private static class CostedItem<T> {
+
+    final T item;
+    final long cost;
+
+    CostedItem(T item, long cost) {
+      this.item = item;
+      this.cost = cost;
+    }
+  }
+
+  /** The number of items and tasks of a call to processItemsInBatches. */
+  public static class BatchStatistics {
+
+    private final int numberOfItems;
+    private final int numberOfTasks;
+
+    BatchStatistics(int numberOfItems, int numberOfTasks) {
+      this.numberOfItems = numberOfItems;
+      this.numberOfTasks = numberOfTasks;
+    }
+
+    public int getNumberOfItems() {
+      return numberOfItems;
+    }
+
+    public int getNumberOfTasks() {
+      return numberOfTasks;
+    }
+
+    /** Returns the number of tasks saved compared to submitting a task for each item. */
+    public int getNumberOfEliminatedTasks() {
+      return numberOfItems - numberOfTasks;
+    }
+
+    @Override
+    public String toString() {
+      return numberOfItems + " items in " + numberOfTasks + " tasks";
+    }
+  }
+
   public static <T, U, E extends Exception> void processMap(
       Map<T, U> items, ThrowingBiConsumer<T, U, E> consumer, ExecutorService executorService)
       throws ExecutionException {
@@ -188,4 +292,21 @@ public class ThreadUtils {
     }
     return -1;
   }
+
+  /**
+   * Returns the number of bytes allocated by the current thread, or -1 if the JVM does not support
+   * measuring thread allocations.
+   */
+  public static long getCurrentThreadAllocatedBytes() {
+    ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    if (threadBean instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean allocationBean =
+          (com.sun.management.ThreadMXBean) threadBean;
+      if (allocationBean.isThreadAllocatedMemorySupported()
+          && allocationBean.isThreadAllocatedMemoryEnabled()) {
+        return allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+      }
+    }
+    return -1;
+  }
 }
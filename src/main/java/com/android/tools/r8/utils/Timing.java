@@ -14,10 +14,23 @@ package com.android.tools.r8.utils;
 //     t.report();
 
 import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Deque;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Stack;
@@ -71,7 +84,9 @@ public class Timing {
 
   public static Timing create(String title, InternalOptions options) {
     // We also create a timer when running assertions to validate wellformedness of the node stack.
-    return options.printTimes || InternalOptions.assertionsEnabled()
+    return options.printTimes
+            || options.timingConsumer != null
+            || InternalOptions.assertionsEnabled()
         ? new Timing(title, options.printMemory)
         : Timing.empty();
   }
@@ -80,22 +95,82 @@ public class Timing {
     return new Timing(title, printMemory);
   }
 
+  /**
+   * Creates the timing for a top-level compilation. If a memory report is requested, the timing
+   * also records the peak usage of the heap memory pools for each phase.
+   *
+   * <p>The peak usage is tracked using the global peak usage of the memory pools, so only one such
+   * timing must be active at a time, and phases must not be started or ended concurrently.
+   */
+  public static Timing createWithMemoryReport(String title, InternalOptions options) {
+    return options.memoryReportFile != null
+        ? new Timing(title, options.printMemory, getHeapMemoryPools())
+        : create(title, options);
+  }
+
   private final Node top;
   private final Stack<Node> stack;
   private final boolean trackMemory;
 
+  // The heap memory pools for which the peak usage is recorded, or empty if not recording a memory
+  // report.
+  private final List<MemoryPoolMXBean> heapPools;
+  private Supplier<Map<String, Object>> memoryReportComponents;
+
   @Deprecated
   public Timing(String title) {
     this(title, false);
   }
 
   private Timing(String title, boolean trackMemory) {
+    this(title, trackMemory, ImmutableList.of());
+  }
+
+  private Timing(String title, boolean trackMemory, List<MemoryPoolMXBean> heapPools) {
     this.trackMemory = trackMemory;
+    this.heapPools = heapPools;
+    resetPeakUsage();
     stack = new Stack<>();
     top = new Node(title, trackMemory);
+    top.peakUsage = new long[heapPools.size()];
     stack.push(top);
   }
 
+  /**
+   * Sets the components whose retained sizes are estimated at the end of each top-level phase when
+   * recording a memory report.
+   */
+  public void setMemoryReportComponents(Supplier<Map<String, Object>> components) {
+    if (!heapPools.isEmpty()) {
+      memoryReportComponents = components;
+    }
+  }
+
+  private static List<MemoryPoolMXBean> getHeapMemoryPools() {
+    ImmutableList.Builder<MemoryPoolMXBean> builder = ImmutableList.builder();
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+        builder.add(pool);
+      }
+    }
+    return builder.build();
+  }
+
+  // Adds the peak usage of the heap memory pools since the last reset to the given node and resets
+  // the peak usage.
+  private void recordPeakUsage(Node node) {
+    for (int i = 0; i < heapPools.size(); i++) {
+      node.peakUsage[i] = Math.max(node.peakUsage[i], heapPools.get(i).getPeakUsage().getUsed());
+    }
+    resetPeakUsage();
+  }
+
+  private void resetPeakUsage() {
+    for (MemoryPoolMXBean pool : heapPools) {
+      pool.resetPeakUsage();
+    }
+  }
+
   private static class MemInfo {
     final long used;
 
@@ -121,6 +196,10 @@ public class Timing {
     long start_time;
     Map<String, MemInfo> startMemory;
     Map<String, MemInfo> endMemory;
+    // The peak usage of each heap memory pool and the estimated retained sizes at the end of the
+    // node when recording a memory report.
+    long[] peakUsage;
+    Map<String, Long> retainedSizes;
 
     Node(String title, boolean trackMemory) {
       this.title = title;
@@ -360,12 +439,18 @@ public class Timing {
 
   public void begin(String title) {
     Node parent = stack.peek();
+    if (!heapPools.isEmpty()) {
+      recordPeakUsage(parent);
+    }
     Node child;
     if (parent.children.containsKey(title)) {
       child = parent.children.get(title);
       child.restart();
     } else {
       child = new Node(title, trackMemory);
+      if (!heapPools.isEmpty()) {
+        child.peakUsage = new long[heapPools.size()];
+      }
       parent.children.put(title, child);
     }
     stack.push(child);
@@ -382,7 +467,80 @@ public class Timing {
 
   public void end() {
     stack.peek().end();  // record time.
-    stack.pop();
+    Node node = stack.pop();
+    if (!heapPools.isEmpty()) {
+      endPhaseForMemoryReport(node);
+    }
+  }
+
+  private void endPhaseForMemoryReport(Node node) {
+    recordPeakUsage(node);
+    Node parent = stack.peek();
+    for (int i = 0; i < heapPools.size(); i++) {
+      parent.peakUsage[i] = Math.max(parent.peakUsage[i], node.peakUsage[i]);
+    }
+    if (memoryReportComponents != null && parent == top) {
+      node.retainedSizes = RetainedSizeEstimator.estimate(memoryReportComponents.get());
+      // Do not attribute the memory used by the estimation to the next phase.
+      resetPeakUsage();
+    }
+  }
+
+  /**
+   * Writes the recorded phases with the peak usage of the heap memory pools and the estimated
+   * retained sizes as JSON to the given file.
+   */
+  public void writeMemoryReport(Path path) throws IOException {
+    assert !heapPools.isEmpty();
+    recordPeakUsage(top);
+    JsonObject report = new JsonObject();
+    JsonArray pools = new JsonArray();
+    for (MemoryPoolMXBean pool : heapPools) {
+      pools.add(pool.getName());
+    }
+    report.add("heapPools", pools);
+    report.add("phases", toJson(top));
+    try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+      new GsonBuilder().setPrettyPrinting().create().toJson(report, writer);
+    }
+  }
+
+  private JsonObject toJson(Node node) {
+    JsonObject json = new JsonObject();
+    json.addProperty("title", node.title);
+    // The top-level node is still running if the report is written before the timings are printed.
+    long duration =
+        node.start_time == -1
+            ? node.duration()
+            : node.duration() + System.nanoTime() - node.start_time;
+    json.addProperty("durationMs", duration / 1000000);
+    JsonObject peakUsage = new JsonObject();
+    long peakUsageSum = 0;
+    for (int i = 0; i < heapPools.size(); i++) {
+      peakUsage.addProperty(heapPools.get(i).getName(), node.peakUsage[i]);
+      peakUsageSum += node.peakUsage[i];
+    }
+    json.add("peakUsage", peakUsage);
+    // The pools may peak at different times, so the sum is an upper bound of the peak heap usage.
+    json.addProperty("peakUsageSum", peakUsageSum);
+    if (node.retainedSizes != null) {
+      JsonObject retainedSizes = new JsonObject();
+      node.retainedSizes.forEach(retainedSizes::addProperty);
+      json.add("retainedSizes", retainedSizes);
+    }
+    if (!node.children.isEmpty()) {
+      JsonArray children = new JsonArray();
+      node.children.values().forEach(child -> children.add(toJson(child)));
+      json.add("children", children);
+    }
+    return json;
+  }
+
+  /** Returns the durations in nanoseconds of the top-level phases in the order they started. */
+  public Map<String, Long> getTopLevelPhaseDurations() {
+    Map<String, Long> durations = new LinkedHashMap<>();
+    top.children.forEach((title, node) -> durations.put(title, node.duration()));
+    return durations;
   }
 
   public void report() {
@@ -0,0 +1,124 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.benchmarks;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.utils.AndroidApiLevel;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class DumpReplayBenchmarkTest extends TestBase {
+
+  @Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public DumpReplayBenchmarkTest(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  @Test
+  public void testReplay() throws Exception {
+    Path dumpDirectory = temp.newFolder().toPath();
+    testForD8()
+        .addProgramClasses(Main.class)
+        .addOptionsModification(options -> options.dumpInputToDirectory = dumpDirectory.toString())
+        .setMinApi(AndroidApiLevel.B)
+        .compile();
+
+    Path output = temp.newFolder().toPath().resolve("results.json");
+    assertTrue(
+        DumpReplayBenchmark.parse(
+                "--iterations",
+                "2",
+                "--threads",
+                "1",
+                "--output",
+                output.toString(),
+                dumpDirectory.toString())
+            .run());
+    JsonObject results;
+    try (Reader reader = Files.newBufferedReader(output, StandardCharsets.UTF_8)) {
+      results = new JsonParser().parse(reader).getAsJsonObject();
+    }
+    assertEquals(1, results.size());
+    JsonObject result = results.entrySet().iterator().next().getValue().getAsJsonObject();
+    assertTrue(result.has("cold"));
+    assertTrue(result.has("warm"));
+    assertTrue(result.getAsJsonObject("warm").get("outputBytes").getAsLong() > 0);
+
+    // The output size does not change, and the other values are not compared with this threshold.
+    assertTrue(
+        DumpReplayBenchmark.parse(
+                "--iterations",
+                "2",
+                "--baseline",
+                output.toString(),
+                "--threshold",
+                "100000",
+                dumpDirectory.toString())
+            .run());
+  }
+
+  @Test
+  public void testUsageErrors() throws Exception {
+    Path dump = temp.newFile("dump.zip").toPath();
+    assertUsageError("Expected at least one dump.");
+    assertUsageError("Missing value for option --iterations", dump.toString(), "--iterations");
+    assertUsageError("Missing value for option --output", "--output");
+    assertUsageError("Invalid value for option --threads: x", "--threads", "x", dump.toString());
+    assertUsageError(
+        "Expected a value of at least 1 for option --threads", "--threads", "0", dump.toString());
+    assertUsageError(
+        "Expected a value of at least 0 for option --threshold",
+        "--threshold",
+        "-5",
+        dump.toString());
+    assertUsageError("Unknown option: --foo", "--foo", dump.toString());
+  }
+
+  private static void assertUsageError(String message, String... args) throws Exception {
+    try {
+      DumpReplayBenchmark.parse(args);
+    } catch (IllegalArgumentException e) {
+      assertThat(e.getMessage(), containsString(message));
+      assertThat(e.getMessage(), containsString("Usage: DumpReplayBenchmark"));
+      return;
+    }
+    fail("Expected a usage error for: " + String.join(" ", args));
+  }
+
+  @Test
+  public void testMedian() {
+    assertEquals(3, DumpReplayBenchmark.median(3));
+    assertEquals(2, DumpReplayBenchmark.median(3, 1, 2));
+    assertEquals(25, DumpReplayBenchmark.median(40, 10, 30, 20));
+    assertEquals(15, DumpReplayBenchmark.median(20, 10));
+  }
+
+  static class Main {
+
+    public static void main(String[] args) {
+      System.out.println("Hello world!");
+    }
+  }
+}
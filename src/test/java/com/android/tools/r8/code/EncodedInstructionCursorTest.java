@@ -0,0 +1,135 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.code;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.code.EncodedInstructionCursor.IndexKind;
+import com.android.tools.r8.graph.Code;
+import com.android.tools.r8.graph.DexCode;
+import com.android.tools.r8.graph.DexEncodedMethod;
+import com.android.tools.r8.graph.LazyDexCode;
+import com.android.tools.r8.graph.OffsetToObjectMapping;
+import com.android.tools.r8.utils.AndroidApiLevel;
+import com.android.tools.r8.utils.codeinspector.CodeInspector;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class EncodedInstructionCursorTest extends TestBase {
+
+  @Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public EncodedInstructionCursorTest(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  @Test
+  public void testCursorMatchesDecodedInstructions() throws Exception {
+    CodeInspector inspector =
+        testForD8()
+            .addProgramClasses(Main.class)
+            .setMinApi(AndroidApiLevel.B)
+            .compile()
+            .inspector(options -> options.enableLazyDexCode = true);
+    int numberOfCheckedMethods = 0;
+    for (DexEncodedMethod method :
+        inspector.clazz(Main.class).getDexProgramClass().methods()) {
+      Code code = method.getCode();
+      if (code == null) {
+        continue;
+      }
+      assertTrue(code instanceof LazyDexCode);
+      LazyDexCode lazyCode = (LazyDexCode) code;
+      assertTrue(lazyCode.isEncoded());
+      OffsetToObjectMapping mapping = lazyCode.getMapping();
+      EncodedInstructionCursor cursor = lazyCode.getEncodedInstructionCursor();
+      DexCode dexCode = lazyCode.asDexCode();
+      assertFalse(lazyCode.isEncoded());
+      for (Instruction instruction : dexCode.instructions) {
+        assertTrue(cursor.advance());
+        assertEquals(instruction.getOffset(), cursor.getOffset());
+        assertEquals(instruction.getSize(), cursor.getSize());
+        assertEquals(instruction.isPayload(), cursor.isPayload());
+        if (!instruction.isPayload()) {
+          assertEquals(instruction.getOpcode(), cursor.getOpcode());
+        }
+        checkIndex(instruction, cursor, mapping);
+      }
+      assertFalse(cursor.advance());
+      numberOfCheckedMethods++;
+    }
+    assertEquals(5, numberOfCheckedMethods);
+  }
+
+  private void checkIndex(
+      Instruction instruction, EncodedInstructionCursor cursor, OffsetToObjectMapping mapping) {
+    if (instruction.isConstString()) {
+      assertEquals(IndexKind.STRING, cursor.getIndexKind());
+      assertSame(instruction.asConstString().getString(), mapping.getString(cursor.getIndex()));
+    } else if (instruction.isInvokeVirtual() || instruction instanceof InvokeStatic) {
+      assertEquals(IndexKind.METHOD, cursor.getIndexKind());
+      assertSame(instruction.getMethod(), mapping.getMethod(cursor.getIndex()));
+    } else if (instruction instanceof Sget) {
+      assertEquals(IndexKind.FIELD, cursor.getIndexKind());
+      assertSame(((Sget) instruction).getField(), mapping.getField(cursor.getIndex()));
+    } else if (instruction instanceof NewInstance) {
+      assertEquals(IndexKind.TYPE, cursor.getIndexKind());
+      assertSame(((NewInstance) instruction).getType(), mapping.getType(cursor.getIndex()));
+    } else if (instruction.isPayload() || instruction instanceof ReturnObject) {
+      assertEquals(IndexKind.NONE, cursor.getIndexKind());
+    }
+  }
+
+  static class Main {
+
+    static final int[] VALUES = {1, 2, 3, 4, 5, 6};
+
+    public static void main(String[] args) {
+      System.out.println(packedSwitch(args.length));
+      System.out.println(sparseSwitch(args.length));
+      System.out.println(new StringBuilder().append("Hello").append(VALUES.length));
+    }
+
+    static String packedSwitch(int value) {
+      switch (value) {
+        case 0:
+          return "zero";
+        case 1:
+          return "one";
+        case 2:
+          return "two";
+        case 3:
+          return "three";
+        default:
+          return "many";
+      }
+    }
+
+    static String sparseSwitch(int value) {
+      switch (value) {
+        case 0:
+          return "zero";
+        case 100:
+          return "hundred";
+        case 10000:
+          return "ten thousand";
+        default:
+          return "other";
+      }
+    }
+  }
+}
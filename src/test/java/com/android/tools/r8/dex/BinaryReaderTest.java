@@ -0,0 +1,78 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.dex;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.ProgramResource;
+import com.android.tools.r8.ProgramResource.Kind;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.utils.AndroidApiLevel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class BinaryReaderTest extends TestBase {
+
+  @Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public BinaryReaderTest(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  private Path compile() throws Exception {
+    return testForD8()
+        .addProgramClasses(Main.class)
+        .setMinApi(AndroidApiLevel.B)
+        .compile()
+        .writeToDirectory()
+        .resolve("classes.dex");
+  }
+
+  private static byte[] getContent(CompatByteBuffer buffer) {
+    byte[] content = new byte[buffer.remaining()];
+    buffer.get(content);
+    return content;
+  }
+
+  @Test
+  public void testFileReadIntoHeap() throws Exception {
+    Path dex = compile();
+    byte[] expected = Files.readAllBytes(dex);
+    CompatByteBuffer buffer =
+        BinaryReader.createBuffer(ProgramResource.fromFile(Kind.DEX, dex), false);
+    assertTrue(buffer.hasArray());
+    // The input is not kept open, so it can be removed while the buffer is still in use.
+    Files.delete(dex);
+    assertArrayEquals(expected, getContent(buffer));
+  }
+
+  @Test
+  public void testMappedFile() throws Exception {
+    Path dex = compile();
+    byte[] expected = Files.readAllBytes(dex);
+    CompatByteBuffer buffer =
+        BinaryReader.createBuffer(ProgramResource.fromFile(Kind.DEX, dex), true);
+    assertFalse(buffer.hasArray());
+    assertArrayEquals(expected, getContent(buffer));
+  }
+
+  static class Main {
+
+    public static void main(String[] args) {
+      System.out.println("Hello world!");
+    }
+  }
+}
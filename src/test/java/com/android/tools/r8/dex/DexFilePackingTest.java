@@ -0,0 +1,122 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.dex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.utils.AndroidApiLevel;
+import com.google.common.collect.ImmutableList;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class DexFilePackingTest extends TestBase {
+
+  private final TestParameters parameters;
+
+  @Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    // Below L the main dex list distribution is used instead.
+    return getTestParameters()
+        .withDexRuntimes()
+        .withApiLevelsStartingAtIncluding(AndroidApiLevel.L)
+        .build();
+  }
+
+  public DexFilePackingTest(TestParameters parameters) {
+    this.parameters = parameters;
+  }
+
+  @Test
+  public void testPackagesAreSplitToFillFiles() throws Exception {
+    // Three packages of two classes each, with room for three classes per file. The package based
+    // distribution keeps each package in a single file, whereas packing fills up the files.
+    List<List<String>> packed = compileSplitPackages(true);
+    assertEquals(
+        ImmutableList.of(
+            ImmutableList.of("foo.a.P1", "foo.a.P2", "foo.b.Q1"),
+            ImmutableList.of("foo.b.Q2", "foo.c.R1", "foo.c.R2")),
+        packed);
+    assertNotEquals(compileSplitPackages(false), packed);
+  }
+
+  // Returns the sorted class names of each of the dex files in order.
+  private List<List<String>> compileSplitPackages(boolean enableDexFilePacking) throws Exception {
+    Path outputDir =
+        testForD8()
+            .addProgramClassFileData(
+                transformer(B.class).setClassDescriptor("Lfoo/a/P1;").transform(),
+                transformer(C.class).setClassDescriptor("Lfoo/a/P2;").transform(),
+                transformer(D.class).setClassDescriptor("Lfoo/b/Q1;").transform(),
+                transformer(E.class).setClassDescriptor("Lfoo/b/Q2;").transform(),
+                transformer(F.class).setClassDescriptor("Lfoo/c/R1;").transform(),
+                transformer(G.class).setClassDescriptor("Lfoo/c/R2;").transform())
+            .addOptionsModification(
+                options -> {
+                  options.enableDexFilePacking = enableDexFilePacking;
+                  options.testing.limitNumberOfClassesPerDex = 3;
+                })
+            .setMinApi(parameters.getApiLevel())
+            .release()
+            .compile()
+            .writeToDirectory();
+    List<List<String>> files = new ArrayList<>();
+    for (int i = 1; ; i++) {
+      Path dexFile = outputDir.resolve(i == 1 ? "classes.dex" : "classes" + i + ".dex");
+      if (!Files.exists(dexFile)) {
+        return files;
+      }
+      List<String> classNames = new ArrayList<>(classNamesFromDexFile(dexFile));
+      Collections.sort(classNames);
+      files.add(classNames);
+    }
+  }
+
+  static class B {
+    public static void foo() {
+      System.out.println("foo");
+    }
+  }
+
+  static class C {
+    public static void bar() {
+      System.out.println("bar");
+    }
+  }
+
+  static class D {
+    public static void foobar() {
+      System.out.println("foobar");
+    }
+  }
+
+  static class E {
+    public static void barfoo() {
+      System.out.println("barfoo");
+    }
+  }
+
+  static class F {
+    public static void baz() {
+      System.out.println("baz");
+    }
+  }
+
+  static class G {
+    public static void qux() {
+      System.out.println("qux");
+    }
+  }
+}
@@ -0,0 +1,164 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.dex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.D8Command;
+import com.android.tools.r8.DexFileMergerHelper;
+import com.android.tools.r8.OutputMode;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.utils.StringUtils;
+import com.android.tools.r8.utils.codeinspector.ClassSubject;
+import com.android.tools.r8.utils.codeinspector.CodeInspector;
+import com.android.tools.r8.utils.codeinspector.FoundMethodSubject;
+import com.google.common.collect.ImmutableMap;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class EncodedDexCodeWritingTest extends TestBase {
+
+  private static final String EXPECTED = StringUtils.lines("Hello, world!", "two", "caught", "42");
+
+  private final TestParameters parameters;
+
+  @Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withDexRuntimes().withAllApiLevels().build();
+  }
+
+  public EncodedDexCodeWritingTest(TestParameters parameters) {
+    this.parameters = parameters;
+  }
+
+  @Test
+  public void testMergeWithRemappedIndices() throws Exception {
+    Path mainDex =
+        testForD8()
+            .addProgramClasses(Main.class)
+            .setMinApi(parameters.getApiLevel())
+            .compile()
+            .writeToZip();
+    Path helperDex =
+        testForD8()
+            .addProgramClasses(Helper.class)
+            .setMinApi(parameters.getApiLevel())
+            .compile()
+            .writeToZip();
+    // The strings and types of the helper sort before those of the main class, so the indices of
+    // the main class change when the files are merged.
+    testForD8()
+        .addProgramFiles(mainDex, helperDex)
+        .addOptionsModification(
+            options -> {
+              options.enableLazyDexCode = true;
+              options.enableEncodedDexCodeWriting = true;
+            })
+        .setMinApi(parameters.getApiLevel())
+        .compile()
+        .inspect(
+            inspector -> {
+              assertSameCode(new CodeInspector(mainDex), inspector, Main.class);
+              assertSameCode(new CodeInspector(helperDex), inspector, Helper.class);
+            })
+        .run(parameters.getRuntime(), Main.class)
+        .assertSuccessWithOutput(EXPECTED);
+  }
+
+  @Test
+  public void testDexFileMerger() throws Exception {
+    Path mainDex =
+        testForD8()
+            .addProgramClasses(Main.class)
+            .setMinApi(parameters.getApiLevel())
+            .compile()
+            .writeToZip();
+    Path helperDex =
+        testForD8()
+            .addProgramClasses(Helper.class)
+            .setMinApi(parameters.getApiLevel())
+            .compile()
+            .writeToZip();
+    Path merged = temp.newFolder().toPath().resolve("merged.zip");
+    AtomicInteger encodedDexCodeWrites = new AtomicInteger(-1);
+    DexFileMergerHelper.runForTesting(
+        D8Command.builder()
+            .addProgramFiles(mainDex, helperDex)
+            .setMinApiLevel(parameters.getApiLevel().getLevel())
+            .setOutput(merged, OutputMode.DexIndexed)
+            .build(),
+        false,
+        ImmutableMap.of(mainDex.toString(), 1, helperDex.toString(), 2),
+        options -> options.testing.encodedDexCodeWritesConsumer = encodedDexCodeWrites::set);
+    // All methods only refer to strings, types, fields and methods, so none are decoded.
+    assertTrue(encodedDexCodeWrites.get() > 0);
+    CodeInspector inspector = new CodeInspector(merged);
+    assertSameCode(new CodeInspector(mainDex), inspector, Main.class);
+    assertSameCode(new CodeInspector(helperDex), inspector, Helper.class);
+  }
+
+  private void assertSameCode(CodeInspector expected, CodeInspector actual, Class<?> clazz) {
+    ClassSubject expectedClass = expected.clazz(clazz);
+    ClassSubject actualClass = actual.clazz(clazz);
+    for (FoundMethodSubject method : expectedClass.allMethods()) {
+      if (method.getMethod().hasCode()) {
+        assertEquals(
+            method.getMethod().codeToString(),
+            actualClass
+                .method(method.getMethod().getReference().asMethodReference())
+                .getMethod()
+                .codeToString());
+      }
+    }
+  }
+
+  static class Main {
+
+    static int value = 42;
+
+    public static void main(String[] args) {
+      System.out.println(Helper.greet("world"));
+      System.out.println(Helper.name(args.length + 2));
+      try {
+        Helper.fail();
+      } catch (IllegalStateException e) {
+        System.out.println("caught");
+      }
+      System.out.println(value);
+    }
+  }
+
+  static class Helper {
+
+    static String greet(String name) {
+      return "Hello, " + name + "!";
+    }
+
+    static String name(int value) {
+      switch (value) {
+        case 0:
+          return "zero";
+        case 1:
+          return "one";
+        case 2:
+          return "two";
+        default:
+          return "many";
+      }
+    }
+
+    static void fail() {
+      throw new IllegalStateException("A");
+    }
+  }
+}
@@ -6,6 +6,7 @@ package com.android.tools.r8.dexsplitter;
 import static junit.framework.TestCase.assertEquals;
 import static junit.framework.TestCase.assertNotNull;
 import static junit.framework.TestCase.assertTrue;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNull;
 
@@ -21,6 +22,7 @@ import com.android.tools.r8.ToolHelper.ProcessResult;
 import com.android.tools.r8.dex.Marker;
 import com.android.tools.r8.utils.Pair;
 import com.android.tools.r8.utils.StringUtils;
+import com.android.tools.r8.utils.ZipUtils;
 import com.android.tools.r8.utils.codeinspector.CodeInspector;
 import com.google.common.collect.ImmutableList;
 import com.google.common.io.ByteStreams;
@@ -101,6 +103,23 @@ public class R8FeatureSplitTest extends SplitterTestBase {
     assertEquals(result.stdout, StringUtils.lines("Testing second"));
   }
 
+  @Test
+  public void testTwoFeaturesDeterministic()
+      throws CompilationFailedException, IOException, ExecutionException {
+    // The feature splits are distributed concurrently, which must not affect the output.
+    CompiledWithFeature first = new CompiledWithFeature().invoke();
+    CompiledWithFeature second = new CompiledWithFeature().invoke();
+    assertArrayEquals(readClassesDex(first.getBasePath()), readClassesDex(second.getBasePath()));
+    assertArrayEquals(
+        readClassesDex(first.getFeature1Path()), readClassesDex(second.getFeature1Path()));
+    assertArrayEquals(
+        readClassesDex(first.getFeature2Path()), readClassesDex(second.getFeature2Path()));
+  }
+
+  private static byte[] readClassesDex(Path archive) throws IOException {
+    return ZipUtils.readSingleEntry(archive, "classes.dex");
+  }
+
   @Test
   public void testMarkerInFeatures()
       throws IOException, CompilationFailedException, ExecutionException, ResourceException {
@@ -0,0 +1,152 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.enumunboxing;
+
+import static org.junit.Assert.assertEquals;
+
+import com.android.tools.r8.NeverClassInline;
+import com.android.tools.r8.NeverInline;
+import com.android.tools.r8.R8TestCompileResult;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import java.nio.file.Path;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Enum unboxing analyzes methods and fixes up classes concurrently. Check that the output does not
+ * depend on the order in which this happens.
+ */
+@RunWith(Parameterized.class)
+public class EnumUnboxingDeterminismTest extends EnumUnboxingTestBase {
+
+  private static final int NUMBER_OF_COMPILATIONS = 5;
+
+  private final TestParameters parameters;
+
+  @Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public EnumUnboxingDeterminismTest(TestParameters parameters) {
+    this.parameters = parameters;
+  }
+
+  @Test
+  public void test() throws Exception {
+    parameters.assertNoneRuntime();
+    R8TestCompileResult expected = compile();
+    Path expectedJar = expected.writeToZip();
+    for (int i = 1; i < NUMBER_OF_COMPILATIONS; i++) {
+      R8TestCompileResult actual = compile();
+      assertProgramsEqual(expectedJar, actual.writeToZip());
+      assertEquals(expected.getProguardMap(), actual.getProguardMap());
+    }
+  }
+
+  private R8TestCompileResult compile() throws Exception {
+    return testForR8(Backend.CF)
+        .addInnerClasses(EnumUnboxingDeterminismTest.class)
+        .addKeepMainRule(Main.class)
+        .addEnumUnboxingInspector(
+            inspector -> inspector.assertUnboxed(Color.class, Size.class, Shape.class))
+        .addOptionsModification(options -> enableEnumOptions(options, true))
+        .enableInliningAnnotations()
+        .enableNeverClassInliningAnnotations()
+        .compile();
+  }
+
+  @NeverClassInline
+  enum Color {
+    RED("r"),
+    GREEN("g"),
+    BLUE("b");
+
+    final String code;
+
+    Color(String code) {
+      this.code = code;
+    }
+  }
+
+  @NeverClassInline
+  enum Size {
+    SMALL(1),
+    MEDIUM(2),
+    LARGE(3);
+
+    final int weight;
+
+    Size(int weight) {
+      this.weight = weight;
+    }
+  }
+
+  @NeverClassInline
+  enum Shape {
+    CIRCLE,
+    SQUARE,
+    TRIANGLE;
+
+    @NeverInline
+    Shape next() {
+      return values()[(ordinal() + 1) % values().length];
+    }
+  }
+
+  static class Painter {
+
+    @NeverInline
+    static String paint(Color color, Shape shape) {
+      return color.code + shape.name();
+    }
+
+    @NeverInline
+    static String paint(Color color, Size size) {
+      return color.code + size.weight;
+    }
+
+    @NeverInline
+    static Color mix(Color first, Color second) {
+      return first == second ? first : Color.values()[(first.ordinal() + second.ordinal()) % 3];
+    }
+  }
+
+  static class Measurer {
+
+    @NeverInline
+    static int measure(Size size, Shape shape) {
+      return size.weight * (shape.ordinal() + 3);
+    }
+
+    @NeverInline
+    static Size grow(Size size) {
+      return size == Size.LARGE ? size : Size.values()[size.ordinal() + 1];
+    }
+
+    @NeverInline
+    static Shape turn(Shape shape) {
+      return shape.next();
+    }
+  }
+
+  static class Main {
+
+    public static void main(String[] args) {
+      for (Color color : Color.values()) {
+        for (Shape shape : Shape.values()) {
+          System.out.println(Painter.paint(Painter.mix(color, Color.BLUE), Measurer.turn(shape)));
+        }
+        for (Size size : Size.values()) {
+          System.out.println(Painter.paint(color, Measurer.grow(size)));
+          System.out.println(Measurer.measure(size, Shape.SQUARE));
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,115 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.graph;
+
+import static org.junit.Assert.assertSame;
+
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.graph.GraphLens.NonIdentityGraphLens;
+import com.android.tools.r8.ir.code.Invoke.Type;
+import com.android.tools.r8.utils.AndroidApp;
+import com.android.tools.r8.utils.collections.BidirectionalOneToOneHashMap;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Measures the throughput of type, field and method lookups on the last lens of a chain of nested
+ * lenses, with and without the memoized lookups of the lens.
+ */
+@RunWith(Parameterized.class)
+public class GraphLensLookupBenchmark extends TestBase {
+
+  private static final int NUMBER_OF_CLASSES = 2000;
+  private static final int NUMBER_OF_LENSES = 10;
+  private static final int NUMBER_OF_ROUNDS = 20;
+
+  @Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public GraphLensLookupBenchmark(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  @Test
+  public void run() throws Exception {
+    AppView<AppInfo> appView = computeAppView(AndroidApp.builder().build());
+    DexItemFactory factory = appView.dexItemFactory();
+    DexProto proto = factory.createProto(factory.voidType);
+    List<DexType> types = new ArrayList<>();
+    List<DexField> fields = new ArrayList<>();
+    List<DexMethod> methods = new ArrayList<>();
+    for (int i = 0; i < NUMBER_OF_CLASSES; i++) {
+      DexType type = factory.createType("LC" + i + "_0;");
+      types.add(type);
+      fields.add(factory.createField(type, factory.intType, "f"));
+      methods.add(factory.createMethod(type, proto, "m"));
+    }
+
+    // Each lens moves every class, and the members along with it, to a new class.
+    List<DexType> currentTypes = types;
+    for (int lens = 1; lens <= NUMBER_OF_LENSES; lens++) {
+      Map<DexType, DexType> typeMap = new IdentityHashMap<>();
+      BidirectionalOneToOneHashMap<DexField, DexField> fieldMap =
+          new BidirectionalOneToOneHashMap<>();
+      BidirectionalOneToOneHashMap<DexMethod, DexMethod> methodMap =
+          new BidirectionalOneToOneHashMap<>();
+      List<DexType> newTypes = new ArrayList<>();
+      for (int i = 0; i < NUMBER_OF_CLASSES; i++) {
+        DexType type = currentTypes.get(i);
+        DexType newType = factory.createType("LC" + i + "_" + lens + ";");
+        typeMap.put(type, newType);
+        fieldMap.put(
+            factory.createField(type, factory.intType, "f"),
+            factory.createField(newType, factory.intType, "f"));
+        methodMap.put(
+            factory.createMethod(type, proto, "m"), factory.createMethod(newType, proto, "m"));
+        newTypes.add(newType);
+      }
+      appView.setGraphLens(new NestedGraphLens(appView, fieldMap, methodMap, typeMap));
+      currentTypes = newTypes;
+    }
+
+    NonIdentityGraphLens lens = appView.graphLens().asNonIdentityLens();
+    long uncached = 0;
+    long cached = 0;
+    for (int round = 0; round < NUMBER_OF_ROUNDS; round++) {
+      lens.clearLookupCaches();
+      uncached += lookupAll(lens, types, fields, methods, currentTypes);
+      cached += lookupAll(lens, types, fields, methods, currentTypes);
+    }
+    long lookups = 3L * NUMBER_OF_CLASSES * NUMBER_OF_ROUNDS;
+    System.out.println("Lookups through " + NUMBER_OF_LENSES + " lenses: " + lookups);
+    System.out.println("Without memoized lookups: " + (uncached / lookups) + " ns/lookup");
+    System.out.println("With memoized lookups: " + (cached / lookups) + " ns/lookup");
+  }
+
+  private static long lookupAll(
+      NonIdentityGraphLens lens,
+      List<DexType> types,
+      List<DexField> fields,
+      List<DexMethod> methods,
+      List<DexType> expectedTypes) {
+    long start = System.nanoTime();
+    for (int i = 0; i < types.size(); i++) {
+      DexType expectedType = expectedTypes.get(i);
+      assertSame(expectedType, lens.lookupClassType(types.get(i)));
+      assertSame(expectedType, lens.lookupField(fields.get(i)).getHolderType());
+      assertSame(
+          expectedType,
+          lens.lookupMethod(methods.get(i), null, Type.STATIC).getReference().getHolderType());
+    }
+    return System.nanoTime() - start;
+  }
+}
@@ -0,0 +1,153 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.graph;
+
+import static org.junit.Assert.assertSame;
+
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.graph.GraphLens.FieldLookupResult;
+import com.android.tools.r8.graph.GraphLens.MethodLookupResult;
+import com.android.tools.r8.graph.GraphLens.NonIdentityGraphLens;
+import com.android.tools.r8.ir.code.Invoke.Type;
+import com.android.tools.r8.utils.AndroidApp;
+import com.android.tools.r8.utils.collections.BidirectionalOneToOneHashMap;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class GraphLensLookupCacheTest extends TestBase {
+
+  @Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public GraphLensLookupCacheTest(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  @Test
+  public void testReplacingParentLens() throws Exception {
+    AppView<AppInfo> appView = computeAppView(AndroidApp.builder().build());
+    DexItemFactory factory = appView.dexItemFactory();
+    DexType a = factory.createType("LA;");
+    DexType b = factory.createType("LB;");
+    DexType c = factory.createType("LC;");
+    DexType d = factory.createType("LD;");
+    DexType arrayOfA = factory.createArrayType(1, a);
+
+    // The lens chain is identity <- first {A -> B} <- second {B -> C}, and the alternative parent
+    // of the first lens is the lens {A -> D}.
+    NonIdentityGraphLens alternativeParent = createLens(appView, ImmutableMap.of(a, d));
+    NonIdentityGraphLens first = createLens(appView, ImmutableMap.of(a, b));
+    appView.setGraphLens(first);
+    NonIdentityGraphLens second = createLens(appView, ImmutableMap.of(b, c));
+    appView.setGraphLens(second);
+
+    assertSame(b, first.lookupClassType(a));
+    assertSame(c, second.lookupClassType(a));
+    assertSame(factory.createArrayType(1, c), second.lookupType(arrayOfA));
+
+    second.clearLookupCaches();
+    first.withAlternativeParentLens(
+        alternativeParent,
+        () -> {
+          assertSame(d, first.lookupClassType(a));
+          assertSame(d, second.lookupClassType(a));
+          assertSame(factory.createArrayType(1, d), second.lookupType(arrayOfA));
+        });
+    second.clearLookupCaches();
+
+    assertSame(b, first.lookupClassType(a));
+    assertSame(c, second.lookupClassType(a));
+    assertSame(factory.createArrayType(1, c), second.lookupType(arrayOfA));
+  }
+
+  @Test
+  public void testMemberLookups() throws Exception {
+    AppView<AppInfo> appView = computeAppView(AndroidApp.builder().build());
+    DexItemFactory factory = appView.dexItemFactory();
+    DexType a = factory.createType("LA;");
+    DexType b = factory.createType("LB;");
+    DexType c = factory.createType("LC;");
+    DexType d = factory.createType("LD;");
+    DexProto proto = factory.createProto(factory.voidType);
+    DexMethod methodOnA = factory.createMethod(a, proto, "m");
+    DexMethod methodOnB = factory.createMethod(b, proto, "m");
+    DexMethod methodOnC = factory.createMethod(c, proto, "m");
+    DexMethod methodOnD = factory.createMethod(d, proto, "m");
+    DexField fieldOnA = factory.createField(a, factory.intType, "f");
+    DexField fieldOnB = factory.createField(b, factory.intType, "f");
+    DexField fieldOnC = factory.createField(c, factory.intType, "f");
+    DexField fieldOnD = factory.createField(d, factory.intType, "f");
+
+    // The lens chain is identity <- first {A -> B} <- second {B -> C}, and the alternative parent
+    // of the first lens is the lens {A -> D}, where the members are moved along with the types.
+    NonIdentityGraphLens alternativeParent =
+        createLens(
+            appView, ImmutableMap.of(fieldOnA, fieldOnD), ImmutableMap.of(methodOnA, methodOnD));
+    NonIdentityGraphLens first =
+        createLens(
+            appView, ImmutableMap.of(fieldOnA, fieldOnB), ImmutableMap.of(methodOnA, methodOnB));
+    appView.setGraphLens(first);
+    NonIdentityGraphLens second =
+        createLens(
+            appView, ImmutableMap.of(fieldOnB, fieldOnC), ImmutableMap.of(methodOnB, methodOnC));
+    appView.setGraphLens(second);
+
+    MethodLookupResult methodLookup = second.lookupMethod(methodOnA, null, Type.STATIC);
+    assertSame(methodOnC, methodLookup.getReference());
+    assertSame(Type.STATIC, methodLookup.getType());
+    assertSame(methodLookup, second.lookupMethod(methodOnA, null, Type.STATIC));
+    assertSame(methodOnC, second.lookupMethod(methodOnA, null, Type.VIRTUAL).getReference());
+    assertSame(Type.VIRTUAL, second.lookupMethod(methodOnA, null, Type.VIRTUAL).getType());
+    FieldLookupResult fieldLookup = second.lookupFieldResult(fieldOnA);
+    assertSame(fieldOnC, fieldLookup.getReference());
+    assertSame(fieldLookup, second.lookupFieldResult(fieldOnA));
+    assertSame(methodOnB, first.lookupMethod(methodOnA, null, Type.STATIC).getReference());
+    assertSame(fieldOnB, first.lookupField(fieldOnA));
+
+    second.clearLookupCaches();
+    first.withAlternativeParentLens(
+        alternativeParent,
+        () -> {
+          assertSame(methodOnD, second.lookupMethod(methodOnA, null, Type.STATIC).getReference());
+          assertSame(methodOnD, first.lookupMethod(methodOnA, null, Type.STATIC).getReference());
+          assertSame(fieldOnD, second.lookupField(fieldOnA));
+          assertSame(fieldOnD, first.lookupField(fieldOnA));
+        });
+    second.clearLookupCaches();
+
+    assertSame(methodOnC, second.lookupMethod(methodOnA, null, Type.STATIC).getReference());
+    assertSame(methodOnB, first.lookupMethod(methodOnA, null, Type.STATIC).getReference());
+    assertSame(fieldOnC, second.lookupField(fieldOnA));
+    assertSame(fieldOnB, first.lookupField(fieldOnA));
+  }
+
+  private static NonIdentityGraphLens createLens(
+      AppView<?> appView, ImmutableMap<DexType, DexType> typeMap) {
+    return new NestedGraphLens(
+        appView, NestedGraphLens.EMPTY_FIELD_MAP, NestedGraphLens.EMPTY_METHOD_MAP, typeMap);
+  }
+
+  private static NonIdentityGraphLens createLens(
+      AppView<?> appView,
+      ImmutableMap<DexField, DexField> fieldMap,
+      ImmutableMap<DexMethod, DexMethod> methodMap) {
+    BidirectionalOneToOneHashMap<DexField, DexField> fieldMapping =
+        new BidirectionalOneToOneHashMap<>();
+    fieldMapping.putAll(fieldMap);
+    BidirectionalOneToOneHashMap<DexMethod, DexMethod> methodMapping =
+        new BidirectionalOneToOneHashMap<>();
+    methodMapping.putAll(methodMap);
+    return new NestedGraphLens(
+        appView, fieldMapping, methodMapping, NestedGraphLens.EMPTY_TYPE_MAP);
+  }
+}
@@ -0,0 +1,136 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.utils.AndroidApiLevel;
+import com.android.tools.r8.utils.ThreadUtils;
+import com.android.tools.r8.utils.codeinspector.CodeInspector;
+import com.android.tools.r8.utils.codeinspector.FoundClassSubject;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class LazyDexCodeTest extends TestBase {
+
+  private static final int NUMBER_OF_THREADS = 4;
+
+  @Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public LazyDexCodeTest(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  private Path compile() throws Exception {
+    return testForD8()
+        .addProgramClasses(Main.class)
+        .setMinApi(AndroidApiLevel.B)
+        .compile()
+        .writeToZip();
+  }
+
+  private static List<LazyDexCode> readLazyDexCode(Path dex) throws IOException {
+    CodeInspector inspector = new CodeInspector(dex, options -> options.enableLazyDexCode = true);
+    List<LazyDexCode> codes = new ArrayList<>();
+    for (FoundClassSubject clazz : inspector.allClasses()) {
+      for (DexEncodedMethod method : clazz.getDexProgramClass().methods()) {
+        if (method.hasCode()) {
+          assertTrue(method.getCode().isLazyDexCode());
+          codes.add(method.getCode().asLazyDexCode());
+        }
+      }
+    }
+    assertFalse(codes.isEmpty());
+    return codes;
+  }
+
+  @Test
+  public void testConcurrentDecoding() throws Exception {
+    Path dex = compile();
+    for (int iteration = 0; iteration < 10; iteration++) {
+      List<LazyDexCode> codes = readLazyDexCode(dex);
+      ExecutorService executorService = ThreadUtils.getExecutorService(NUMBER_OF_THREADS);
+      try {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < NUMBER_OF_THREADS; i++) {
+          boolean decode = i % 2 == 0;
+          futures.add(
+              executorService.submit(
+                  () -> {
+                    for (LazyDexCode code : codes) {
+                      if (decode) {
+                        code.asDexCode();
+                      } else {
+                        // These are used by the writer while other threads may decode the code.
+                        code.canWriteEncoded();
+                        code.getHighestSortingString();
+                        code.getDebugInfoForWriting();
+                        code.estimatedDexCodeSizeUpperBoundInBytes();
+                        code.asDexWritableCode();
+                      }
+                    }
+                  }));
+        }
+        ThreadUtils.awaitFutures(futures);
+      } finally {
+        executorService.shutdown();
+      }
+      for (LazyDexCode code : codes) {
+        assertFalse(code.isEncoded());
+        assertFalse(code.canWriteEncoded());
+        assertSame(code.asDexCode(), code.asDexWritableCode());
+      }
+    }
+  }
+
+  @Test
+  public void testEqualsIsSymmetricAndHashingDoesNotDecode() throws Exception {
+    Path dex = compile();
+    List<LazyDexCode> codes = readLazyDexCode(dex);
+    List<LazyDexCode> otherCodes = readLazyDexCode(dex);
+    assertEquals(codes.size(), otherCodes.size());
+    for (int i = 0; i < codes.size(); i++) {
+      LazyDexCode code = codes.get(i);
+      LazyDexCode otherCode = otherCodes.get(i);
+      assertEquals(code.hashCode(), otherCode.hashCode());
+      assertTrue(code.toString(), code.isEncoded());
+      assertEquals(code, otherCode);
+      assertEquals(otherCode, code);
+      DexCode decoded = code.asDexCode();
+      assertNotEquals(code, decoded);
+      assertNotEquals(decoded, code);
+    }
+  }
+
+  static class Main {
+
+    public static void main(String[] args) {
+      try {
+        System.out.println(args.length == 0 ? "Hello" : args[0]);
+      } catch (RuntimeException e) {
+        System.out.println("Caught");
+      }
+    }
+  }
+}
@@ -0,0 +1,146 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.graph.genericsignature;
+
+import static com.android.tools.r8.DiagnosticsMatcher.diagnosticMessage;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.ToolHelper;
+import com.android.tools.r8.transformers.ClassFileTransformer.FieldPredicate;
+import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.ZipUtils;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+
+@RunWith(Parameterized.class)
+public class GenericSignatureOriginalStringTest extends TestBase {
+
+  private static final String INVALID_CLASS_SIGNATURE = "<T:Ljava/lang/Object;>Ljava/lang/Object";
+  private static final String INVALID_FIELD_SIGNATURE = "Ljava/util/List<TT;";
+
+  @Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public GenericSignatureOriginalStringTest(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  @Test
+  public void testUnchangedSignaturesAreWrittenAsIs() throws Exception {
+    Path output =
+        testForR8(Backend.CF)
+            .addProgramClasses(Box.class, Main.class)
+            .addKeepAllClassesRule()
+            .addKeepAttributeSignature()
+            .addKeepAttributeInnerClassesAndEnclosingMethod()
+            .compile()
+            .writeToZip();
+    Map<String, String> expected = getSignatures(ToolHelper.getClassAsBytes(Box.class));
+    assertFalse(expected.isEmpty());
+    assertEquals(
+        expected,
+        getSignatures(ZipUtils.readSingleEntry(output, ZipUtils.zipEntryNameForClass(Box.class))));
+  }
+
+  @Test
+  public void testInvalidSignaturesOfPrunedClassesAreReported() throws Exception {
+    testForR8(Backend.CF)
+        .addProgramClasses(Main.class)
+        .addProgramClassFileData(
+            transformer(Box.class)
+                .setGenericSignature(INVALID_CLASS_SIGNATURE)
+                .setGenericSignature(FieldPredicate.onName("values"), INVALID_FIELD_SIGNATURE)
+                .transform())
+        .addKeepMainRule(Main.class)
+        .addKeepAttributeSignature()
+        .allowDiagnosticWarningMessages()
+        .compileWithExpectedDiagnostics(
+            diagnostics ->
+                diagnostics.assertWarningsMatch(
+                    diagnosticMessage(
+                        containsString("Invalid signature '" + INVALID_CLASS_SIGNATURE + "'")),
+                    diagnosticMessage(
+                        containsString("Invalid signature '" + INVALID_FIELD_SIGNATURE + "'"))))
+        .inspect(inspector -> assertFalse(inspector.clazz(Box.class).isPresent()));
+  }
+
+  // Returns the signature attributes of the class and its members.
+  private static Map<String, String> getSignatures(byte[] classFile) {
+    Map<String, String> signatures = new HashMap<>();
+    new ClassReader(classFile)
+        .accept(
+            new ClassVisitor(InternalOptions.ASM_VERSION) {
+              @Override
+              public void visit(
+                  int version,
+                  int access,
+                  String name,
+                  String signature,
+                  String superName,
+                  String[] interfaces) {
+                putIfPresent(signatures, name, signature);
+              }
+
+              @Override
+              public FieldVisitor visitField(
+                  int access, String name, String descriptor, String signature, Object value) {
+                putIfPresent(signatures, name + ":" + descriptor, signature);
+                return null;
+              }
+
+              @Override
+              public MethodVisitor visitMethod(
+                  int access,
+                  String name,
+                  String descriptor,
+                  String signature,
+                  String[] exceptions) {
+                putIfPresent(signatures, name + descriptor, signature);
+                return null;
+              }
+            },
+            ClassReader.SKIP_CODE);
+    return signatures;
+  }
+
+  private static void putIfPresent(Map<String, String> signatures, String key, String signature) {
+    if (signature != null) {
+      signatures.put(key, signature);
+    }
+  }
+
+  public static class Box<T extends Comparable<? super T>> {
+
+    public List<? extends T> values;
+
+    public <S extends T> S first(Map<String, ? super S> map) {
+      return null;
+    }
+  }
+
+  public static class Main {
+
+    public static void main(String[] args) {
+      System.out.println("Hello world!");
+    }
+  }
+}
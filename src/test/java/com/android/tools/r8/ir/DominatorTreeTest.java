@@ -0,0 +1,163 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.ir;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.graph.AppInfo;
+import com.android.tools.r8.graph.AppView;
+import com.android.tools.r8.ir.code.BasicBlock;
+import com.android.tools.r8.ir.code.DominatorTree;
+import com.android.tools.r8.ir.code.IRCode;
+import com.android.tools.r8.smali.SmaliBuilder;
+import com.android.tools.r8.smali.SmaliBuilder.MethodSignature;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class DominatorTreeTest extends IrInjectionTestBase {
+
+  @Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public DominatorTreeTest(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  private TestApplication codeWithDiamondAndLoop() throws Exception {
+    SmaliBuilder builder = new SmaliBuilder(DEFAULT_CLASS_NAME);
+    MethodSignature signature =
+        builder.addStaticMethod(
+            "int",
+            DEFAULT_METHOD_NAME,
+            ImmutableList.of("int"),
+            1,
+            "    if-eqz              p0, :else",
+            "    const/4             v0, 1",
+            "    goto                :loop",
+            "  :else",
+            "    const/4             v0, 2",
+            "  :loop",
+            "    add-int/lit8        v0, v0, -1",
+            "    if-nez              v0, :loop",
+            "    return              v0");
+    builder.addMainMethod(
+        2,
+        "    sget-object         v0, Ljava/lang/System;->out:Ljava/io/PrintStream;",
+        "    const/4             v1, 0",
+        "    invoke-static       { v1 }, LTest;->method(I)I",
+        "    move-result         v1",
+        "    invoke-virtual      { v0, v1 }, Ljava/io/PrintStream;->print(I)V",
+        "    return-void");
+    AppView<AppInfo> appView = computeAppView(builder.build());
+    return new TestApplication(appView, getMethodSubject(appView.appInfo().app(), signature));
+  }
+
+  @Test
+  public void testQueries() throws Exception {
+    IRCode code = codeWithDiamondAndLoop().code;
+    assertDominance(code, new DominatorTree(code));
+  }
+
+  @Test
+  public void testBlockSplit() throws Exception {
+    TestApplication test = codeWithDiamondAndLoop();
+    IRCode code = test.code;
+    DominatorTree dominatorTree = new DominatorTree(code);
+    for (BasicBlock block : ImmutableList.copyOf(code.blocks)) {
+      if (block.getInstructions().size() > 1) {
+        BasicBlock newBlock =
+            test.listIteratorAt(block, block.getInstructions().size() - 1).split(code);
+        dominatorTree.onBlockSplit(block, newBlock);
+        assertEquals(block, dominatorTree.immediateDominator(newBlock));
+        assertDominance(code, dominatorTree);
+      }
+    }
+  }
+
+  @Test
+  public void testNormalExitBlockIsNotStrictlyDominated() throws Exception {
+    IRCode code = codeWithDiamondAndLoop().code;
+    DominatorTree dominatorTree = new DominatorTree(code);
+    Set<BasicBlock> blocks = Sets.newIdentityHashSet();
+    blocks.addAll(code.blocks);
+    BasicBlock normalExitBlock = null;
+    for (BasicBlock block : dominatorTree.getSortedBlocks()) {
+      if (!blocks.contains(block)) {
+        normalExitBlock = block;
+      }
+    }
+    assertNotNull(normalExitBlock);
+    for (BasicBlock block : code.blocks) {
+      assertFalse(dominatorTree.strictlyDominatedBy(normalExitBlock, block));
+      assertFalse(dominatorTree.strictlyDominatedBy(block, normalExitBlock));
+    }
+  }
+
+  @Test
+  public void testQueriesDoNotRenumberBlocks() throws Exception {
+    TestApplication test = codeWithDiamondAndLoop();
+    IRCode code = test.code;
+    DominatorTree dominatorTree = new DominatorTree(code);
+    BasicBlock block = code.entryBlock();
+    BasicBlock newBlock =
+        test.listIteratorAt(block, block.getInstructions().size() - 1).split(code);
+    dominatorTree.onBlockSplit(block, newBlock);
+    Map<BasicBlock, Integer> numbers = new IdentityHashMap<>();
+    for (BasicBlock current : code.blocks) {
+      numbers.put(current, current.getNumber());
+    }
+    assertDominance(code, dominatorTree);
+    for (BasicBlock current : code.blocks) {
+      assertEquals(numbers.get(current).intValue(), current.getNumber());
+    }
+  }
+
+  private static void assertDominance(IRCode code, DominatorTree dominatorTree) {
+    for (BasicBlock dominator : code.blocks) {
+      Set<BasicBlock> reachable = reachableWithout(code, dominator);
+      for (BasicBlock subject : code.blocks) {
+        assertEquals(
+            subject == dominator || !reachable.contains(subject),
+            dominatorTree.dominatedBy(subject, dominator));
+        assertEquals(
+            subject != dominator && !reachable.contains(subject),
+            dominatorTree.strictlyDominatedBy(subject, dominator));
+      }
+      assertEquals(
+          Sets.difference(Sets.newHashSet(code.blocks), reachable),
+          Sets.newHashSet(dominatorTree.dominatedBlocks(dominator)));
+    }
+  }
+
+  // Returns the blocks that are reachable from the entry block without passing through `block`.
+  private static Set<BasicBlock> reachableWithout(IRCode code, BasicBlock block) {
+    Set<BasicBlock> reachable = Sets.newIdentityHashSet();
+    Deque<BasicBlock> worklist = new ArrayDeque<>();
+    worklist.add(code.entryBlock());
+    while (!worklist.isEmpty()) {
+      BasicBlock current = worklist.removeLast();
+      if (current != block && reachable.add(current)) {
+        worklist.addAll(current.getSuccessors());
+      }
+    }
+    return reachable;
+  }
+}
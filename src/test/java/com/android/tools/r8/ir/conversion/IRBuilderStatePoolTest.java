@@ -0,0 +1,80 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.ir.conversion;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.ir.conversion.IRBuilder.TransientState;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class IRBuilderStatePoolTest extends TestBase {
+
+  @Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public IRBuilderStatePoolTest(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  @Test
+  public void testReleasedStateIsClearedAndReused() {
+    IRBuilderStatePool pool = new IRBuilderStatePool();
+    TransientState state = pool.acquire();
+    state.traceBlocksWorklist.enqueue(1);
+    boolean[] processedInstructions = state.getProcessedInstructions(10);
+    processedInstructions[3] = true;
+    pool.release(state);
+    assertEquals(1, pool.size());
+
+    TransientState reused = pool.acquire();
+    assertSame(state, reused);
+    assertEquals(0, pool.size());
+    assertTrue(reused.traceBlocksWorklist.isEmpty());
+    assertSame(processedInstructions, reused.getProcessedInstructions(5));
+    assertFalse(processedInstructions[3]);
+  }
+
+  @Test
+  public void testNestedAcquireGetsFreshState() {
+    IRBuilderStatePool pool = new IRBuilderStatePool();
+    TransientState outer = pool.acquire();
+    pool.release(pool.acquire());
+    // The state of a finished builder is reused by the next nested builder, but the state of the
+    // builder that is still building is not handed out.
+    TransientState inner = pool.acquire();
+    assertNotSame(outer, inner);
+    TransientState nested = pool.acquire();
+    assertNotSame(outer, nested);
+    assertNotSame(inner, nested);
+    pool.release(nested);
+    pool.release(inner);
+    pool.release(outer);
+    assertEquals(3, pool.size());
+  }
+
+  @Test
+  public void testLargeStructuresAreNotRetained() {
+    IRBuilderStatePool pool = new IRBuilderStatePool();
+    TransientState state = pool.acquire();
+    boolean[] processedInstructions = state.getProcessedInstructions(1 << 20);
+    pool.release(state);
+    TransientState reused = pool.acquire();
+    assertSame(state, reused);
+    assertNotSame(processedInstructions, reused.getProcessedInstructions(1));
+  }
+}
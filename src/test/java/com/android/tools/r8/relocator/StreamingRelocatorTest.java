@@ -0,0 +1,294 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.relocator;
+
+import static com.android.tools.r8.DiagnosticsMatcher.diagnosticMessage;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.CompilationFailedException;
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestDiagnosticMessagesImpl;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.ToolHelper;
+import com.android.tools.r8.references.Reference;
+import com.android.tools.r8.transformers.ClassFileTransformer.FieldPredicate;
+import com.android.tools.r8.utils.InternalOptions;
+import com.android.tools.r8.utils.ZipUtils;
+import com.android.tools.r8.utils.ZipUtils.ZipBuilder;
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.MethodVisitor;
+
+/** Checks that relocating class files independently gives the same result as reading the app. */
+@RunWith(Parameterized.class)
+public class StreamingRelocatorTest extends TestBase {
+
+  private static final String SOURCE_PACKAGE = StreamingRelocatorTest.class.getPackage().getName();
+  private static final String TARGET_PACKAGE = "foo.bar";
+  private static final String INVALID_FIELD_SIGNATURE = "I";
+
+  @Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public StreamingRelocatorTest(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  private static final List<Class<?>> CLASSES =
+      ImmutableList.of(Container.class, Container.Entry.class, Main.class);
+
+  @Test
+  public void testSameOutputAsReadingTheApplication() throws Exception {
+    Path input = temp.newFolder().toPath().resolve("input.jar");
+    ZipBuilder builder = ZipBuilder.builder(input);
+    for (Class<?> clazz : CLASSES) {
+      builder.addBytes(ZipUtils.zipEntryNameForClass(clazz), ToolHelper.getClassAsBytes(clazz));
+    }
+    builder.build();
+    TestDiagnosticMessagesImpl streamingDiagnostics = new TestDiagnosticMessagesImpl();
+    TestDiagnosticMessagesImpl applicationDiagnostics = new TestDiagnosticMessagesImpl();
+    Map<String, String> streamingOutput = relocate(input, streamingDiagnostics, Relocator::run);
+    Map<String, String> applicationOutput =
+        relocate(input, applicationDiagnostics, Relocator::runWithoutStreamingForTesting);
+    assertEquals(applicationOutput, streamingOutput);
+    assertEquals(CLASSES.size(), streamingOutput.size());
+    for (Map.Entry<String, String> entry : streamingOutput.entrySet()) {
+      assertTrue(entry.getKey().startsWith(TARGET_PACKAGE.replace('.', '/') + "/"));
+      assertFalse(entry.getValue().contains(SOURCE_PACKAGE.replace('.', '/') + "/"));
+    }
+    streamingDiagnostics.assertNoMessages();
+    applicationDiagnostics.assertNoMessages();
+  }
+
+  @Test
+  public void testMalformedSignature() throws Exception {
+    // The ASM signature parser accepts a base type as the signature of a field, but the signature
+    // of a field must be a reference type. Reading the application reports and removes it.
+    Path input = temp.newFolder().toPath().resolve("input.jar");
+    ZipBuilder builder = ZipBuilder.builder(input);
+    for (Class<?> clazz : CLASSES) {
+      builder.addBytes(
+          ZipUtils.zipEntryNameForClass(clazz),
+          clazz == Container.class
+              ? transformer(Container.class)
+                  .setGenericSignature(FieldPredicate.onName("size"), INVALID_FIELD_SIGNATURE)
+                  .transform()
+              : ToolHelper.getClassAsBytes(clazz));
+    }
+    builder.build();
+    TestDiagnosticMessagesImpl streamingDiagnostics = new TestDiagnosticMessagesImpl();
+    TestDiagnosticMessagesImpl applicationDiagnostics = new TestDiagnosticMessagesImpl();
+    Map<String, String> streamingOutput = relocate(input, streamingDiagnostics, Relocator::run);
+    Map<String, String> applicationOutput =
+        relocate(input, applicationDiagnostics, Relocator::runWithoutStreamingForTesting);
+    assertEquals(applicationOutput, streamingOutput);
+    for (TestDiagnosticMessagesImpl diagnostics :
+        ImmutableList.of(streamingDiagnostics, applicationDiagnostics)) {
+      diagnostics
+          .assertOnlyWarnings()
+          .assertWarningsMatch(
+              diagnosticMessage(
+                  containsString("Invalid signature '" + INVALID_FIELD_SIGNATURE + "'")));
+    }
+  }
+
+  private interface RelocatorRunner {
+
+    void run(RelocatorCommand command) throws CompilationFailedException;
+  }
+
+  private Map<String, String> relocate(
+      Path input, TestDiagnosticMessagesImpl diagnostics, RelocatorRunner runner)
+      throws CompilationFailedException, IOException {
+    Path output = temp.newFolder().toPath().resolve("output.jar");
+    runner.run(
+        RelocatorCommand.builder(diagnostics)
+            .addProgramFiles(input)
+            .setOutputPath(output)
+            .addPackageMapping(
+                Reference.packageFromString(SOURCE_PACKAGE),
+                Reference.packageFromString(TARGET_PACKAGE))
+            .build());
+    Map<String, String> classes = new TreeMap<>();
+    ZipUtils.iter(
+        output,
+        (entry, stream) -> {
+          if (ZipUtils.isClassFile(entry.getName())) {
+            ClassDescription description = new ClassDescription();
+            new ClassReader(stream).accept(description, 0);
+            classes.put(description.name, description.toString());
+          }
+        });
+    return classes;
+  }
+
+  /**
+   * Describes the declarations of a class and the references from its code, independently of the
+   * order of the members and of the instructions.
+   */
+  private static class ClassDescription extends ClassVisitor {
+
+    private String name;
+    private final List<String> lines = new ArrayList<>();
+
+    private ClassDescription() {
+      super(InternalOptions.ASM_VERSION);
+    }
+
+    private void add(Object... items) {
+      StringBuilder builder = new StringBuilder();
+      for (Object item : items) {
+        builder.append(' ').append(item instanceof Object[] ? toList(item) : item);
+      }
+      lines.add(builder.toString());
+    }
+
+    private static List<Object> toList(Object array) {
+      List<Object> list = new ArrayList<>();
+      Collections.addAll(list, (Object[]) array);
+      return list;
+    }
+
+    @Override
+    public void visit(
+        int version,
+        int access,
+        String name,
+        String signature,
+        String superName,
+        String[] interfaces) {
+      this.name = name;
+      add("class", name, signature, superName, interfaces);
+    }
+
+    @Override
+    public void visitOuterClass(String owner, String name, String descriptor) {
+      add("outer", owner, name, descriptor);
+    }
+
+    @Override
+    public void visitInnerClass(String name, String outerName, String innerName, int access) {
+      add("inner", name, outerName, innerName, access);
+    }
+
+    @Override
+    public FieldVisitor visitField(
+        int access, String name, String descriptor, String signature, Object value) {
+      add("field", access, name, descriptor, signature, value);
+      return null;
+    }
+
+    @Override
+    public MethodVisitor visitMethod(
+        int access, String name, String descriptor, String signature, String[] exceptions) {
+      String method = name + descriptor;
+      add("method", access, method, signature, exceptions);
+      return new MethodVisitor(InternalOptions.ASM_VERSION) {
+        @Override
+        public void visitTypeInsn(int opcode, String type) {
+          add(method, opcode, type);
+        }
+
+        @Override
+        public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+          add(method, opcode, owner, name, descriptor);
+        }
+
+        @Override
+        public void visitMethodInsn(
+            int opcode, String owner, String name, String descriptor, boolean isInterface) {
+          add(method, opcode, owner, name, descriptor, isInterface);
+        }
+
+        @Override
+        public void visitInvokeDynamicInsn(
+            String name, String descriptor, Handle bootstrapMethod, Object... arguments) {
+          add(method, "invokedynamic", name, descriptor, bootstrapMethod, arguments);
+        }
+
+        @Override
+        public void visitLdcInsn(Object value) {
+          add(method, "ldc", value);
+        }
+
+        @Override
+        public void visitLocalVariable(
+            String name,
+            String descriptor,
+            String signature,
+            org.objectweb.asm.Label start,
+            org.objectweb.asm.Label end,
+            int index) {
+          add(method, "local", name, descriptor, signature, index);
+        }
+      };
+    }
+
+    @Override
+    public String toString() {
+      List<String> sorted = new ArrayList<>(lines);
+      Collections.sort(sorted);
+      return String.join("\n", sorted);
+    }
+  }
+
+  public static class Container<T extends Comparable<? super T>> {
+
+    private final List<Entry<T>> entries = new ArrayList<>();
+    public int size;
+
+    public class Entry<S extends T> {
+
+      public final S value;
+
+      Entry(S value) {
+        this.value = value;
+      }
+    }
+
+    public void add(T value) {
+      entries.add(new Entry<>(value));
+      size++;
+    }
+
+    public <R> List<R> map(Function<? super T, ? extends R> function) {
+      List<R> result = new ArrayList<>();
+      for (Entry<T> entry : entries) {
+        result.add(function.apply(entry.value));
+      }
+      return result;
+    }
+  }
+
+  public static class Main {
+
+    public static void main(String[] args) {
+      Container<String> container = new Container<>();
+      container.add("Hello");
+      System.out.println(container.map(value -> value + " world!"));
+    }
+  }
+}
@@ -0,0 +1,151 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+
+package com.android.tools.r8.retrace;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertEquals;
+
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestDiagnosticMessagesImpl;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.android.tools.r8.retrace.internal.StackTraceRegularExpressionParser;
+import com.android.tools.r8.retrace.stacktraces.AutoStackTrace;
+import com.android.tools.r8.retrace.stacktraces.InlineWithLineNumbersStackTrace;
+import com.android.tools.r8.retrace.stacktraces.StackTraceForTest;
+import com.android.tools.r8.utils.StringUtils;
+import com.google.common.collect.ImmutableList;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class RetraceServiceTest extends TestBase {
+
+  @Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public RetraceServiceTest(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  @Test
+  public void testRequestsAreRetracedInOrder() throws IOException {
+    StackTraceForTest first = new AutoStackTrace();
+    StackTraceForTest second = new InlineWithLineNumbersStackTrace();
+    Path firstMapping = writeMapping(first);
+    Path secondMapping = writeMapping(second);
+
+    List<String> input = new ArrayList<>();
+    List<String> expected = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      StackTraceForTest stackTrace = i % 2 == 0 ? first : second;
+      input.add(RetraceService.MAPPING_PREFIX + (i % 2 == 0 ? firstMapping : secondMapping));
+      input.addAll(stackTrace.obfuscatedStackTrace());
+      input.add(RetraceService.END);
+      expected.addAll(stackTrace.retracedStackTrace());
+      expected.add(RetraceService.END);
+    }
+
+    TestDiagnosticMessagesImpl diagnosticsHandler = new TestDiagnosticMessagesImpl();
+    RetraceService service = createService(diagnosticsHandler, 1);
+    assertEquals(StringUtils.lines(expected), run(service, input));
+    diagnosticsHandler.assertOnlyInfos();
+  }
+
+  @Test
+  public void testMoreRequestsThanPendingRequests() throws IOException {
+    StackTraceForTest stackTrace = new AutoStackTrace();
+    Path mapping = writeMapping(stackTrace);
+
+    List<String> input = new ArrayList<>();
+    List<String> expected = new ArrayList<>();
+    for (int i = 0; i < 3 * RetraceService.MAX_PENDING_REQUESTS; i++) {
+      input.add(RetraceService.MAPPING_PREFIX + mapping);
+      input.addAll(stackTrace.obfuscatedStackTrace());
+      input.add(RetraceService.END);
+      expected.addAll(stackTrace.retracedStackTrace());
+      expected.add(RetraceService.END);
+    }
+
+    TestDiagnosticMessagesImpl diagnosticsHandler = new TestDiagnosticMessagesImpl();
+    RetraceService service = createService(diagnosticsHandler, 1);
+    assertEquals(StringUtils.lines(expected), run(service, input));
+    diagnosticsHandler.assertOnlyInfos();
+  }
+
+  @Test
+  public void testMappingFileIsReadAgainWhenChanged() throws IOException {
+    StackTraceForTest first = new AutoStackTrace();
+    StackTraceForTest second = new InlineWithLineNumbersStackTrace();
+    Path mapping = writeMapping(first);
+
+    TestDiagnosticMessagesImpl diagnosticsHandler = new TestDiagnosticMessagesImpl();
+    RetraceService service = createService(diagnosticsHandler, 4);
+    List<String> expected = new ArrayList<>(first.retracedStackTrace());
+    expected.add(RetraceService.END);
+    for (int i = 0; i < 2; i++) {
+      assertEquals(StringUtils.lines(expected), run(service, request(mapping, first)));
+    }
+    assertThat(run(service, ImmutableList.of(RetraceService.STATS)), containsString("hits: 1,"));
+
+    // Rewrite the mapping file with a different size and a later modification time.
+    FileTime lastModifiedTime = Files.getLastModifiedTime(mapping);
+    Files.write(mapping, second.mapping().getBytes(StandardCharsets.UTF_8));
+    Files.setLastModifiedTime(
+        mapping, FileTime.fromMillis(lastModifiedTime.toMillis() + 2 * 1000));
+    expected = new ArrayList<>(second.retracedStackTrace());
+    expected.add(RetraceService.END);
+    assertEquals(StringUtils.lines(expected), run(service, request(mapping, second)));
+    assertThat(run(service, ImmutableList.of(RetraceService.STATS)), containsString("misses: 2"));
+    diagnosticsHandler.assertOnlyInfos();
+  }
+
+  private static List<String> request(Path mapping, StackTraceForTest stackTrace) {
+    List<String> request = new ArrayList<>();
+    request.add(RetraceService.MAPPING_PREFIX + mapping);
+    request.addAll(stackTrace.obfuscatedStackTrace());
+    request.add(RetraceService.END);
+    return request;
+  }
+
+  private static RetraceService createService(
+      TestDiagnosticMessagesImpl diagnosticsHandler, int cacheSize) {
+    return new RetraceService(
+        diagnosticsHandler,
+        StackTraceRegularExpressionParser.DEFAULT_REGULAR_EXPRESSION,
+        false,
+        4,
+        cacheSize);
+  }
+
+  private static String run(RetraceService service, List<String> input) throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    try (PrintStream output = new PrintStream(outputStream, true, "UTF-8")) {
+      service.run(new StringReader(StringUtils.lines(input)), output);
+    }
+    return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  private Path writeMapping(StackTraceForTest stackTrace) throws IOException {
+    Path mapping = temp.newFile().toPath();
+    Files.write(mapping, stackTrace.mapping().getBytes(StandardCharsets.UTF_8));
+    return mapping;
+  }
+}
@@ -10,6 +10,8 @@ import static junit.framework.TestCase.assertEquals;
 import com.android.tools.r8.TestBase;
 import com.android.tools.r8.TestDiagnosticMessagesImpl;
 import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.retrace.internal.StackTraceElementStringProxy;
+import com.android.tools.r8.retrace.internal.StackTraceRegularExpressionParser;
 import com.android.tools.r8.retrace.stacktraces.InlineFileNameStackTrace;
 import com.android.tools.r8.retrace.stacktraces.RetraceAssertionErrorStackTrace;
 import com.android.tools.r8.retrace.stacktraces.StackTraceForTest;
@@ -944,6 +946,52 @@ public class StackTraceRegularExpressionParserTests extends TestBase {
         });
   }
 
+  @Test
+  public void testDefaultLineScannerMatchesRegularExpression() {
+    StackTraceRegularExpressionParser parserWithScanner = new StackTraceRegularExpressionParser();
+    // An equivalent regular expression that is not recognized as the default one.
+    StackTraceRegularExpressionParser parserWithoutScanner =
+        new StackTraceRegularExpressionParser("(?:" + DEFAULT_REGULAR_EXPRESSION + ")");
+    for (String line :
+        ImmutableList.of(
+            "\tat a.b.c(SourceFile:12)",
+            "at a.b.c(Unknown Source)",
+            "    at com.foo.Bar.<init>(Bar.java:3)",
+            "\tat a.b.<clinit>()",
+            "\tat a.b.c(:12)",
+            "\tat a.b$c.d$e(Foo.kt:1)",
+            "\tat qtr.a(:com.google.android.gms@203915081@20.39.15 (060808-335085812):46)",
+            "\tat a.b.c(Foo.java:12) ~[foo]",
+            "\tat Suppressed.c(Foo.java:1)",
+            "Caused by: a.b.C",
+            "Caused by: a.b.C: some message",
+            "Caused by: a.b.C: message",
+            "Caused by: a.b.C: x-y.z",
+            "java.io.IOException: INVALID_SENDER")) {
+      assertEquals(
+          line,
+          describe(parserWithoutScanner.parse(line)),
+          describe(parserWithScanner.parse(line)));
+    }
+  }
+
+  private static String describe(StackTraceElementStringProxy proxy) {
+    StringBuilder builder = new StringBuilder();
+    if (proxy.hasClassName()) {
+      builder.append("class: ").append(proxy.getClassReference().getTypeName()).append(", ");
+    }
+    if (proxy.hasMethodName()) {
+      builder.append("method: ").append(proxy.getMethodName()).append(", ");
+    }
+    if (proxy.hasSourceFile()) {
+      builder.append("source: ").append(proxy.getSourceFile()).append(", ");
+    }
+    if (proxy.hasLineNumber()) {
+      builder.append("line: ").append(proxy.getLineNumber());
+    }
+    return builder.toString();
+  }
+
   private TestDiagnosticMessagesImpl runRetraceTest(
       String regularExpression, StackTraceForTest stackTraceForTest) {
     TestDiagnosticMessagesImpl diagnosticsHandler = new TestDiagnosticMessagesImpl();
@@ -134,6 +134,18 @@ public class TraceReferencesCommandTest extends TestBase {
         });
   }
 
+  @Test(expected = CompilationFailedException.class)
+  public void invalidThreadCountCommandLine() throws Throwable {
+    DiagnosticsChecker.checkErrorsContains(
+        "Invalid argument to --thread-count: 0",
+        handler -> {
+          TraceReferences.run(
+              TraceReferencesCommand.parse(
+                      new String[] {"--check", "--thread-count", "0"}, Origin.unknown(), handler)
+                  .build());
+        });
+  }
+
   @Test(expected = CompilationFailedException.class)
   public void allowobfuscationWithoutKeepRule() throws Throwable {
     DiagnosticsChecker.checkErrorsContains(
@@ -0,0 +1,69 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.android.tools.r8.TestBase;
+import com.android.tools.r8.TestParameters;
+import com.android.tools.r8.TestParametersCollection;
+import com.google.common.base.Charsets;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.nio.file.Path;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class MemoryReportTest extends TestBase {
+
+  @Parameters(name = "{0}")
+  public static TestParametersCollection data() {
+    return getTestParameters().withNoneRuntime().build();
+  }
+
+  public MemoryReportTest(TestParameters parameters) {
+    parameters.assertNoneRuntime();
+  }
+
+  @Test
+  public void testR8() throws Exception {
+    Path report = temp.newFile("report.json").toPath();
+    testForR8(Backend.DEX)
+        .addProgramClasses(Main.class)
+        .addKeepMainRule(Main.class)
+        .addOptionsModification(options -> options.memoryReportFile = report.toString())
+        .compile();
+    JsonObject phases =
+        new JsonParser()
+            .parse(FileUtils.readTextFile(report, Charsets.UTF_8))
+            .getAsJsonObject()
+            .getAsJsonObject("phases");
+    assertEquals("R8", phases.get("title").getAsString());
+    assertTrue(phases.get("peakUsageSum").getAsLong() > 0);
+    boolean hasRetainedSizes = false;
+    for (JsonElement child : phases.getAsJsonArray("children")) {
+      JsonObject phase = child.getAsJsonObject();
+      assertTrue(phase.get("peakUsageSum").getAsLong() <= phases.get("peakUsageSum").getAsLong());
+      if (phase.has("retainedSizes")) {
+        JsonObject retainedSizes = phase.getAsJsonObject("retainedSizes");
+        assertTrue(retainedSizes.get("DexItemFactory").getAsLong() > 0);
+        assertTrue(retainedSizes.get("AppInfo").getAsLong() > 0);
+        hasRetainedSizes = true;
+      }
+    }
+    assertTrue(hasRetainedSizes);
+  }
+
+  static class Main {
+
+    public static void main(String[] args) {
+      System.out.println("Hello, world!");
+    }
+  }
+}
@@ -0,0 +1,86 @@
+// Copyright (c) 2021, the R8 project authors. Please see the AUTHORS file
+// for details. All rights reserved. Use of this source code is governed by a
+// BSD-style license that can be found in the LICENSE file.
+package com.android.tools.r8.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import com.android.tools.r8.utils.ThreadUtils.BatchStatistics;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import org.junit.Test;
+
+public class ThreadUtilsTest {
+
+  private List<Integer> createInputData(int size) {
+    List<Integer> input = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      input.add(i);
+    }
+    return input;
+  }
+
+  @Test
+  public void processItemsInBatches_allItemsProcessedOnce() throws Exception {
+    List<Integer> input = createInputData(9600);
+    Set<Integer> processed = ConcurrentHashMap.newKeySet();
+    ExecutorService executorService = ThreadUtils.getExecutorService(4);
+    try {
+      BatchStatistics statistics =
+          ThreadUtils.processItemsInBatches(
+              input, item -> assertTrue(processed.add(item)), executorService);
+      assertEquals(input.size(), processed.size());
+      assertEquals(input.size(), statistics.getNumberOfItems());
+      assertEquals(4 * 8, statistics.getNumberOfTasks());
+    } finally {
+      executorService.shutdown();
+    }
+  }
+
+  @Test
+  public void processItemsInBatches_expensiveItemsInOwnTask() throws Exception {
+    List<Integer> input = createInputData(1000);
+    Set<Integer> processed = ConcurrentHashMap.newKeySet();
+    ExecutorService executorService = ThreadUtils.getExecutorService(2);
+    try {
+      // The two expensive items each cost more than a batch of the cheap items.
+      BatchStatistics statistics =
+          ThreadUtils.processItemsInBatches(
+              input,
+              item -> item < 2 ? 10000 : 0,
+              item -> assertTrue(processed.add(item)),
+              executorService);
+      assertEquals(input.size(), processed.size());
+      assertEquals(3, statistics.getNumberOfTasks());
+    } finally {
+      executorService.shutdown();
+    }
+  }
+
+  @Test
+  public void getCurrentThreadAllocatedBytes_countsAllocations() {
+    long before = ThreadUtils.getCurrentThreadAllocatedBytes();
+    assumeTrue(before >= 0);
+    int[] array = new int[1 << 16];
+    long after = ThreadUtils.getCurrentThreadAllocatedBytes();
+    assertTrue(after - before >= 4L * array.length);
+  }
+
+  @Test
+  public void processItemsInBatches_empty() throws Exception {
+    ExecutorService executorService = ThreadUtils.getExecutorService(2);
+    try {
+      BatchStatistics statistics =
+          ThreadUtils.processItemsInBatches(
+              new ArrayList<Integer>(), item -> {}, executorService);
+      assertEquals(0, statistics.getNumberOfTasks());
+    } finally {
+      executorService.shutdown();
+    }
+  }
+}